@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the passing of arguments from a call site to a primitive:
+ * the list way (arguments gathered in an ArrayList, converted to a new
+ * list, then copied in an array by the primitive procedure) and the array
+ * way (arguments gathered in an array of the right size, passed as such).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentPassingBenchmark
+{
+    private PrimitiveProcedure car;
+    private PrimitiveProcedure cons;
+    private Entity pair;
+    private Entity one;
+    private Entity two;
+    private Environment env;
+    private Continuation cont;
+
+    @Setup
+    public void setup() throws GleamException
+    {
+        Interpreter intp = Interpreter.newInterpreter();
+        env = intp.getSessionEnv();
+        car = (PrimitiveProcedure) env.lookup(Symbol.makeSymbol("car"));
+        cons = (PrimitiveProcedure) env.lookup(Symbol.makeSymbol("cons"));
+        one = new Real(1);
+        two = new Real(2);
+        pair = new Pair(one, two);
+        cont = new Continuation();
+    }
+
+    @Benchmark
+    public Entity carWithList() throws GleamException
+    {
+        return applyWithList(car, pair);
+    }
+
+    @Benchmark
+    public Entity carWithArray() throws GleamException
+    {
+        ArgumentList args = new ArgumentList(1);
+        args.set(0, pair);
+        return args.applyTo(car, env, cont);
+    }
+
+    @Benchmark
+    public Entity consWithList() throws GleamException
+    {
+        return applyWithList(cons, one, two);
+    }
+
+    @Benchmark
+    public Entity consWithArray() throws GleamException
+    {
+        ArgumentList args = new ArgumentList(2);
+        args.set(0, one);
+        args.set(1, two);
+        return args.applyTo(cons, env, cont);
+    }
+
+    /**
+     * Applies a primitive procedure of at most three arguments the list way.
+     */
+    private Entity applyWithList(PrimitiveProcedure proc, Entity... values)
+            throws GleamException
+    {
+        // gathering of evaluated arguments
+        ArrayList<Entity> listArgs = new ArrayList<>();
+        for (int i = 0; i < values.length; ++i) {
+            int missing = i + 1 - listArgs.size();
+            listArgs.ensureCapacity(i + 1);
+            for (int j = 0; j < missing; ++j) {
+                listArgs.add(Undefined.value);
+            }
+            listArgs.set(i, values[i]);
+        }
+
+        // conversion to a list
+        List arg = EmptyList.value;
+        for (int i = listArgs.size() - 1; i >= 0; --i) {
+            arg = new Pair(listArgs.get(i), arg);
+        }
+
+        // conversion to an array, and application
+        gleam.library.Primitive value = proc.value;
+        Entity[] argArray = new Entity[] {null, null, null};
+        int countedArgs = 0;
+        ListIterator it = new ListIterator(arg);
+        while (it.hasNext()) {
+            argArray[countedArgs++] = it.next();
+            if (countedArgs > value.maxArgs) {
+                throw new GleamException(value, "too many arguments", arg);
+            }
+        }
+        if (countedArgs < value.minArgs) {
+            throw new GleamException(value, "too few arguments", arg);
+        }
+        switch (value.maxArgs) {
+            case 0:
+                return value.apply0(env, cont);
+            case 1:
+                return value.apply1(argArray[0], env, cont);
+            case 2:
+                return value.apply2(argArray[0], argArray[1], env, cont);
+            default: // 3
+                return value.apply3(argArray[0], argArray[1], argArray[2], env, cont);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the calls of arithmetic and comparison primitives on two
+ * arguments, as in the typical counting loop: the calls (&lt; i n) and
+ * (+ i 1) alone, and a loop of 1000 iterations made of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumericCallBenchmark
+{
+    private Interpreter intp;
+    private Environment env;
+    private Continuation cont;
+    private Entity lessThan;
+    private Entity increment;
+    private Entity loop;
+
+    @Setup
+    public void setup() throws GleamException
+    {
+        intp = Interpreter.newInterpreter();
+        env = intp.getSessionEnv();
+        cont = new Continuation();
+        intp.eval(read("(define i 1000)"), env);
+        intp.eval(read("(define n 2000)"), env);
+        intp.eval(read("(define (count n) (let loop ((i 0)) (if (< i n) (loop (+ i 1)) i)))"), env);
+        lessThan = read("(< i n)").analyze(env).optimize(env);
+        increment = read("(+ i 1)").analyze(env).optimize(env);
+        loop = read("(count 1000)");
+    }
+
+    @Benchmark
+    public Entity lessThan() throws GleamException
+    {
+        return lessThan.eval(env, cont);
+    }
+
+    @Benchmark
+    public Entity increment() throws GleamException
+    {
+        return increment.eval(env, cont);
+    }
+
+    @Benchmark
+    public Entity countingLoop() throws GleamException
+    {
+        return intp.eval(loop, env);
+    }
+
+    private static Entity read(String expr) throws GleamException
+    {
+        return new Reader(new StringReader(expr)).read();
+    }
+}
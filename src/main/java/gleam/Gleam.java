@@ -159,11 +159,11 @@ public class Gleam {
                     obj = Void.value();
                     break;
                 case C_TRON:
-                    Interpreter.traceOn();
+                    intp.traceOn();
                     obj = Void.value();
                     break;
                 case C_TROFF:
-                    Interpreter.traceOff();
+                    intp.traceOff();
                     obj = Void.value();
                     break;
                 case C_HELP:
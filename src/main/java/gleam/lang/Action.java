@@ -37,44 +37,26 @@ package gleam.lang;
  * fragment, which can be invoked during the execution of the program.
  * It is a constituent of continuations, because a full continuation
  * consists of a sequence of invocations of these units.
- * Actions are linked together in a tree-like structure, where an execution
- * goes from leaf to root. In an ordinary program, the tree may degenerate
- * into a list, taking the role of the traditional stack used in many
- * non tail-recursive languages. When continuations are captured and
- * re-used, their actions may end up being arranged as a proper tree.
+ * Actions are kept on the stack of a continuation, taking the role of the
+ * traditional stack used in many non tail-recursive languages. When
+ * continuations are captured and re-used, the segments of their stacks
+ * are shared, so that the actions end up being arranged as a tree.
  */
 public abstract class Action implements java.io.Serializable
 {
     /** the environment in which to execute this action */
     Environment env;
 
-    /** the next action to execute, this creates a tree structure */
-    Action next;
-
-    Action(Environment env, Action next) {
+    Action(Environment env) {
         this.env = env;
-        this.next = next;
-    }
-
-    /**
-     * Appends a new action after this one, so that the given action be
-     * executed after this one.
-     * @param action the Action to append
-     * @return the argument
-     */
-    public Action andThen(Action action) {
-        action.next = this.next;
-        this.next = action;
-        return action;
     }
 
     /**
      * Invokes this action with an argument and a continuation,  returning a
      * value, and advancing the continuation to the next action.
-     * Subclasses that implement this abstract method must update the
-     * continuation's action with the next action to execute (e.g.
-     * <CODE>cont.action = next</CODE>), so to go forward in program
-     * execution
+     * Subclasses that implement this abstract method must remove this
+     * action from the continuation (i.e. <CODE>cont.pop()</CODE>), so to
+     * go forward in program execution
      * @param arg the Entity argument to this step of execution
      * @param cont the current Continuation
      * @return an Entity, or null to signal that only the continuation has
@@ -89,10 +71,10 @@ public abstract class Action implements java.io.Serializable
         void print(OutputPort port);
     }
 
-    protected void trace(Printer doo, Environment env)
+    protected void trace(Printer doo, Environment env, Continuation cont)
             throws GleamException
     {
-        if (Interpreter.traceEnabled()) {
+        if (cont.trace) {
             OutputPort cout = env.getOut();
 
             String actionName = this.getClass().getSimpleName().replace("Action", "");
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * And (short-circuit conjunction): receives the value of an expression,
+ * and goes on with the remaining ones unless it is false.
+ */
+public class AndAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the expressions still to evaluate */
+    private final List exprs;
+
+    /** Creates a new AndAction */
+    public AndAction(List exprs, Environment env) {
+        super(env);
+        this.exprs = exprs;
+    }
+
+    @Override
+    Entity invoke(Entity arg, Continuation cont) throws GleamException {
+        cont.pop();
+        if (arg == Boolean.falseValue)
+            return arg;
+        else
+            return evaluate(exprs, env, cont);
+    }
+
+    /**
+     * Evaluates the expressions of an and form, from left to right, until
+     * one of them is false. The last expression is evaluated in tail
+     * position.
+     * @param exprs the expressions
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the and form, or null if the continuation has
+     * been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluate(List exprs, Environment env, Continuation cont)
+            throws GleamException
+    {
+        if (exprs == EmptyList.value)
+            return Boolean.trueValue;
+
+        while (exprs.getCdr() != EmptyList.value) {
+            Entity expr = exprs.getCar();
+            List rest = (List) exprs.getCdr();
+            Entity value = System.isSimpleExpression(expr)
+                    ? expr.eval(env, cont)
+                    : CallSite.evalInPlace(expr, env, cont);
+            if (value == null) {
+                cont.begin(new AndAction(rest, env));
+                return expr.eval(env, cont);
+            }
+            if (value == Boolean.falseValue) {
+                return Boolean.falseValue;
+            }
+            exprs = rest;
+        }
+        return exprs.getCar().eval(env, cont);
+    }
+}
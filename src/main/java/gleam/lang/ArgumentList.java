@@ -26,28 +26,34 @@
 
 package gleam.lang;
 
-import java.util.ArrayList;
-
 /**
  * A list of arguments for a procedure.
+ * Evaluated arguments are gathered in an array of the right size, which is
+ * passed as such to the procedure.
  */
 public class ArgumentList implements java.io.Serializable {
     /**
      * serialVersionUID
      */
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
-    private final java.util.ArrayList<Entity> listArgs;
-    private final List pairArgs;
+    private final Entity[] arrayArgs;
 
-    public ArgumentList() {
-        this.listArgs = new java.util.ArrayList<>();
-        this.pairArgs = null;
+    /**
+     * Creates an argument list for a given number of arguments,
+     * to be set with {@link #set(int, Entity)}.
+     * @param size the number of arguments
+     */
+    public ArgumentList(int size) {
+        this.arrayArgs = new Entity[size];
     }
 
-    public ArgumentList(List args) {
-        this.listArgs = null;
-        this.pairArgs = args;
+    /**
+     * Creates an argument list holding the given arguments.
+     * @param args the arguments
+     */
+    public ArgumentList(Entity[] args) {
+        this.arrayArgs = args;
     }
 
     /**
@@ -56,40 +62,64 @@ public class ArgumentList implements java.io.Serializable {
      * @param value the value for the argument
      */
     public void set(int index, Entity value) {
-        assert listArgs != null : "set called on immutable ArgumentList";
-        ensureSize(listArgs, index+1);
-        listArgs.set(index, value);
+        arrayArgs[index] = value;
     }
 
     /**
-     * Ensure argument list has at least <code>size</code> elements.
-     * Grow the list with Undefined values if necessary.
-     * @param listArgs the argument list
-     * @param size minimum needed size
+     * @return List the list of arguments
      */
-    private void ensureSize(ArrayList<Entity> listArgs, int size) {
-        int missing = size - listArgs.size();
-        listArgs.ensureCapacity(size);
-        for (int i = 0 ; i < missing; ++i) {
-            listArgs.add(Undefined.value);
-        }
+    public List getArguments() {
+        return toList(arrayArgs, 0);
     }
 
     /**
-     * @return List the list of arguments
+     * Applies a procedure to these arguments.
+     * @param procedure the procedure to apply
+     * @param env the environment in which to apply the procedure
+     * @param cont the current continuation
+     * @return the result of the procedure, or null
+     * @throws GleamException in case of errors
      */
-    public List getArguments() {
-        return null == listArgs ? pairArgs : j2g(listArgs);
+    Entity applyTo(Procedure procedure, Environment env, Continuation cont)
+            throws GleamException
+    {
+        return procedure.apply(arrayArgs, env, cont);
     }
 
-    private List j2g(java.util.List<Entity> lst) {
-        if (lst.size() == 0)
-            return EmptyList.value();
-
+    /**
+     * Converts an array of arguments to a new list.
+     * @param args the arguments
+     * @param from the index of the first argument to put in the list
+     * @return a new list of arguments
+     */
+    public static List toList(Entity[] args, int from) {
         List p = EmptyList.value();
-        for (int i = lst.size() - 1; i >= 0; --i) {
-            p = new Pair(lst.get(i), p);
+        for (int i = args.length - 1; i >= from; --i) {
+            p = new Pair(args[i], p);
         }
         return p;
     }
+
+    /**
+     * Converts a list of arguments to an array.
+     * @param args the list of arguments
+     * @return a new array of arguments
+     * @throws GleamException if the list is improper
+     */
+    public static Entity[] toArray(List args) throws GleamException {
+        int size = 0;
+        for (Entity p = args; p != EmptyList.value; p = ((Pair) p).getCdr()) {
+            if (!(p instanceof Pair)) {
+                throw new ImproperListException(p);
+            }
+            ++size;
+        }
+        Entity[] array = new Entity[size];
+        List p = args;
+        for (int i = 0; i < size; ++i) {
+            array[i] = p.getCar();
+            p = (List) p.getCdr();
+        }
+        return array;
+    }
 }
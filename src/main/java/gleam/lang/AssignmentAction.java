@@ -44,23 +44,18 @@ public class AssignmentAction extends Action {
     /** the symbol to assign to */
     protected final Symbol symbol;
 
-    /** Creates a new AssignmentAction */
-    public AssignmentAction(Symbol symbol, Environment env, Action next) {
-        super(env, next);
-        this.symbol = symbol;
-    }
-
     /** Creates a new AssignmentAction */
     public AssignmentAction(Symbol symbol, Environment env) {
-        this(symbol, env, null);
+        super(env);
+        this.symbol = symbol;
     }
 
     /** invocation  */
     @Override
     Entity invoke(Entity arg, Continuation cont) throws GleamException {
-        cont.head = next;
-        env.getLocation(symbol).set(arg);
-        trace(out -> out.printf("%s <- %s\n", symbol.toWriteFormat(), arg.toWriteFormat()), env);
+        cont.pop();
+        env.getAssignableLocation(symbol).set(arg);
+        trace(out -> out.printf("%s <- %s\n", symbol.toWriteFormat(), arg.toWriteFormat()), env, cont);
         return Void.value;
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+import java.math.BigInteger;
+
+/**
+ * Scheme exact integer that does not fit in a Java long.
+ * @see Fixnum
+ */
+public final class Bignum extends Number
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the smallest long value */
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+    /** the largest long value */
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    /** the value */
+    private final BigInteger value;
+
+    /** private constructor */
+    private Bignum(BigInteger value)
+    {
+        this.value = value;
+    }
+
+    /**
+     * Static factory: makes a Fixnum if the value fits in a long,
+     * a Bignum otherwise.
+     */
+    public static Number makeInteger(BigInteger value)
+    {
+        if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+            return Fixnum.makeFixnum(value.longValue());
+        }
+        return new Bignum(value);
+    }
+
+    /** Takes value of number as a BigInteger. */
+    public BigInteger getBigIntegerValue() {
+        return value;
+    }
+
+    /** Takes value of number as a double. */
+    @Override
+    public double getDoubleValue() {
+        return value.doubleValue();
+    }
+
+    /**
+     * Scheme integer comparison.
+     * @return boolean
+     * @param o java.lang.Object
+     */
+    @Override
+    public boolean equals(java.lang.Object o) {
+        if (o instanceof Bignum) {
+            return value.equals(((Bignum) o).value);
+        }
+        else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a hashcode for this Scheme object.
+     * @return int
+     */
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    /**
+     * Writes an integer
+     */
+    @Override
+    public void write(PrintWriter out)
+    {
+        out.print(value);
+    }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import gleam.library.Primitive;
+import gleam.library.Specialization;
+
+import java.io.PrintWriter;
+
+/**
+ * A compiled procedure call: the operator and the operands of a procedure
+ * application, taken apart once, at optimization time, so that the
+ * evaluation of the call does not have to walk the form again.
+ * A call site can be evaluated any number of times.
+ * The operands are evaluated from left to right: the simple ones inline,
+ * the others by means of a CallSiteAction.
+ * A call site has a monomorphic inline cache: it remembers the procedure
+ * it has last applied, and how to apply it to the number of operands of
+ * the site, e.g. directly through the apply2 method of a primitive, or by
+ * binding the arguments of a closure without checking their number again.
+ * A call applying the same procedure only needs an identity check.
+ * A call to a primitive with one or two simple operands also records the
+ * types of the arguments it sees: the call site then asks the primitive
+ * for a specialization to those types (e.g. an addition of two fixnums),
+ * which it applies as long as its guard holds. When the guard fails, the
+ * call site goes back to the primitive, and may specialize again, up to
+ * MAX_SPECIALIZATIONS times.
+ * A call to a primitive that does not use the continuation, e.g. (car x),
+ * once cached, is evaluated in place where it appears as an operand of
+ * another call, or as a test, without pushing actions on the continuation.
+ */
+public final class CallSite extends Node
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** any procedure: general application */
+    private static final int GENERIC = 0;
+
+    /** a primitive applied through one of its fixed-arity entry points */
+    private static final int PRIMITIVE_FIXED = 1;
+
+    /** a primitive applied to an array of arguments, of a valid number */
+    private static final int PRIMITIVE_ARRAY = 2;
+
+    /** a closure whose parameters match the number of operands */
+    private static final int CLOSURE = 3;
+
+    /** how many times a call site may ask a primitive for a specialization */
+    private static final int MAX_SPECIALIZATIONS = 2;
+
+    /** the original form, used to write this call site, and for syntax */
+    private final Pair form;
+
+    /** the operator */
+    private final Entity operator;
+
+    /** the operands */
+    private final Entity[] operands;
+
+    /** for each operand, true if it is a simple expression */
+    private final boolean[] simple;
+
+    /** true if the operator is a simple expression */
+    private final boolean simpleOperator;
+
+    /** true if there are at most three operands, all simple */
+    private final boolean fewSimpleOperands;
+
+    /** the inline cache: the last applied procedure and how to apply it */
+    private transient InlineCache cache;
+
+    /**
+     * Creates a new call site.
+     *
+     * @param form the original form
+     * @param operator the operator, as it should be evaluated
+     * @param operands the operands, as they should be evaluated
+     */
+    CallSite(Pair form, Entity operator, Entity[] operands)
+    {
+        super(false);
+        this.form = form;
+        this.operator = operator;
+        this.operands = operands;
+        this.simple = new boolean[operands.length];
+        boolean allSimple = true;
+        for (int i = 0; i < operands.length; ++i) {
+            simple[i] = System.isSimpleExpression(operands[i]);
+            allSimple &= simple[i];
+        }
+        this.simpleOperator = System.isSimpleExpression(operator);
+        this.fewSimpleOperands = allSimple && operands.length <= 3;
+    }
+
+    /**
+     * Evaluates this procedure call.
+     * A simple operator is evaluated first: if its value turns out to be
+     * syntax (i.e., it has been bound to a syntax keyword after the
+     * creation of this call site) the original form is evaluated instead.
+     * A primitive procedure applied to at most three simple operands is
+     * passed their values directly, without gathering them in an array.
+     */
+    @Override
+    public Entity eval(Environment env, Continuation cont)
+        throws GleamException
+    {
+        if (!simpleOperator) {
+            return call(null, env, cont);
+        }
+        Entity procedure = operator.eval(env, cont);
+        InlineCache c = cache;
+        if (c == null || c.procedure != procedure) {
+            // class tests: a failing test on the SyntaxObject interface is slow
+            if (procedure instanceof SyntaxProcedure || procedure instanceof SyntaxRewriter) {
+                return form.eval(env, cont);
+            }
+            c = cache = new InlineCache(ProcedureCallAction.toProcedure(procedure), operands.length);
+        }
+        if (c.kind == PRIMITIVE_FIXED && fewSimpleOperands) {
+            return applyToSimpleOperands(c, env, cont);
+        }
+        return call(procedure, env, cont);
+    }
+
+    /**
+     * Evaluates an expression in place, if it is a call to a primitive
+     * that does not use the continuation, e.g. (car x) or (null? l),
+     * with a simple operator and at most three simple operands, which
+     * has already been evaluated at least once.
+     * Such a call needs no actions: the expressions that use its value,
+     * e.g. the test of an if, or an operand of another call, can go on
+     * with the value, without pushing an action to wait for it.
+     *
+     * @param expr an expression
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the expression, or null if the expression has
+     * not been evaluated, and should be evaluated the usual way
+     * @throws GleamException in case of errors
+     */
+    static Entity evalInPlace(Entity expr, Environment env, Continuation cont)
+        throws GleamException
+    {
+        if (!(expr instanceof CallSite)) {
+            return null;
+        }
+        CallSite call = (CallSite) expr;
+        InlineCache c = call.cache;
+        if (c == null || !c.direct || !call.simpleOperator || !call.fewSimpleOperands
+                || call.operator.eval(env, cont) != c.procedure) {
+            return null;
+        }
+        return call.applyToSimpleOperands(c, env, cont);
+    }
+
+    /**
+     * Applies the primitive of a PRIMITIVE_FIXED inline cache to the
+     * values of the simple operands, passed directly, by means of the
+     * specialization for their types, if any.
+     */
+    private Entity applyToSimpleOperands(InlineCache c, Environment env, Continuation cont)
+        throws GleamException
+    {
+        int count = operands.length;
+        Entity arg1 = count > 0 ? operands[0].eval(env, cont) : null;
+        Entity arg2 = count > 1 ? operands[1].eval(env, cont) : null;
+        Entity arg3 = count > 2 ? operands[2].eval(env, cont) : null;
+        if (c.specialization != null) {
+            Entity result = count == 1 ? c.specialization.apply1(arg1)
+                                       : c.specialization.apply2(arg1, arg2);
+            if (result != null) {
+                return result;
+            }
+            // the guard has failed: back to the primitive
+            c = cache = c.despecialize();
+        }
+        else if (c.specializable()) {
+            c = cache = c.specialize(c.primitive.specialize(
+                    count == 1 ? new Entity[] {arg1} : new Entity[] {arg1, arg2}));
+        }
+        return applyFixed(c, arg1, arg2, arg3, env, cont);
+    }
+
+    /**
+     * Evaluates the operands and applies the procedure to them.
+     *
+     * @param procedure the value of the operator, or null if the operator
+     *                  is to be evaluated after the operands
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the result of the call, or null if the continuation has changed
+     * @throws GleamException in case of errors
+     */
+    Entity call(Entity procedure, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return proceed(procedure, new Entity[operands.length], 0, env, cont);
+    }
+
+    /**
+     * Continues the evaluation of this call, from a given operand.
+     *
+     * @param procedure the value of the operator, or null if not known yet
+     * @param args the values of the operands evaluated so far
+     * @param from the index of the next operand to evaluate
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the result of the call, or null if the continuation has changed
+     * @throws GleamException in case of errors
+     */
+    Entity proceed(Entity procedure, Entity[] args, int from, Environment env, Continuation cont)
+        throws GleamException
+    {
+        for (int i = from; i < operands.length; ++i) {
+            if (simple[i]) {
+                args[i] = operands[i].eval(env, cont);
+            }
+            else {
+                Entity value = evalInPlace(operands[i], env, cont);
+                if (value != null) {
+                    args[i] = value;
+                    continue;
+                }
+                cont.begin(new CallSiteAction(this, procedure, args, i, env));
+                return operands[i].eval(env, cont);
+            }
+        }
+
+        if (procedure == null) {
+            cont.begin(new CallSiteAction(this, null, args, operands.length, env));
+            return operator.eval(env, cont);
+        }
+
+        return apply(procedure, args, env, cont);
+    }
+
+    /**
+     * Applies the value of the operator to the values of the operands,
+     * by means of the inline cache.
+     *
+     * @param procedure the value of the operator
+     * @param args the values of the operands
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the result of the call, or null if the continuation has changed
+     * @throws GleamException in case of errors
+     */
+    Entity apply(Entity procedure, Entity[] args, Environment env, Continuation cont)
+        throws GleamException
+    {
+        InlineCache c = cache;
+        if (c == null || c.procedure != procedure) {
+            c = cache = new InlineCache(ProcedureCallAction.toProcedure(procedure), operands.length);
+        }
+        switch (c.kind) {
+            case PRIMITIVE_FIXED:
+                int count = args.length;
+                return applyFixed(c,
+                        count > 0 ? args[0] : null,
+                        count > 1 ? args[1] : null,
+                        count > 2 ? args[2] : null,
+                        env, cont);
+            case PRIMITIVE_ARRAY:
+                return c.primitive.applyN(args, env, cont);
+            case CLOSURE:
+                return ((Closure) c.procedure).enter(args, env, cont);
+            default:
+                return c.procedure.apply(args, env, cont);
+        }
+    }
+
+    /**
+     * Applies a primitive through the fixed-arity entry point chosen by
+     * the inline cache; missing arguments are null.
+     */
+    private static Entity applyFixed(InlineCache c, Entity arg1, Entity arg2, Entity arg3,
+                                     Environment env, Continuation cont)
+        throws GleamException
+    {
+        switch (c.arity) {
+            case 0:
+                return c.primitive.apply0(env, cont);
+            case 1:
+                return c.primitive.apply1(arg1, env, cont);
+            case 2:
+                return c.primitive.apply2(arg1, arg2, env, cont);
+            default: // 3
+                return c.primitive.apply3(arg1, arg2, arg3, env, cont);
+        }
+    }
+
+    /**
+     * @return the operator
+     */
+    Entity operator()
+    {
+        return operator;
+    }
+
+    /**
+     * @return the operands
+     */
+    Entity[] operands()
+    {
+        return operands;
+    }
+
+    /**
+     * @return the number of operands
+     */
+    int operandCount()
+    {
+        return operands.length;
+    }
+
+    /** Writes this call site as the original form */
+    @Override
+    public void write(PrintWriter out)
+    {
+        form.write(out);
+    }
+
+    /**
+     * The content of the inline cache of a call site: a procedure, and the
+     * way to apply it to the number of operands of the call site, chosen
+     * once. It is immutable, so that it is replaced as a whole.
+     */
+    private static final class InlineCache
+    {
+        /** the procedure */
+        final Procedure procedure;
+
+        /** how to apply the procedure */
+        final int kind;
+
+        /** the primitive of a primitive procedure, or null */
+        final Primitive primitive;
+
+        /**
+         * true if the primitive is applied through a fixed-arity entry
+         * point, and does not use the continuation
+         */
+        final boolean direct;
+
+        /** for PRIMITIVE_FIXED: the number of arguments of the entry point */
+        final int arity;
+
+        /** for PRIMITIVE_FIXED: the number of arguments of the call site */
+        final int count;
+
+        /** the specialization of the primitive in use, or null */
+        final Specialization specialization;
+
+        /** how many times the primitive has been asked for a specialization */
+        final int specializations;
+
+        InlineCache(Procedure procedure, int count)
+        {
+            this.count = count;
+            this.specialization = null;
+            this.specializations = 0;
+            this.procedure = procedure;
+            Primitive p = null;
+            int k = GENERIC;
+            int a = -1;
+            if (procedure instanceof PrimitiveProcedure
+                    && !(procedure instanceof SyntaxProcedure)) {
+                p = ((PrimitiveProcedure) procedure).value;
+                if (count <= 3 && p.hasFixedArity(count)) {
+                    k = PRIMITIVE_FIXED;
+                    a = count;
+                }
+                else if (p.maxArgs >= 0 && p.maxArgs <= 3) {
+                    if (p.minArgs <= count && count <= p.maxArgs) {
+                        k = PRIMITIVE_FIXED;
+                        a = p.maxArgs;
+                    }
+                }
+                else if (p.minArgs <= count && (p.maxArgs < 0 || count <= p.maxArgs)) {
+                    k = PRIMITIVE_ARRAY;
+                }
+            }
+            else if (procedure instanceof Closure && !(procedure instanceof SyntaxRewriter)) {
+                FrameLayout layout = ((Closure) procedure).layout;
+                if (layout.rest ? count >= layout.required : count == layout.required) {
+                    k = CLOSURE;
+                }
+            }
+            this.kind = k;
+            this.primitive = p;
+            this.arity = a;
+            this.direct = k == PRIMITIVE_FIXED && PrimitiveProcedure.isDirect(p);
+        }
+
+        private InlineCache(InlineCache other, Specialization specialization,
+                            int specializations)
+        {
+            this.procedure = other.procedure;
+            this.kind = other.kind;
+            this.primitive = other.primitive;
+            this.direct = other.direct;
+            this.arity = other.arity;
+            this.count = other.count;
+            this.specialization = specialization;
+            this.specializations = specializations;
+        }
+
+        /**
+         * @return true if the primitive may be asked for a specialization
+         */
+        boolean specializable()
+        {
+            return specializations < MAX_SPECIALIZATIONS
+                    && (count == 1 || count == 2) && count == arity;
+        }
+
+        /**
+         * @param specialization the specialization given by the primitive,
+         *                       or null if there is none
+         * @return this cache, with the given specialization in use
+         */
+        InlineCache specialize(Specialization specialization)
+        {
+            return new InlineCache(this, specialization, specializations + 1);
+        }
+
+        /**
+         * @return this cache, without a specialization
+         */
+        InlineCache despecialize()
+        {
+            return new InlineCache(this, null, specializations);
+        }
+    }
+}
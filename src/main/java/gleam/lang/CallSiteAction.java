@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * The evaluation of a call site, waiting for the value of an operand (or of
+ * the operator, when the index equals the number of operands).
+ * Each action of this kind is created with a fixed index, so a
+ * continuation may be re-entered in the middle of a call.
+ */
+public class CallSiteAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the call being evaluated */
+    private final CallSite site;
+
+    /** the value of the operator, or null if not known yet */
+    private final Entity procedure;
+
+    /** the values of the operands */
+    private final Entity[] args;
+
+    /** the index of the operand whose value we wait for */
+    private final int index;
+
+    /** Creates a new instance of this action */
+    CallSiteAction(CallSite site, Entity procedure, Entity[] args, int index, Environment env) {
+        super(env);
+        this.site = site;
+        this.procedure = procedure;
+        this.args = args;
+        this.index = index;
+    }
+
+    @Override
+    Entity invoke(Entity arg, Continuation cont)
+            throws GleamException
+    {
+        cont.pop();
+        if (index == site.operandCount()) {
+            // arg is the procedure
+            trace(out -> out.printf("%s\n", arg.toWriteFormat()), env, cont);
+            return site.apply(arg, args, env, cont);
+        }
+        // arg is already evaluated
+        args[index] = arg;
+        trace(out -> out.printf("[%s] <- %s\n", index, arg.toWriteFormat()), env, cont);
+        return site.proceed(procedure, args, index + 1, env, cont);
+    }
+}
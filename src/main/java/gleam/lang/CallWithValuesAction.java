@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * An Action that receives the values of the producer of a
+ * call-with-values, and passes them as arguments to the consumer.
+ */
+public class CallWithValuesAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the arguments of the producer */
+    private static final Entity[] NO_ARGS = {};
+
+    /** the consumer */
+    private final Procedure consumer;
+
+    /** Creates a new instance of this action */
+    private CallWithValuesAction(Procedure consumer, Environment env) {
+        super(env);
+        this.consumer = consumer;
+    }
+
+    /**
+     * Calls a producer with no arguments, then a consumer with the values
+     * of the producer as arguments.
+     * @param producer the producer
+     * @param consumer the consumer
+     * @param env the environment of the call
+     * @param cont the current continuation
+     * @return the value of the producer, or null if the continuation has
+     * changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluate(Procedure producer, Procedure consumer, Environment env, Continuation cont)
+        throws GleamException
+    {
+        cont.begin(new CallWithValuesAction(consumer, env));
+        return producer.apply(NO_ARGS, env, cont);
+    }
+
+    /** Invokes this action, calling the consumer
+     * @param arg the values of the producer
+     * @param cont the current Continuation
+     * @return the value of the consumer, or null if the continuation has changed
+     * @throws gleam.lang.GleamException in case of errors
+    */
+    @Override
+    Entity invoke(Entity arg, Continuation cont)
+        throws GleamException
+    {
+        cont.pop();
+        return consumer.apply(MultipleValues.spread(arg), env, cont);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * Case selection: receives the value of the key of a case form, and
+ * evaluates the selected clause.
+ */
+public class CaseAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the clauses */
+    private final List clauses;
+
+    /** Creates a new CaseAction */
+    public CaseAction(List clauses, Environment env) {
+        super(env);
+        this.clauses = clauses;
+    }
+
+    @Override
+    Entity invoke(Entity arg, Continuation cont) throws GleamException {
+        cont.pop();
+        return select(arg, clauses, env, cont);
+    }
+
+    /**
+     * Evaluates a case form: evaluates the key, then the clause with a
+     * datum equivalent (in the sense of eqv?) to the key.
+     * @param key the key expression
+     * @param clauses the clauses
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the case form, or null if the continuation has
+     * been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluate(Entity key, List clauses, Environment env, Continuation cont)
+            throws GleamException
+    {
+        if (System.isSimpleExpression(key)) {
+            return select(key.eval(env, cont), clauses, env, cont);
+        }
+        cont.begin(new CaseAction(clauses, env));
+        return key.eval(env, cont);
+    }
+
+    private static Entity select(Entity value, List clauses, Environment env, Continuation cont)
+            throws GleamException
+    {
+        List body = CaseTable.forClauses(clauses).select(value);
+        if (body == null) {
+            // no clause selected
+            return Void.value;
+        }
+        if (body.getCdr() == EmptyList.value) {
+            return body.getCar().eval(env, cont);
+        }
+        cont.addCommandSequenceActions(body, env);
+        return null;
+    }
+}
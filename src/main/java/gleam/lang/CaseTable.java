@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The dispatch table of a case form: maps each datum of the clauses to
+ * the body of the clause it appears in, so that a clause is selected
+ * with a single lookup, instead of testing the datums one by one.
+ * Datums are compared as in eqv?, i.e. with equals, so they are hashed
+ * by their hashCode. Strings are mutable, and their hash code could
+ * change, so they are looked up in a separate list.
+ * The table is built the first time the case form is evaluated, and
+ * cached in the code.
+ */
+final class CaseTable
+{
+    /** the clause bodies, by datum */
+    private final Map<Entity, List> table;
+
+    /** the datums that cannot be hashed, in clause order */
+    private final Entity[] unhashedDatums;
+
+    /** the clause bodies for the datums that cannot be hashed */
+    private final List[] unhashedBodies;
+
+    /** the body of the else clause, or null */
+    private final List elseBody;
+
+    private CaseTable(List clauses)
+    {
+        Map<Entity, List> hashed = new HashMap<>();
+        java.util.List<Entity> datums = new ArrayList<>();
+        java.util.List<List> bodies = new ArrayList<>();
+        List otherwise = null;
+        for (Entity c = clauses; c instanceof Pair; c = ((Pair) c).getCdr()) {
+            Pair clause = (Pair) ((Pair) c).getCar();
+            List body = (List) clause.getCdr();
+            if (clause.getCar() == Symbol.ELSE) {
+                otherwise = body;
+                break;
+            }
+            for (Entity d = clause.getCar(); d instanceof Pair; d = ((Pair) d).getCdr()) {
+                Entity datum = ((Pair) d).getCar();
+                if (datum instanceof MutableString) {
+                    datums.add(datum);
+                    bodies.add(body);
+                }
+                else {
+                    // the first clause with the datum is selected
+                    hashed.putIfAbsent(datum, body);
+                }
+            }
+        }
+        // all fields are final: the table may be used by other threads
+        // as soon as it is cached in the code
+        table = hashed;
+        unhashedDatums = datums.toArray(new Entity[0]);
+        unhashedBodies = bodies.toArray(new List[0]);
+        elseBody = otherwise;
+    }
+
+    /**
+     * Gets the dispatch table for the given clauses of a case form.
+     *
+     * @param clauses the clauses, as in ((datum ...) expr ...) ...
+     * @return the dispatch table
+     */
+    static CaseTable forClauses(List clauses)
+    {
+        if (clauses instanceof Pair) {
+            Pair holder = (Pair) clauses;
+            if (holder.compiled instanceof CaseTable) {
+                return (CaseTable) holder.compiled;
+            }
+            CaseTable caseTable = new CaseTable(clauses);
+            holder.compiled = caseTable;
+            return caseTable;
+        }
+        return new CaseTable(clauses);
+    }
+
+    /**
+     * Selects a clause.
+     *
+     * @param key the value of the key expression
+     * @return the body of the selected clause, or null if no clause
+     * is selected
+     */
+    List select(Entity key)
+    {
+        List body = table.get(key);
+        if (body != null) {
+            return body;
+        }
+        if (key instanceof MutableString) {
+            for (int i = 0; i < unhashedDatums.length; ++i) {
+                if (unhashedDatums[i].equals(key)) {
+                    return unhashedBodies[i];
+                }
+            }
+        }
+        return elseBody;
+    }
+}
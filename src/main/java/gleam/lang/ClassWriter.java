@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A minimal writer of Java class files, as needed by the ClosureCompiler:
+ * a class with no fields and no interfaces, whose methods only use object
+ * references, with forward branches.
+ * Class files are written in the version 49 format, which does not need
+ * stack map frames.
+ */
+final class ClassWriter
+{
+    // opcodes
+    static final int ACONST_NULL = 0x01;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int ALOAD = 0x19;
+    static final int AALOAD = 0x32;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IF_ACMPEQ = 0xa5;
+    static final int IF_ACMPNE = 0xa6;
+    static final int GOTO = 0xa7;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int GETFIELD = 0xb4;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int ANEWARRAY = 0xbd;
+    static final int CHECKCAST = 0xc0;
+
+    // access flags
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+    static final int ACC_PROTECTED = 0x0004;
+
+    /** the constant pool */
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+    /** the indexes of the entries in the constant pool, by content */
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+
+    /** the number of entries in the constant pool, plus one */
+    private int poolCount = 1;
+
+    /** the methods, as written in the class file */
+    private final java.util.List<byte[]> methods = new ArrayList<>();
+
+    // constant pool
+
+    int utf8(String s)
+    {
+        return entry("U" + s, out -> {
+            out.writeByte(1);
+            out.writeUTF(s);
+        });
+    }
+
+    int classRef(String internalName)
+    {
+        int name = utf8(internalName);
+        return entry("C" + internalName, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    private int nameAndType(String name, String descriptor)
+    {
+        int n = utf8(name);
+        int d = utf8(descriptor);
+        return entry("N" + name + " " + descriptor, out -> {
+            out.writeByte(12);
+            out.writeShort(n);
+            out.writeShort(d);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor)
+    {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor)
+    {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor)
+    {
+        return memberRef(11, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor)
+    {
+        int c = classRef(owner);
+        int nt = nameAndType(name, descriptor);
+        return entry(tag + owner + "." + name + " " + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(c);
+            out.writeShort(nt);
+        });
+    }
+
+    private interface EntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int entry(String key, EntryWriter writer)
+    {
+        Integer index = poolIndex.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            writer.write(new DataOutputStream(pool));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        poolIndex.put(key, poolCount);
+        return poolCount++;
+    }
+
+    // methods
+
+    /**
+     * Adds a method to the class.
+     * @param access the access flags
+     * @param name the method name
+     * @param descriptor the method descriptor
+     * @param code the code of the method
+     * @param maxLocals the number of local variables, including parameters
+     */
+    void method(int access, String name, String descriptor, Code code, int maxLocals)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeIndex = utf8("Code");
+        try {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1); // attributes
+            out.writeShort(codeIndex);
+            out.writeInt(12 + code.length());
+            out.writeShort(code.maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length());
+            out.write(code.bytes, 0, code.length());
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    /**
+     * @return the class file
+     */
+    byte[] toByteArray(int access, String name, String superName)
+    {
+        int thisIndex = classRef(name);
+        int superIndex = classRef(superName);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0); // minor version
+            out.writeShort(49); // major version
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0); // attributes
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The code of a method, keeping track of the depth of the operand
+     * stack.
+     */
+    static final class Code
+    {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        /** the current depth of the operand stack */
+        int stack;
+
+        /** the maximum depth of the operand stack */
+        int maxStack;
+
+        int length()
+        {
+            return length;
+        }
+
+        /**
+         * Appends an instruction.
+         * @param opcode the opcode
+         * @param delta the change in depth of the operand stack
+         */
+        Code op(int opcode, int delta)
+        {
+            u1(opcode);
+            return adjust(delta);
+        }
+
+        /** Appends an instruction with a constant pool index operand. */
+        Code op(int opcode, int index, int delta)
+        {
+            u1(opcode);
+            u2(index);
+            return adjust(delta);
+        }
+
+        /** Appends an invokeinterface instruction. */
+        Code invokeInterface(int index, int argSlots, int delta)
+        {
+            u1(INVOKEINTERFACE);
+            u2(index);
+            u1(argSlots + 1);
+            u1(0);
+            return adjust(delta);
+        }
+
+        /** Appends an aload instruction. */
+        Code aload(int local)
+        {
+            if (local <= 3) {
+                u1(0x2a + local);
+            }
+            else {
+                u1(ALOAD);
+                u1(local);
+            }
+            return adjust(1);
+        }
+
+        /** Pushes an int constant. */
+        Code iconst(int value)
+        {
+            if (value >= -1 && value <= 5) {
+                u1(0x03 + value);
+            }
+            else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                u1(BIPUSH);
+                u1(value);
+            }
+            else {
+                u1(SIPUSH);
+                u2(value);
+            }
+            return adjust(1);
+        }
+
+        /**
+         * Appends a forward branch to a label.
+         * @param opcode the branch opcode
+         * @param label the target, to be placed later
+         * @param delta the change in depth of the operand stack
+         */
+        Code jump(int opcode, Label label, int delta)
+        {
+            int at = length;
+            u1(opcode);
+            label.fixups.add(at);
+            u2(0);
+            return adjust(delta);
+        }
+
+        /** Places a label here, resolving the branches to it. */
+        void place(Label label)
+        {
+            for (int at : label.fixups) {
+                int offset = length - at;
+                bytes[at + 1] = (byte) (offset >> 8);
+                bytes[at + 2] = (byte) offset;
+            }
+        }
+
+        private Code adjust(int delta)
+        {
+            stack += delta;
+            if (stack > maxStack) {
+                maxStack = stack;
+            }
+            return this;
+        }
+
+        private void u1(int b)
+        {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        private void u2(int s)
+        {
+            u1(s >> 8);
+            u1(s);
+        }
+    }
+
+    /** A branch target. */
+    static final class Label
+    {
+        private final java.util.List<Integer> fixups = new ArrayList<>();
+    }
+}
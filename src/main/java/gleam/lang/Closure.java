@@ -29,8 +29,8 @@ package gleam.lang;
 import gleam.util.Logger;
 
 import java.io.PrintWriter;
-
-import static gleam.util.Logger.Level.WARNING;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Scheme closure, a procedure with a definition environment.
@@ -43,39 +43,50 @@ public class Closure extends Procedure
      */
     private static final long serialVersionUID = 1L;
 
-    /* TODO: should implement scan-out of defines, as follows:
-     * when a closure is created, a scanOut method should
-     * retrieve a proper list of internally defined variables,
-     * i.e. for (lambda (x y)
+    /* Scan-out of defines: when a closure is created, the variables
+     * defined in its body are retrieved, i.e. for (lambda (x y)
      *            (define a 1)
      *            (define b (foo x y))
      *            (begin
      *              (define c 1)
      *              (define d 2))
      *            (b (+ a c d)))
-     * the scan out should give (a b c d).
-     * At application time, after creating the local environment,
-     * the scanned-out variables should be bound in the new
-     * environment with an Undefined value.
-     * This should suffice to preserve the "simultaneous definition"
-     * semantics of Scheme defines inside procedures.
-     *
-     * The scan-out could be either done internally by the existing
-     * constructor, or externally by the interpreter and passed on
-     * to a new constructor.
+     * the scan out gives (a b c d).
+     * At application time, the arguments are bound to the first slots of
+     * a new frame, as described by the frame layout, while the scanned-out
+     * variables get the following slots, with an Undefined value.
+     * This preserves the "simultaneous definition" semantics of Scheme
+     * defines inside procedures.
      */
     protected final Entity param;
     protected final List body;
     protected final Environment definitionEnv;
+    protected final FrameLayout layout;
+
+    /** the calls and the compiled body, shared with the other closures of a lambda form */
+    private transient Profile profile;
 
     /**
      * Constructor.
      */
     public Closure(Entity param, List body, Environment env)
+    {
+        this(param, body, env, FrameLayout.forProcedure(param, body));
+    }
+
+    Closure(Entity param, List body, Environment env, FrameLayout layout)
+    {
+        this(param, body, env, layout, new Profile());
+    }
+
+    Closure(Entity param, List body, Environment env, FrameLayout layout, Profile profile)
     {
         this.param = param;
         this.body = body;
         this.definitionEnv = env;
+        this.layout = layout;
+        this.profile = profile;
+        Frame.capture(env);
     }
 
     /**
@@ -85,80 +96,113 @@ public class Closure extends Procedure
     public Entity apply(List args, Environment env, Continuation cont)
         throws GleamException
     {
-        Environment localenv = new Environment(definitionEnv);
-        Entity currparam = param;
-        List prev = null;
-        boolean dotparam = false;
+        return apply(ArgumentList.toArray(args), env, cont);
+    }
 
-        /* bind actual arguments to formals (long)
-         */
-        try {
-            // for each passed arg
-            while (args != EmptyList.value) {
-                // get next already-evaluated arg
-                Entity obj = args.getCar();
-
-                if (!dotparam) {
-                    if (currparam == EmptyList.value) {
-                        throw new GleamException("apply: too many arguments", this);
-                    }
-                    else if (currparam instanceof Pair) {
-                        // normal case: get param symbol
-                        // and bind it to argument in
-                        // local env
-                        Entity p = ((Pair) currparam).getCar();
-                        if (p instanceof Symbol) {
-                            localenv.define((Symbol)p, obj);
-                        }
-                        else {
-                            Logger.enter(WARNING, "apply: param is not a symbol");
-                        }
-                        // next param, please
-                        currparam = ((Pair) currparam).getCdr();
-                    }
-                    else if (currparam instanceof Symbol) {
-                        // this is the unusual case
-                        // we have a "." notation parameter
-                        // so we accumulate this and next
-                        // parameters in a cons bound to
-                        // this param in local env
-                        prev = new Pair(obj, EmptyList.value);
-                        localenv.define((Symbol) currparam, prev);
-                        dotparam = true;
-                    }
-                    else {
-                        throw new GleamException("apply: invalid formal parameter", currparam);
-                    }
-                }
-                else {
-                    // accumulate argument
-                    prev.setCdr(new Pair(obj, EmptyList.value));
-                    prev = (List) prev.getCdr();
-                }
-                // next argument, please
-                args = (List) args.getCdr();
-            }
+    /**
+     * Applies this closure to an array of arguments.
+     * Only the arguments for a rest parameter are put in a list.
+     */
+    @Override
+    public Entity apply(Entity[] args, Environment env, Continuation cont)
+        throws GleamException
+    {
+        int required = layout.required;
+        if (args.length < required) {
+            throw new GleamException("apply: too few arguments", this);
         }
-        catch (ClassCastException e) {
-            throw new GleamException("apply: improper list", currparam);
+        if (args.length > required && !layout.rest) {
+            throw new GleamException("apply: too many arguments", this);
         }
+        return enter(args, env, cont);
+    }
 
-        if (currparam instanceof Symbol && !dotparam) {
-            // special case:
-            // a "." notation parameter taking the empty list
-            localenv.define((Symbol) currparam, EmptyList.value);
+    /**
+     * Applies this closure to an array of arguments, whose number has
+     * already been checked.
+     * The body of a closure called often enough is compiled, see
+     * ClosureCompiler, and runs as compiled code while the guards of the
+     * compiled code hold.
+     */
+    Entity enter(Entity[] args, Environment env, Continuation cont)
+    {
+        int required = layout.required;
+        Action head = cont.head();
+        if (head instanceof LoopAction && ((LoopAction) head).iterates(this)) {
+            // a call in tail position in the body of a loop: next iteration
+            return ((LoopAction) head).restart(args, cont);
         }
-        else if (currparam != EmptyList.value && !dotparam) {
-            throw new GleamException("apply: too few arguments", this);
+
+        Frame localenv = new Frame(definitionEnv, layout, env);
+        java.lang.System.arraycopy(args, 0, localenv.slots, 0, required);
+        if (layout.rest) {
+            localenv.slots[required] = ArgumentList.toList(args, required);
+        }
+
+        Profile p = profile();
+        CompiledBody code = p.compiled;
+        if (code == null && ClosureCompiler.THRESHOLD >= 0 && p.calls.getAndIncrement() == ClosureCompiler.THRESHOLD) {
+            code = p.compiled = ClosureCompiler.compile(this);
+        }
+        if (code != null && !cont.trace) {
+            if (code.guardsHold()) {
+                cont.begin(new CompiledBodyAction(code, localenv));
+                return null;
+            }
+            // a global the code relies on has changed: compile again later,
+            // unless another thread has already replaced the stale code
+            if (Profile.COMPILED.compareAndSet(p, code, null)) {
+                p.calls.set(0);
+            }
         }
 
-        /* we have bound params, let's eval body
-         * by adding to the continuation
-         */
         cont.addCommandSequenceActions(body, localenv);
         return null;
     }
 
+    /**
+     * Compiles the body of this closure, without waiting for it to be
+     * called often enough.
+     *
+     * @return true if the body has been compiled
+     */
+    boolean compile()
+    {
+        Profile p = profile();
+        p.compiled = ClosureCompiler.compile(this);
+        return p.compiled != null;
+    }
+
+    Profile profile()
+    {
+        Profile p = profile;
+        if (p == null) {
+            // a deserialized closure
+            p = profile = new Profile();
+        }
+        return p;
+    }
+
+    /**
+     * What the closures of a lambda form share about their body: how many
+     * times it has been called, and its compiled code, if any.
+     */
+    static final class Profile
+    {
+        static final AtomicReferenceFieldUpdater<Profile, CompiledBody> COMPILED =
+                AtomicReferenceFieldUpdater.newUpdater(Profile.class, CompiledBody.class, "compiled");
+
+        /**
+         * the number of calls so far, until the body is compiled; atomic,
+         * so that exactly one of the threads calling the closures sees the
+         * threshold and compiles the body
+         */
+        final AtomicInteger calls = new AtomicInteger();
+
+        /** the compiled body, or null */
+        volatile CompiledBody compiled;
+    }
+
     /**
      * Writes a Closure
      */
@@ -180,15 +224,6 @@ public class Closure extends Procedure
     public int getMaxArity()
             throws GleamException
     {
-        int count = 0;
-        Entity currParam = param;
-        while (currParam instanceof Pair) {
-            count++;
-            currParam = ((List) currParam).getCdr();
-        }
-        if (currParam instanceof Symbol) {
-            return -1;
-        }
-        return count;
+        return layout.rest ? -1 : layout.required;
     }
 }
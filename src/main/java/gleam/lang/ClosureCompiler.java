@@ -0,0 +1,533 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import gleam.library.Primitive;
+import gleam.util.Logger;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static gleam.util.Logger.Level.FINE;
+
+/**
+ * Compiles the bodies of hot closures to Java bytecode.
+ * A closure is compiled when it has been called THRESHOLD times, as set
+ * by the gleam.compiler.threshold system property: 0 compiles a closure
+ * at its first call, a negative value disables the compiler. The calls
+ * and the compiled code are shared by the closures of a same lambda form,
+ * e.g. a procedure defined inside another one is compiled once, not each
+ * time the enclosing procedure is called.
+ * <p>
+ * The compiled subset is made of: constants, quoted data, variable
+ * references, the if, and, or special forms, and calls to the primitives
+ * of the libraries that neither capture nor change the continuation,
+ * e.g. + or car. Local variables of the closure are read directly from
+ * the slots of its frame; other variables are evaluated as usual.
+ * The expressions before the last one in the body must be in the subset,
+ * otherwise the closure is not compiled. In tail position, an expression
+ * outside of the subset (e.g. a call to a closure, or to call/cc) is
+ * evaluated as the interpreter would, so that tail calls and captures of
+ * the continuation go back through the trampoline: the compiled code never
+ * holds a continuation, and a captured continuation only ever resumes
+ * interpreted code.
+ * <p>
+ * The keywords of and and or forms, which the optimizer leaves as they
+ * are, and the primitives are resolved at compile time, each with a guard
+ * checked before the compiled code is run.
+ */
+final class ClosureCompiler
+{
+    /** the number of calls after which a closure is compiled */
+    static final int THRESHOLD = Integer.getInteger("gleam.compiler.threshold", 1000);
+
+    /** the maximum size of the code of a compiled body */
+    private static final int MAX_CODE_LENGTH = Short.MAX_VALUE;
+
+    private static final String ENTITY = "gleam/lang/Entity";
+    private static final String PRIMITIVE = "gleam/library/Primitive";
+    private static final String BOOLEAN = "gleam/lang/Boolean";
+    private static final String COMPILED_BODY = "gleam/lang/CompiledBody";
+    private static final String EVAL_DESCRIPTOR =
+            "(Lgleam/lang/Environment;Lgleam/lang/Continuation;)Lgleam/lang/Entity;";
+    private static final String INIT_DESCRIPTOR =
+            "([Ljava/lang/Object;[Lgleam/lang/GlobalRef;[Lgleam/lang/Entity;)V";
+    private static final String RUN_DESCRIPTOR =
+            "([Lgleam/lang/Entity;Lgleam/lang/Environment;Lgleam/lang/Continuation;)Lgleam/lang/Entity;";
+
+    /** to name compiled bodies */
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    /** the closure being compiled */
+    private final Closure closure;
+
+    /** a frame of the closure, to resolve variables as in its body */
+    private final Frame scope;
+
+    private final java.util.List<Object> constants = new ArrayList<>();
+    private final java.util.List<GlobalRef> guards = new ArrayList<>();
+    private final java.util.List<Entity> expected = new ArrayList<>();
+    private final ClassWriter classWriter = new ClassWriter();
+    private final ClassWriter.Code code = new ClassWriter.Code();
+
+    /** the number of expressions compiled to bytecode, not evaluated */
+    private int compiled;
+
+    private ClosureCompiler(Closure closure)
+    {
+        this.closure = closure;
+        this.scope = new Frame(closure.definitionEnv, closure.layout);
+    }
+
+    /**
+     * Compiles the body of a closure.
+     *
+     * @param closure the closure
+     * @return the compiled body, or null if the body cannot be compiled
+     */
+    static CompiledBody compile(Closure closure)
+    {
+        if (closure instanceof SyntaxRewriter) {
+            return null;
+        }
+        try {
+            return new ClosureCompiler(closure).compile();
+        }
+        catch (GleamException | ReflectiveOperationException | RuntimeException | LinkageError e) {
+            Logger.enter(FINE, "cannot compile closure: " + e);
+            return null;
+        }
+    }
+
+    private CompiledBody compile()
+        throws GleamException, ReflectiveOperationException
+    {
+        java.util.List<Entity> body = new ArrayList<>();
+        for (Entity expr : closure.body) {
+            body.add(expr);
+        }
+        if (body.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < body.size() - 1; ++i) {
+            if (!isCompilable(body.get(i))) {
+                return null;
+            }
+        }
+        for (int i = 0; i < body.size() - 1; ++i) {
+            compileExpression(body.get(i));
+            code.op(ClassWriter.POP, -1);
+        }
+        compileTail(body.get(body.size() - 1));
+        if (compiled == 0 || code.length() > MAX_CODE_LENGTH) {
+            return null;
+        }
+        return load();
+    }
+
+    /**
+     * Writes and loads the class of the compiled body, and instantiates it.
+     */
+    private CompiledBody load()
+        throws ReflectiveOperationException
+    {
+        String name = "gleam/lang/compiled/Body" + counter.incrementAndGet();
+
+        ClassWriter.Code init = new ClassWriter.Code();
+        init.aload(0).aload(1).aload(2).aload(3)
+            .op(ClassWriter.INVOKESPECIAL,
+                classWriter.methodRef(COMPILED_BODY, "<init>", INIT_DESCRIPTOR), -4)
+            .op(ClassWriter.RETURN, 0);
+        classWriter.method(ClassWriter.ACC_PUBLIC, "<init>", INIT_DESCRIPTOR, init, 4);
+        classWriter.method(ClassWriter.ACC_PROTECTED, "run", RUN_DESCRIPTOR, code, 4);
+        byte[] bytes = classWriter.toByteArray(
+                ClassWriter.ACC_PUBLIC | ClassWriter.ACC_FINAL | ClassWriter.ACC_SUPER,
+                name, COMPILED_BODY);
+
+        Class<?> c = new Loader().define(name.replace('/', '.'), bytes);
+        return (CompiledBody) c
+                .getConstructor(Object[].class, GlobalRef[].class, Entity[].class)
+                .newInstance(constants.toArray(),
+                             guards.toArray(new GlobalRef[0]),
+                             expected.toArray(new Entity[0]));
+    }
+
+    /**
+     * @return true if an expression is in the compiled subset
+     */
+    private boolean isCompilable(Entity expr)
+        throws GleamException
+    {
+        if (expr instanceof CallSite) {
+            CallSite call = (CallSite) expr;
+            if (directPrimitive(call) == null) {
+                return false;
+            }
+            for (Entity operand : call.operands()) {
+                if (!isCompilable(operand)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (expr instanceof If) {
+            If form = (If) expr;
+            return isCompilable(form.test)
+                    && isCompilable(form.consequent)
+                    && (form.alternate == null || isCompilable(form.alternate));
+        }
+        if (expr instanceof Pair) {
+            Pair form = (Pair) expr;
+            if (isForm(form, Symbol.AND) || isForm(form, Symbol.OR)) {
+                return areCompilable(form.getCdr());
+            }
+            return false;
+        }
+        return System.isSimpleExpression(expr);
+    }
+
+    private boolean areCompilable(Entity exprs)
+        throws GleamException
+    {
+        for (Entity expr : (List) exprs) {
+            if (!isCompilable(expr)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compiles an expression of the subset, leaving its value on the stack.
+     */
+    private void compileExpression(Entity expr)
+        throws GleamException
+    {
+        ++compiled;
+        if (expr instanceof CallSite) {
+            compileCall((CallSite) expr);
+        }
+        else if (expr instanceof If) {
+            compileIf((If) expr, false);
+        }
+        else if (expr instanceof Pair) {
+            compileAndOr((Pair) expr, false);
+        }
+        else if (expr instanceof Const) {
+            loadConstant(((Const) expr).value, ENTITY);
+        }
+        else if (expr instanceof LocalRef && ((LocalRef) expr).depth == 0) {
+            code.aload(1).iconst(((LocalRef) expr).index).op(ClassWriter.AALOAD, -1);
+        }
+        else if (expr instanceof Number || expr instanceof Boolean || expr instanceof Character) {
+            loadConstant(expr, ENTITY);
+        }
+        else {
+            compileEval(expr);
+        }
+    }
+
+    /**
+     * Compiles an expression in tail position, returning its value.
+     */
+    private void compileTail(Entity expr)
+        throws GleamException
+    {
+        if (expr instanceof If) {
+            if (isCompilable(((If) expr).test)) {
+                compileIf((If) expr, true);
+                return;
+            }
+        }
+        else if (expr instanceof Pair
+                && (isForm((Pair) expr, Symbol.AND) || isForm((Pair) expr, Symbol.OR))
+                && ((Pair) expr).getCdr() != EmptyList.value) {
+            java.util.List<Entity> exprs = new ArrayList<>();
+            for (Entity e : (List) ((Pair) expr).getCdr()) {
+                exprs.add(e);
+            }
+            boolean prefix = true;
+            for (int i = 0; i < exprs.size() - 1; ++i) {
+                prefix &= isCompilable(exprs.get(i));
+            }
+            if (prefix) {
+                compileAndOr((Pair) expr, true);
+                return;
+            }
+        }
+        if (isCompilable(expr)) {
+            compileExpression(expr);
+        }
+        else {
+            // as in the interpreter: may return null, e.g. for a tail call
+            compileEval(expr);
+        }
+        code.op(ClassWriter.ARETURN, -1);
+    }
+
+    private void compileIf(If form, boolean tail)
+        throws GleamException
+    {
+        Entity test = form.test;
+        Entity consequent = form.consequent;
+        Entity alternate = form.alternate == null ? Void.value() : form.alternate;
+
+        int base = code.stack;
+        ClassWriter.Label otherwise = new ClassWriter.Label();
+        compileExpression(test);
+        loadFalse();
+        code.jump(ClassWriter.IF_ACMPEQ, otherwise, -2);
+        if (tail) {
+            compileTail(consequent);
+            code.place(otherwise);
+            code.stack = base;
+            compileTail(alternate);
+        }
+        else {
+            ClassWriter.Label end = new ClassWriter.Label();
+            compileExpression(consequent);
+            code.jump(ClassWriter.GOTO, end, 0);
+            code.place(otherwise);
+            code.stack = base;
+            compileExpression(alternate);
+            code.place(end);
+        }
+    }
+
+    /**
+     * Compiles an and or an or form: each expression but the last one is
+     * followed by a test on its value, which may end the evaluation.
+     */
+    private void compileAndOr(Pair form, boolean tail)
+        throws GleamException
+    {
+        boolean and = isForm(form, Symbol.AND);
+        guard(and ? Symbol.AND : Symbol.OR);
+        java.util.List<Entity> exprs = new ArrayList<>();
+        for (Entity e : (List) form.getCdr()) {
+            exprs.add(e);
+        }
+        if (exprs.isEmpty()) {
+            code.op(ClassWriter.GETSTATIC,
+                    classWriter.fieldRef(BOOLEAN, and ? "trueValue" : "falseValue",
+                                         "Lgleam/lang/Boolean;"), 1);
+            return;
+        }
+        // and ends at a false value, or at a true one
+        int exit = and ? ClassWriter.IF_ACMPEQ : ClassWriter.IF_ACMPNE;
+        int base = code.stack;
+        ClassWriter.Label end = new ClassWriter.Label();
+        for (int i = 0; i < exprs.size() - 1; ++i) {
+            compileExpression(exprs.get(i));
+            code.op(ClassWriter.DUP, 1);
+            loadFalse();
+            if (tail) {
+                ClassWriter.Label next = new ClassWriter.Label();
+                code.jump(exit == ClassWriter.IF_ACMPEQ ? ClassWriter.IF_ACMPNE
+                                                        : ClassWriter.IF_ACMPEQ, next, -2);
+                code.op(ClassWriter.ARETURN, -1);
+                code.place(next);
+                code.stack = base + 1;
+            }
+            else {
+                code.jump(exit, end, -2);
+            }
+            code.op(ClassWriter.POP, -1);
+        }
+        if (tail) {
+            compileTail(exprs.get(exprs.size() - 1));
+        }
+        else {
+            compileExpression(exprs.get(exprs.size() - 1));
+            code.place(end);
+        }
+    }
+
+    /**
+     * Compiles a call to a primitive, through the same entry point as
+     * the one an inline cache would choose.
+     */
+    private void compileCall(CallSite call)
+        throws GleamException
+    {
+        Primitive primitive = directPrimitive(call);
+        guard((GlobalRef) call.operator());
+        Entity[] operands = call.operands();
+        int count = operands.length;
+        loadConstant(primitive, PRIMITIVE);
+        int arity;
+        if (count <= 3 && primitive.hasFixedArity(count)) {
+            arity = count;
+        }
+        else if (primitive.maxArgs >= 0 && primitive.maxArgs <= 3) {
+            arity = primitive.maxArgs;
+        }
+        else {
+            code.iconst(count).op(ClassWriter.ANEWARRAY, classWriter.classRef(ENTITY), 0);
+            for (int i = 0; i < count; ++i) {
+                code.op(ClassWriter.DUP, 1).iconst(i);
+                compileExpression(operands[i]);
+                code.op(ClassWriter.AASTORE, -3);
+            }
+            code.aload(2).aload(3).op(ClassWriter.INVOKEVIRTUAL,
+                    classWriter.methodRef(PRIMITIVE, "applyN",
+                            "([Lgleam/lang/Entity;Lgleam/lang/Environment;Lgleam/lang/Continuation;)Lgleam/lang/Entity;"),
+                    -3);
+            return;
+        }
+        StringBuilder descriptor = new StringBuilder("(");
+        for (int i = 0; i < arity; ++i) {
+            if (i < count) {
+                compileExpression(operands[i]);
+            }
+            else {
+                code.op(ClassWriter.ACONST_NULL, 1);
+            }
+            descriptor.append("Lgleam/lang/Entity;");
+        }
+        descriptor.append(EVAL_DESCRIPTOR.substring(1));
+        code.aload(2).aload(3).op(ClassWriter.INVOKEVIRTUAL,
+                classWriter.methodRef(PRIMITIVE, "apply" + arity, descriptor.toString()),
+                -(arity + 2));
+    }
+
+    /** Compiles the evaluation of an expression, as by the interpreter. */
+    private void compileEval(Entity expr)
+    {
+        loadConstant(expr, ENTITY);
+        code.aload(2).aload(3).invokeInterface(
+                classWriter.interfaceMethodRef(ENTITY, "eval", EVAL_DESCRIPTOR), 2, -2);
+    }
+
+    private void loadConstant(Object value, String type)
+    {
+        int index = -1;
+        for (int i = 0; i < constants.size(); ++i) {
+            if (constants.get(i) == value) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            index = constants.size();
+            constants.add(value);
+        }
+        code.aload(0)
+            .op(ClassWriter.GETFIELD,
+                classWriter.fieldRef(COMPILED_BODY, "constants", "[Ljava/lang/Object;"), 0)
+            .iconst(index)
+            .op(ClassWriter.AALOAD, -1)
+            .op(ClassWriter.CHECKCAST, classWriter.classRef(type), 0);
+    }
+
+    private void loadFalse()
+    {
+        code.op(ClassWriter.GETSTATIC,
+                classWriter.fieldRef(BOOLEAN, "falseValue", "Lgleam/lang/Boolean;"), 1);
+    }
+
+    /**
+     * @return true if a form is a special form, whose keyword has its
+     * usual meaning in the body of the closure
+     */
+    private boolean isForm(Pair form, Symbol keyword)
+        throws GleamException
+    {
+        return form.getCar() == keyword && keyword(keyword) != null;
+    }
+
+    /**
+     * @return the reference to a keyword, if bound to the special form of
+     * the same name in the body of the closure, otherwise null
+     */
+    private GlobalRef keyword(Symbol keyword)
+        throws GleamException
+    {
+        Entity ref = keyword.optimize(scope);
+        if (!(ref instanceof GlobalRef)) {
+            return null;
+        }
+        Entity value = ((GlobalRef) ref).location().get();
+        if (value instanceof SyntaxProcedure
+                && ((SyntaxProcedure) value).value.getName().equals(keyword.value)) {
+            return (GlobalRef) ref;
+        }
+        return null;
+    }
+
+    /**
+     * @return the primitive called by a call site, if it is one that
+     * compiled code may call directly with the number of operands of the
+     * call site, otherwise null
+     */
+    private static Primitive directPrimitive(CallSite call)
+    {
+        if (!(call.operator() instanceof GlobalRef)) {
+            return null;
+        }
+        Entity value = ((GlobalRef) call.operator()).location().get();
+        if (!(value instanceof PrimitiveProcedure) || value instanceof SyntaxProcedure) {
+            return null;
+        }
+        Primitive primitive = ((PrimitiveProcedure) value).value;
+        int count = call.operandCount();
+        if (!PrimitiveProcedure.isDirect(primitive)
+                || count < primitive.minArgs
+                || (primitive.maxArgs >= 0 && count > primitive.maxArgs)) {
+            return null;
+        }
+        return primitive;
+    }
+
+    private void guard(Symbol keyword)
+        throws GleamException
+    {
+        guard(keyword(keyword));
+    }
+
+    private void guard(GlobalRef ref)
+    {
+        if (!guards.contains(ref)) {
+            guards.add(ref);
+            expected.add(ref.location().get());
+        }
+    }
+
+    /** The class loader of a single compiled body */
+    private static final class Loader extends ClassLoader
+    {
+        Loader()
+        {
+            super(CompiledBody.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes)
+        {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
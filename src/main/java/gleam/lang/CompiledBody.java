@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * The body of a closure, compiled to Java bytecode by the ClosureCompiler.
+ * The compiled code is only valid as long as the global variables it has
+ * taken for granted (e.g. the if keyword, or the + primitive) keep the
+ * values they had at compile time: the closure checks these guards before
+ * running the compiled code, and goes back to the interpreter if any of
+ * them fails.
+ * Compiled bodies are instances of generated subclasses, each loaded by a
+ * class loader of its own, so that it can be collected with the closure.
+ */
+public abstract class CompiledBody
+{
+    /** the constants used by the compiled code, e.g. primitives, quoted data */
+    protected final Object[] constants;
+
+    /** the global variables whose values the compiled code relies on */
+    private final GlobalRef[] guards;
+
+    /** the values of the guards at compile time */
+    private final Entity[] expected;
+
+    /**
+     * Constructor, called by generated subclasses.
+     */
+    protected CompiledBody(Object[] constants, GlobalRef[] guards, Entity[] expected)
+    {
+        this.constants = constants;
+        this.guards = guards;
+        this.expected = expected;
+    }
+
+    /**
+     * @return true if all the global variables the compiled code relies on
+     * still have their values at compile time
+     */
+    final boolean guardsHold()
+    {
+        for (int i = 0; i < guards.length; ++i) {
+            if (guards[i].location().get() != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the compiled body.
+     *
+     * @param slots the slots of the frame of the closure
+     * @param env the frame of the closure
+     * @param cont the current continuation
+     * @return the value of the body, or null if the continuation has
+     * changed, as in the case of a call in tail position
+     * @throws GleamException in case of errors
+     */
+    protected abstract Entity run(Entity[] slots, Environment env, Continuation cont)
+        throws GleamException;
+}
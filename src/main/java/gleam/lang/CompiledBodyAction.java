@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * An Action that runs the compiled body of a closure, in a new frame.
+ * A call in tail position in the body returns null to the trampoline, as
+ * in the interpreter, so that tail calls do not grow the Java stack.
+ */
+public class CompiledBodyAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the compiled body */
+    private final transient CompiledBody code;
+
+    /** the frame of the closure */
+    private final Frame frame;
+
+    /** Creates a new instance of this action */
+    CompiledBodyAction(CompiledBody code, Frame frame) {
+        super(frame);
+        this.code = code;
+        this.frame = frame;
+    }
+
+    /** Invokes this action, running the compiled body
+     * @param arg is ignored
+     * @param cont the current Continuation
+     * @return the value of the body, or null if the continuation has changed
+     * @throws gleam.lang.GleamException in case of errors
+    */
+    @Override
+    Entity invoke(Entity arg, Continuation cont)
+        throws GleamException
+    {
+        cont.pop();
+        return code.run(frame.slots, frame, cont);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * Cond clause: receives the value of the test of a clause, and either
+ * selects the clause or goes on with the remaining clauses.
+ */
+public class CondClauseAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the clause whose test has been evaluated */
+    private final Pair clause;
+
+    /** the clauses after this one */
+    private final List clauses;
+
+    /** Creates a new CondClauseAction */
+    public CondClauseAction(Pair clause, List clauses, Environment env) {
+        super(env);
+        this.clause = clause;
+        this.clauses = clauses;
+    }
+
+    @Override
+    Entity invoke(Entity arg, Continuation cont) throws GleamException {
+        cont.pop();
+        if (arg != Boolean.falseValue)
+            return select(arg, clause, env, cont);
+        else
+            return evaluate(clauses, env, cont);
+    }
+
+    /**
+     * Evaluates the clauses of a cond form, testing each clause in turn
+     * until a test is not false, then evaluates the selected clause.
+     * @param clauses the clauses
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the cond form, or null if the continuation has
+     * been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluate(List clauses, Environment env, Continuation cont)
+            throws GleamException
+    {
+        while (clauses != EmptyList.value) {
+            Pair clause = (Pair) clauses.getCar();
+            List rest = (List) clauses.getCdr();
+            Entity test = clause.getCar();
+            if (test == Symbol.ELSE) {
+                return sequence((List) clause.getCdr(), env, cont);
+            }
+            Entity value = System.isSimpleExpression(test)
+                    ? test.eval(env, cont)
+                    : CallSite.evalInPlace(test, env, cont);
+            if (value == null) {
+                cont.begin(new CondClauseAction(clause, rest, env));
+                return test.eval(env, cont);
+            }
+            if (value != Boolean.falseValue) {
+                return select(value, clause, env, cont);
+            }
+            clauses = rest;
+        }
+        // no clause selected: the value is unspecified, the empty list
+        // as it has always been in this implementation
+        return EmptyList.value;
+    }
+
+    /**
+     * Evaluates a selected clause: (test), (test expr ...), or
+     * (test =&gt; receiver)
+     */
+    private static Entity select(Entity value, Pair clause, Environment env, Continuation cont)
+            throws GleamException
+    {
+        List exprs = (List) clause.getCdr();
+        if (exprs == EmptyList.value) {
+            return value;
+        }
+        if (exprs.getCar() == Symbol.ARROW) {
+            // call the receiver with the value of the test
+            Entity receiver = ((List) exprs.getCdr()).getCar();
+            cont.begin(new ProcedureCallAction(new ArgumentList(new Entity[] {value}), env));
+            return receiver.eval(env, cont);
+        }
+        return sequence(exprs, env, cont);
+    }
+
+    /**
+     * Evaluates a sequence of expressions, the last one in tail position.
+     */
+    private static Entity sequence(List exprs, Environment env, Continuation cont)
+            throws GleamException
+    {
+        if (exprs.getCdr() == EmptyList.value) {
+            return exprs.getCar().eval(env, cont);
+        }
+        cont.addCommandSequenceActions(exprs, env);
+        return null;
+    }
+}
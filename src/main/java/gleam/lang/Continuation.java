@@ -35,14 +35,24 @@ package gleam.lang;
 import gleam.util.Logger;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import static gleam.util.Logger.Level.FINE;
 
 /**
  * Scheme continuation, representing the "next things to do" for a procedure,
  * or the future execution path in a Gleam program.
- * This object is a wrapper for a chain of actions (partial continuations or
+ * This object is a wrapper for a stack of actions (partial continuations or
  * execution steps), and can be called as a procedure of one argument.
+ * The top of the stack is a growable array of actions, owned by this
+ * continuation; below it, there is a chain of segments, i.e. arrays of
+ * actions that are never changed, and may be shared with continuations
+ * captured by call/cc. Capturing a continuation seals the array at the
+ * top into a segment, without copying it; when the actions of the array
+ * are all done, actions are copied back from the segment below, a few
+ * at a time, so that a continuation is not copied as a whole, however
+ * many times it is called.
  */
 public class Continuation extends Procedure
 {
@@ -51,86 +61,116 @@ public class Continuation extends Procedure
      */
     private static final long serialVersionUID = 1L;
 
+    /** the initial size of the array of actions */
+    private static final int INITIAL_SIZE = 32;
+
+    /** the most actions copied at a time from a segment */
+    private static final int COPY_SIZE = 32;
+
+    /** the actions at the top of the stack, last in first out */
+    private Action[] actions = new Action[INITIAL_SIZE];
+
+    /** the number of actions in the array */
+    private int top;
+
+    /** the actions below the array, or null */
+    private Segment segment;
+
+    /** the arguments of a thunk */
+    private static final Entity[] NO_ARGS = {};
+
     /**
-     * Dummy action used as anchor to add actions
+     * the number of times this continuation has been captured, so that
+     * actions that change their own state can tell whether they are
+     * shared with a captured continuation
      */
-    private static final Action DUMMY_ACTION = new Action(null, null) {
-        @Override
-        Entity invoke(Entity arg, Continuation cont) throws GleamException {
-            throw new GleamException("internal error: dummy action invoked");
-        }
-    };
+    int captures;
+
+    /** the dynamic-wind entries in effect, innermost first, or null */
+    Winder winders;
+
+    /** the exception handlers in effect, innermost first, or null */
+    Handler handlers;
 
-    public Action head;
+    /**
+     * true if the actions are traced, as set on the continuation of an
+     * interpreter (see {@link Interpreter#traceOn()})
+     */
+    boolean trace;
+
+    /** the interpreter running this continuation, or null */
+    final transient Interpreter interpreter;
 
     /** Constructor */
     Continuation() {
-        this.head = null;
+        this((Interpreter) null);
     }
 
-    /** Copy constructor */
+    /**
+     * Creates the continuation of an interpreter.
+     * @param interpreter the interpreter running this continuation
+     */
+    Continuation(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /** Copy constructor: captures the other continuation */
     public Continuation(Continuation other)
     {
-        this.head = other.head;
+        this.interpreter = other.interpreter;
+        this.segment = other.seal();
+        this.winders = other.winders;
+        this.handlers = other.handlers;
+        ++other.captures;
     }
 
     /**
      * Clears this continuation (unwinds stack)
      */
     public void clear() {
-        this.head = null;
+        Arrays.fill(actions, 0, top, null);
+        this.top = 0;
+        this.segment = null;
+        this.winders = null;
+        this.handlers = null;
     }
 
     /**
-     * Change this continuation to begin with a given action.
-     * Prepend a single action to this continuation's chain.
-     * The action's next is changed to be the current head, therefore
-     * <i>do not</i> pass an action that is already chained to other actions:
-     * its <CODE>next</CODE> field will be overwritten.<BR>
-     * You can safely add other actions <i>after</i> calling this method by using
-     * {@link Action#andThen(Action)} on the action.<BR>
-     * If you need to add a variable number of actions at the head of
-     * this continuation, see {@link #beginSequence()}
-     *
-     * @param action the Action to prepend
-     * @return the prepended action
+     * @return the next action to execute, or null if there is none
      */
-    public Action begin(Action action) {
-        action.next = this.head;
-        this.head = action;
-        return action;
+    public Action head() {
+        if (top == 0 && !refill()) {
+            return null;
+        }
+        return actions[top - 1];
     }
 
     /**
-     * Prepares for inserting a sequence of actions at the start of this continuation.
-     * Append new actions to this method's return value with {@link Action#andThen(Action)}
-     * Terminate the sequence by calling {@link #endSequence()}.
-     * E.g.,
-     * <BR><BR>
-     * <CODE>
-     *      Action action = cont.beginSequence();<BR>
-     *      action = action.andThen(...).andThen(...);<BR>
-     *          ...<BR>
-     *      action = action.andThen(...);<BR>
-     *          ...<BR>
-     *      cont.endSequence();<BR>
-     * </CODE>
-     *
-     * @return a "dummy" Action to append to
-     * @see Action#andThen(Action)
-     * @see #endSequence()
+     * Removes the next action to execute, usually the action being
+     * invoked, which then adds what is left to do with {@link #begin(Action)}.
      */
-    public Action beginSequence() {
-        return begin(DUMMY_ACTION);
+    public void pop() {
+        if (top == 0 && !refill()) {
+            return;
+        }
+        actions[--top] = null;
     }
 
     /**
-     * Finalizes an insertion sequence started with {@link #beginSequence()}.
-     * Removes the "dummy" action at the head of this continuation.
+     * Change this continuation to begin with a given action.
+     * Pushes a single action on this continuation's stack, so that it is
+     * executed next; to execute several actions in order, begin with the
+     * last one.
+     *
+     * @param action the Action to prepend
+     * @return the prepended action
      */
-    public void endSequence() {
-        if (this.head == DUMMY_ACTION)
-            this.head = this.head.next;
+    public Action begin(Action action) {
+        if (top == actions.length) {
+            actions = Arrays.copyOf(actions, top * 2);
+        }
+        actions[top++] = action;
+        return action;
     }
 
     /**
@@ -141,11 +181,110 @@ public class Continuation extends Procedure
      */
     public void addCommandSequenceActions(Iterable<Entity> body, Environment env)
     {
-        Action currAction = beginSequence();
+        int size = 0;
+        for (Entity ignored : body) {
+            ++size;
+        }
+        if (top + size > actions.length) {
+            actions = Arrays.copyOf(actions, Math.max(top * 2, top + size));
+        }
+        // the first expression goes on top
+        int i = top + size;
         for (Entity expr : body) {
-            currAction = currAction.andThen(new ExpressionAction(expr, env));
+            actions[--i] = new ExpressionAction(expr, env);
+        }
+        top += size;
+    }
+
+    /**
+     * @return the number of actions in this continuation
+     */
+    int depth() {
+        return (segment == null ? 0 : segment.end()) + top;
+    }
+
+    /**
+     * Gets an action of this continuation, by position.
+     * @param index the position of the action, from the bottom of the stack
+     * @return the action
+     */
+    Action actionAt(int index) {
+        int bottom = segment == null ? 0 : segment.end();
+        if (index >= bottom) {
+            return actions[index - bottom];
+        }
+        Segment s = segment;
+        while (index < s.base) {
+            s = s.parent;
+        }
+        return s.actions[index - s.base];
+    }
+
+    /**
+     * Removes actions from the top of this continuation.
+     * @param depth the number of actions to keep
+     */
+    void truncate(int depth) {
+        int bottom = segment == null ? 0 : segment.end();
+        if (depth >= bottom) {
+            Arrays.fill(actions, depth - bottom, top, null);
+            top = depth - bottom;
+            return;
+        }
+        Arrays.fill(actions, 0, top, null);
+        top = 0;
+        Segment s = segment;
+        while (s != null && s.base >= depth) {
+            s = s.parent;
+        }
+        segment = s == null || s.end() == depth ? s : new Segment(s.actions, depth - s.base, s.parent);
+    }
+
+    /**
+     * Replaces the actions of this continuation with those of another one,
+     * which are shared, not copied.
+     * @param other the continuation to go on with
+     */
+    void resume(Continuation other) {
+        Segment s = other.seal();
+        Arrays.fill(actions, 0, top, null);
+        top = 0;
+        segment = s;
+    }
+
+    /**
+     * Seals the actions of this continuation, so that they can be shared
+     * with a captured continuation: the array becomes a segment, and this
+     * continuation goes on with a new array.
+     * @return the segment holding all the actions of this continuation
+     */
+    private Segment seal() {
+        if (top > 0) {
+            segment = new Segment(actions, top, segment);
+            actions = new Action[INITIAL_SIZE];
+            top = 0;
+        }
+        return segment;
+    }
+
+    /**
+     * Copies the top actions of the segment below into the array, when
+     * the array is empty.
+     * @return false if there are no actions left
+     */
+    private boolean refill() {
+        Segment s = segment;
+        if (s == null) {
+            return false;
+        }
+        int n = Math.min(s.size, COPY_SIZE);
+        if (n > actions.length) {
+            actions = new Action[n];
         }
-        endSequence();
+        java.lang.System.arraycopy(s.actions, s.size - n, actions, 0, n);
+        top = n;
+        segment = n == s.size ? s.parent : new Segment(s.actions, s.size - n, s.parent);
+        return true;
     }
 
     /**
@@ -153,7 +292,8 @@ public class Continuation extends Procedure
      * Replaces the continuation in the current interpreter with this one.
      * Gets one argument, and returns it to the current interpreter as the
      * argument that this continuation will receive when executed, i. e.
-     * immediately after the action of returning.
+     * immediately after the action of returning; other numbers of
+     * arguments are returned as multiple values.
      *
      * @param args List
      * @param env Environment
@@ -164,24 +304,131 @@ public class Continuation extends Procedure
     public Entity apply(List args, Environment env, Continuation cont)
         throws GleamException
     {
-        if (args != EmptyList.value) {
-            if (args.getCdr() == EmptyList.value) {
-                // replace continuation
-                cont.replaceContinuation(this);
-                // return argument (it's already evaluated)
-                return args.getCar();
-            }
-            else {
-                throw new GleamException("continuation: too many arguments", args);
-            }
+        return apply(ArgumentList.toArray(args), env, cont);
+    }
+
+    @Override
+    public Entity apply(Entity[] args, Environment env, Continuation cont)
+        throws GleamException
+    {
+        // replace continuation, return argument (it's already evaluated)
+        cont.resume(this);
+        return cont.transfer(winders, handlers, MultipleValues.of(args), env);
+    }
+
+    /**
+     * Transfers control to a given point, whose actions have just been
+     * set, with the dynamic-wind entries and the exception handlers in
+     * effect there.
+     * The after thunks of the entries being left are called first,
+     * innermost first, then the before thunks of the entries being
+     * entered, outermost first, each in the dynamic environment of its
+     * dynamic-wind; then the given value is passed to the actions.
+     *
+     * @param to the dynamic-wind entries in effect at the target
+     * @param toHandlers the exception handlers in effect at the target
+     * @param value the value to pass to the target
+     * @param env the environment in which to call the thunks
+     * @return the value, or null if the continuation has changed
+     */
+    Entity transfer(Winder to, Handler toHandlers, Entity value, Environment env)
+    {
+        this.handlers = toHandlers;
+        Winder from = this.winders;
+        if (from == to) {
+            return value;
         }
-        else {
-            throw new GleamException("continuation: too few arguments", args);
+        Winder common = Winder.common(from, to);
+        begin(new RestoreAction(to, toHandlers, value, env));
+        for (Winder w = to; w != common; w = w.outer) {
+            begin(new WindAction(w.before, NO_ARGS, w.outer, w.handlers, env));
+        }
+        ArrayList<Winder> leaving = new ArrayList<>();
+        for (Winder w = from; w != common; w = w.outer) {
+            leaving.add(w);
+        }
+        for (int i = leaving.size() - 1; i >= 0; --i) {
+            Winder w = leaving.get(i);
+            begin(new WindAction(w.after, NO_ARGS, w.outer, w.handlers, env));
         }
+        return null;
+    }
+
+    /**
+     * Calls a thunk within a dynamic-wind entry: the before thunk is
+     * called first, then the thunk, then the after thunk, and the value
+     * of the thunk is the value of the dynamic-wind. The before and after
+     * thunks are called again whenever control enters or leaves the
+     * dynamic extent of the thunk by means of a continuation.
+     *
+     * @param before the before thunk
+     * @param thunk the thunk
+     * @param after the after thunk
+     * @param env the environment of the call
+     * @return the value of the before thunk, or null if the continuation
+     * has changed
+     * @throws GleamException in case of errors
+     */
+    public Entity dynamicWind(Procedure before, Procedure thunk, Procedure after, Environment env)
+        throws GleamException
+    {
+        Winder winder = new Winder(before, after, winders, handlers);
+        begin(new UnwindAction(winder, env));
+        begin(new WindAction(thunk, NO_ARGS, winder, handlers, env));
+        return before.apply(NO_ARGS, env, this);
+    }
+
+    /**
+     * Calls a thunk with a given exception handler installed.
+     *
+     * @param handler the handler
+     * @param thunk the thunk
+     * @param env the environment of the call
+     * @return the value of the thunk, or null if the continuation has
+     * changed
+     * @throws GleamException in case of errors
+     */
+    public Entity withExceptionHandler(Procedure handler, Procedure thunk, Environment env)
+        throws GleamException
+    {
+        begin(new RestoreAction(winders, handlers, null, env));
+        this.handlers = new Handler(handler, handlers);
+        return thunk.apply(NO_ARGS, env, this);
     }
 
-    private void replaceContinuation(Continuation continuation) {
-        this.head = continuation.head;
+    /**
+     * Raises an object as an exception: the current handler is called
+     * with the object, in the dynamic environment of the raise, except
+     * that the handler in effect is the outer one.
+     * If the raise is continuable, the value of the handler is the value
+     * of the raise; otherwise, a secondary exception is raised in the
+     * dynamic environment of the handler when the handler returns.
+     *
+     * @param obj the object to raise
+     * @param continuable true for raise-continuable
+     * @param env the environment in which to call the handler
+     * @return the value of the handler, or null if the continuation has
+     * changed
+     * @throws GleamException if there is no handler
+     */
+    public Entity raise(Entity obj, boolean continuable, Environment env)
+        throws GleamException
+    {
+        Handler handler = this.handlers;
+        if (handler == null) {
+            if (obj instanceof ErrorObject) {
+                throw new UncaughtException(((ErrorObject) obj).describe(), obj);
+            }
+            throw new UncaughtException("uncaught exception: " + obj.toWriteFormat(), obj);
+        }
+        if (continuable) {
+            begin(new RestoreAction(winders, handler, null, env));
+        }
+        else {
+            begin(new RaiseAction(obj, env));
+        }
+        this.handlers = handler.outer;
+        return handler.procedure.apply(new Entity[] {obj}, env, this);
     }
 
     /**
@@ -192,4 +439,112 @@ public class Continuation extends Procedure
     {
         out.write("#<continuation>");
     }
+
+    /**
+     * An entry of a dynamic-wind: the before and after thunks, and the
+     * dynamic environment of the call to dynamic-wind. Entries are
+     * immutable, and linked to the outer ones, so that a continuation
+     * only needs a reference to the innermost entry.
+     */
+    static final class Winder implements java.io.Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        final Procedure before;
+        final Procedure after;
+
+        /** the entries outside of this one */
+        final Winder outer;
+
+        /** the handlers in effect at the call to dynamic-wind */
+        final Handler handlers;
+
+        /** the number of entries, this one included */
+        final int depth;
+
+        Winder(Procedure before, Procedure after, Winder outer, Handler handlers)
+        {
+            this.before = before;
+            this.after = after;
+            this.outer = outer;
+            this.handlers = handlers;
+            this.depth = outer == null ? 1 : outer.depth + 1;
+        }
+
+        /**
+         * @return the innermost entry common to two lists of entries,
+         * or null if there is none
+         */
+        static Winder common(Winder a, Winder b)
+        {
+            int da = a == null ? 0 : a.depth;
+            int db = b == null ? 0 : b.depth;
+            for (; da > db; --da) {
+                a = a.outer;
+            }
+            for (; db > da; --db) {
+                b = b.outer;
+            }
+            while (a != b) {
+                a = a.outer;
+                b = b.outer;
+            }
+            return a;
+        }
+    }
+
+    /**
+     * An exception handler, installed by with-exception-handler, linked
+     * to the outer handlers.
+     */
+    static final class Handler implements java.io.Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        final Procedure procedure;
+
+        /** the handlers outside of this one */
+        final Handler outer;
+
+        Handler(Procedure procedure, Handler outer)
+        {
+            this.procedure = procedure;
+            this.outer = outer;
+        }
+    }
+
+    /**
+     * A segment of the stack of a continuation: an array of actions that
+     * is never changed, linked to the segments below.
+     */
+    private static final class Segment implements java.io.Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        /** the actions, from the bottom of the segment */
+        final Action[] actions;
+
+        /** the number of actions of the array in this segment */
+        final int size;
+
+        /** the segments below this one, or null */
+        final Segment parent;
+
+        /** the number of actions below this segment */
+        final int base;
+
+        Segment(Action[] actions, int size, Segment parent)
+        {
+            this.actions = actions;
+            this.size = size;
+            this.parent = parent;
+            this.base = parent == null ? 0 : parent.end();
+        }
+
+        /** @return the number of actions up to the top of this segment */
+        int end()
+        {
+            return base + size;
+        }
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * A compiled define form, of a variable or of a procedure: in the latter
+ * case, the value is a compiled lambda form.
+ */
+public final class Define extends Node
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the original form */
+    private final Pair form;
+
+    /** the variable */
+    final Symbol symbol;
+
+    /** the expression for the value */
+    final Entity value;
+
+    /** true if the value is a simple expression */
+    private final boolean simpleValue;
+
+    Define(Pair form, Symbol symbol, Entity value)
+    {
+        super(false);
+        this.form = form;
+        this.symbol = symbol;
+        this.value = value;
+        this.simpleValue = System.isSimpleExpression(value);
+    }
+
+    /**
+     * Binds the variable in the current environment, then assigns it the
+     * value of the expression.
+     */
+    @Override
+    public Entity eval(Environment env, Continuation cont)
+        throws GleamException
+    {
+        // create binding
+        env.define(symbol, Undefined.value());
+        if (simpleValue) {
+            cont.begin(new AssignmentAction(symbol, env));
+            return value.eval(env, cont);
+        }
+        cont.begin(new AssignmentAction(symbol, env));
+        cont.begin(new ExpressionAction(value, env));
+
+        return null;
+    }
+
+    /** Writes this definition as the original form */
+    @Override
+    public void write(PrintWriter out)
+    {
+        form.write(out);
+    }
+}
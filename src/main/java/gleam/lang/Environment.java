@@ -27,8 +27,9 @@
 package gleam.lang;
 
 import java.io.PrintWriter;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Constituent part of Scheme environment
@@ -52,11 +53,27 @@ public class Environment extends AbstractEntity
         INTERACTION_ENV;
     }
 
+    /**
+     * The number of definitions that have shadowed a binding of an
+     * enclosing environment. Compiled global references are resolved
+     * again when this number changes (see {@link GlobalRef}).
+     * It is counted over all the interpreters, which may run in different
+     * threads.
+     */
+    private static final AtomicInteger shadowings = new AtomicInteger();
+
     /** Parent environment */
     Environment parent;
 
-    /** Association function: symbol --> location */
-    private final Map<Symbol, Location> assoc = new HashMap<>();
+    /**
+     * Association function: symbol --> location, created on first define.
+     * It is a concurrent map, as a global environment may be read and
+     * defined into by interpreters in different threads: lookups take no
+     * lock, and a new location is inserted atomically.
+     * It keeps its declared Map type, so that saved sessions can still be
+     * deserialized (see {@link #readObject}).
+     */
+    private volatile Map<Symbol, Location> assoc;
 
     transient private InputPort in;
 
@@ -85,6 +102,21 @@ public class Environment extends AbstractEntity
         }
     }
 
+    /**
+     * Creates an environment whose current ports are those of another
+     * environment, e.g. of the caller of a procedure, instead of those of
+     * the parent.
+     *
+     * @param parent the parent environment
+     * @param dynamic the environment giving the current ports
+     */
+    Environment(Environment parent, Environment dynamic)
+    {
+        this.parent = parent;
+        this.in = dynamic.in;
+        this.out = dynamic.out;
+    }
+
     public InputPort getIn() {
         return in;
     }
@@ -103,18 +135,79 @@ public class Environment extends AbstractEntity
 
     /**
      * Associates a symbol in this environment with a value.
+     * A definition that shadows a binding of an enclosing environment is
+     * counted once the new binding is visible, so that compiled global
+     * references resolved again find it.
      */
-    public synchronized void define(Symbol s, Entity v)
+    public void define(Symbol s, Entity v)
     {
-        Location loc;
-        if ((loc = assoc.get(s)) != null) {
-            loc.set(v);
+        Map<Symbol, Location> table = table();
+        Location loc = table.get(s);
+        if (loc == null) {
+            Location created = new Location(v);
+            if ((loc = table.putIfAbsent(s, created)) == null) {
+                if (isInherited(s)) {
+                    shadowings.incrementAndGet();
+                }
+                return;
+            }
+        }
+        boolean bound = loc.isBound();
+        loc.set(v);
+        if (!bound && isInherited(s)) {
+            shadowings.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the association function of this environment, created if
+     * needed
+     */
+    private Map<Symbol, Location> table()
+    {
+        Map<Symbol, Location> table = assoc;
+        if (table == null) {
+            synchronized (this) {
+                table = assoc;
+                if (table == null) {
+                    assoc = table = new ConcurrentHashMap<>();
+                }
+            }
         }
-        else{
-            assoc.put(s, new Location(v));
+        return table;
+    }
+
+    /**
+     * Reads an environment, replacing a map of a session saved by an
+     * older version, e.g. a HashMap, with a concurrent map.
+     */
+    private void readObject(java.io.ObjectInputStream in)
+        throws java.io.IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        if (assoc != null && !(assoc instanceof ConcurrentHashMap)) {
+            assoc = new ConcurrentHashMap<>(assoc);
         }
     }
 
+    /**
+     * @return true if a variable not defined in this environment is
+     * nevertheless visible here, so that defining it shadows a binding
+     */
+    boolean isInherited(Symbol s)
+    {
+        return parent != null && parent.getLocationOrNull(s) != null;
+    }
+
+    /**
+     * @return the number of definitions that have shadowed a binding of
+     * an enclosing environment, so far
+     */
+    static int shadowings()
+    {
+        return shadowings.get();
+    }
+
     /**
      * Gives the Location for the specified variable.
      *
@@ -147,7 +240,7 @@ public class Environment extends AbstractEntity
         Location loc;
         Environment e = this;
         while (e != null) {
-            loc = e.assoc.get(s);
+            loc = e.localLocation(s);
             if (loc == null) {
                 e = e.parent;
             }
@@ -160,6 +253,80 @@ public class Environment extends AbstractEntity
         return null;
     }
 
+    /**
+     * Gives the Location for assigning the specified variable. It is the
+     * Location given by getLocation, unless the variable belongs to the
+     * shared image of the system environments: in that case, it is copied
+     * first to the environment overlaying the image (copy on write).
+     *
+     * @param s Symbol a variable name
+     * @return Location
+     * @throws UnboundVariableException if the variable is unbound
+     * @see SystemEnvironment
+     */
+    Location getAssignableLocation(Symbol s)
+        throws UnboundVariableException
+    {
+        for (Environment e = this; e != null; e = e.parent) {
+            Location loc = e.assignableLocation(s);
+            if (loc != null) {
+                return loc;
+            }
+        }
+        throw new UnboundVariableException(s);
+    }
+
+    /**
+     * Gives the Location for assigning the specified variable in this
+     * environment only, or null.
+     *
+     * @param s Symbol a variable name
+     * @return Location or null
+     */
+    Location assignableLocation(Symbol s)
+    {
+        return localLocation(s);
+    }
+
+    /**
+     * Gives the Location for the specified variable in this environment
+     * only, without searching enclosing environments.
+     *
+     * @param s Symbol a variable name
+     * @return Location or null
+     */
+    Location localLocation(Symbol s)
+    {
+        Map<Symbol, Location> table = assoc;
+        Location loc = table == null ? null : table.get(s);
+        return loc == null || !loc.isBound() ? null : loc;
+    }
+
+    /**
+     * Gives the Location for the specified variable in this environment,
+     * creating an unbound one if the variable is not defined here yet.
+     * A later definition of the variable in this environment fills the
+     * same Location, so compiled code can refer to a variable before it
+     * is defined.
+     *
+     * @param s Symbol a variable name
+     * @return Location, possibly unbound
+     * @see Location#isBound()
+     */
+    Location cell(Symbol s)
+    {
+        Map<Symbol, Location> table = table();
+        Location loc = table.get(s);
+        if (loc == null) {
+            Location created = new Location();
+            loc = table.putIfAbsent(s, created);
+            if (loc == null) {
+                loc = created;
+            }
+        }
+        return loc;
+    }
+
     /**
      * Looks up a Symbol in the environment
      * by searching this environment and all enclosing
@@ -192,13 +359,23 @@ public class Environment extends AbstractEntity
         out.printf("|——————————————— In  :       %s \n", in);
         out.printf("|——————————————— Out :       %s \n", out);
         out.printf("| \n");
-        for (Symbol s : assoc.keySet()) {
-            Location l = assoc.get(s);
-            out.printf("|       %s\t: %s\n", s.toString(), l.get().toString());
-        }
+        dumpBindings(out);
         out.printf("\\—————————————————————————————————————————————/\n");
         if (this.parent != null) {
             parent.dump();
         }
     }
+
+    void dumpBindings(OutputPort out)
+    {
+        Map<Symbol, Location> table = assoc;
+        if (table == null)
+            return;
+        for (Symbol s : table.keySet()) {
+            Location l = table.get(s);
+            if (!l.isBound())
+                continue;
+            out.printf("|       %s\t: %s\n", s.toString(), l.get().toString());
+        }
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * A Scheme error object, as created by the error procedure: a message and
+ * a list of irritants. Errors signalled by the system, e.g. by a primitive
+ * procedure applied to an argument of the wrong type, are passed to the
+ * exception handlers as error objects, too.
+ */
+public final class ErrorObject extends AbstractEntity
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the message */
+    private final MutableString message;
+
+    /** the irritants */
+    private final List irritants;
+
+    /**
+     * Creates a new error object.
+     *
+     * @param message the message
+     * @param irritants the irritants
+     */
+    public ErrorObject(MutableString message, List irritants)
+    {
+        this.message = message;
+        this.irritants = irritants;
+    }
+
+    /**
+     * @return the message
+     */
+    public MutableString getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * @return the irritants
+     */
+    public List getIrritants()
+    {
+        return irritants;
+    }
+
+    /**
+     * Describes this error object, as the message of an uncaught error:
+     * the message, then the irritants.
+     *
+     * @return the description
+     */
+    public String describe()
+    {
+        StringBuilder sb = new StringBuilder(message.toString());
+        for (Entity irritant : irritants) {
+            sb.append(' ').append(irritant);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void write(PrintWriter out)
+    {
+        out.write("#<error-object ");
+        message.write(out);
+        for (Entity irritant : irritants) {
+            out.write(' ');
+            irritant.write(out);
+        }
+        out.write('>');
+    }
+}
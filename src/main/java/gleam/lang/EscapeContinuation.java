@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * An escape-only continuation, as created by call/ec: it can only be
+ * called to leave the dynamic extent of the call/ec that created it, and
+ * only once. Creating one does not capture the current continuation: it
+ * records the depth of the stack of actions to continue with, and calling
+ * it just truncates the current continuation back to that depth.
+ */
+public final class EscapeContinuation extends Procedure
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the number of actions to continue with */
+    private final int depth;
+
+    /** the action ending the extent of this continuation, just above them */
+    private ExitAction exit;
+
+    /** the dynamic-wind entries in effect at the call/ec */
+    private final Continuation.Winder winders;
+
+    /** the exception handlers in effect at the call/ec */
+    private final Continuation.Handler handlers;
+
+    /** true while this continuation may be called */
+    private boolean valid = true;
+
+    private EscapeContinuation(Continuation cont)
+    {
+        this.depth = cont.depth();
+        this.winders = cont.winders;
+        this.handlers = cont.handlers;
+    }
+
+    /**
+     * Calls a procedure with a new escape continuation, valid until the
+     * procedure returns.
+     *
+     * @param procedure the procedure to call
+     * @param env the environment of the call
+     * @param cont the current continuation
+     * @return the value of the procedure, or null if the continuation has
+     * changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity callWithEscape(Procedure procedure, Environment env, Continuation cont)
+        throws GleamException
+    {
+        EscapeContinuation k = new EscapeContinuation(cont);
+        k.exit = new ExitAction(k, env);
+        cont.begin(k.exit);
+        return procedure.apply(new Entity[] {k}, env, cont);
+    }
+
+    @Override
+    public Entity apply(List args, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return apply(ArgumentList.toArray(args), env, cont);
+    }
+
+    /**
+     * Escapes: continues with the actions recorded at the call/ec, passing
+     * them the arguments, as multiple values if they are not just one.
+     */
+    @Override
+    public Entity apply(Entity[] args, Environment env, Continuation cont)
+        throws GleamException
+    {
+        if (!valid || cont.depth() <= depth || cont.actionAt(depth) != exit) {
+            throw new GleamException("escape continuation: called outside of its extent", this);
+        }
+        valid = false;
+        cont.truncate(depth);
+        return cont.transfer(winders, handlers, MultipleValues.of(args), env);
+    }
+
+    @Override
+    public void write(PrintWriter out)
+    {
+        out.write("#<escape-continuation>");
+    }
+
+    /**
+     * The action following the procedure called by call/ec: when the
+     * procedure returns, it ends the extent of the escape continuation.
+     */
+    static final class ExitAction extends Action
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final EscapeContinuation k;
+
+        ExitAction(EscapeContinuation k, Environment env)
+        {
+            super(env);
+            this.k = k;
+        }
+
+        @Override
+        Entity invoke(Entity arg, Continuation cont)
+        {
+            cont.pop();
+            k.valid = false;
+            return arg;
+        }
+    }
+}
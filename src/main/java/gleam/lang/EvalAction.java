@@ -41,14 +41,9 @@ public class EvalAction extends Action {
      */
     private static final long serialVersionUID = 2L;
 
-    /** Creates a new instance of this action */
-    public EvalAction(Environment env, Action next) {
-        super(env, next);
-    }
-
     /** Creates a new instance of this action */
     public EvalAction(Environment env) {
-        this(env, null);
+        super(env);
     }
 
     /**
@@ -60,8 +55,8 @@ public class EvalAction extends Action {
      */
     @Override
     Entity invoke(Entity arg, Continuation cont) throws GleamException {
-        cont.head = next;
-        trace(out -> out.printf("%s\n", arg.toWriteFormat()), env);
+        cont.pop();
+        trace(out -> out.printf("%s\n", arg.toWriteFormat()), env, cont);
         return arg.eval(env, cont);
     }
 }
@@ -45,16 +45,11 @@ public class ExpressionAction extends Action {
     private final Entity expr;
 
     /** Creates a new instance of this action */
-    public ExpressionAction(Entity expr, Environment env, Action next) {
-        super(env, next);
+    public ExpressionAction(Entity expr, Environment env) {
+        super(env);
         this.expr = expr;
     }
 
-    /** Creates a new instance of this action */
-    public ExpressionAction(Entity value, Environment env) {
-        this(value, env, null);
-    }
-
     /** Invokes this action, causing the evaluation of the expression
      * @param arg is ignored
      * @param cont the current Continuation
@@ -64,9 +59,9 @@ public class ExpressionAction extends Action {
     @Override
     Entity invoke(Entity arg, Continuation cont) throws gleam.lang.GleamException
     {
-        cont.head = next;
+        cont.pop();
         // note: ignore arg
-        trace(out -> out.printf("%s\n", expr.toWriteFormat()), env);
+        trace(out -> out.printf("%s\n", expr.toWriteFormat()), env, cont);
         return expr.eval(env, cont);
     }
 }
@@ -44,14 +44,9 @@ public class ExpressionInEnvironmentAction extends Action {
     /** the expression to evaluate */
     private Entity expr;
 
-    /** Creates a new instance of this action */
-    public ExpressionInEnvironmentAction(Entity expr, Environment env, Action next) {
-        super(env, next);
-    }
-
     /** Creates a new instance of this action */
     public ExpressionInEnvironmentAction(Entity expr, Environment env) {
-        this(expr, env, null);
+        super(env);
     }
 
     /**
@@ -65,13 +60,13 @@ public class ExpressionInEnvironmentAction extends Action {
     @Override
     Entity invoke(Entity newEnv, Continuation cont) throws gleam.lang.GleamException
     {
-        cont.head = next;
+        cont.pop();
         if (!(newEnv instanceof Environment)) {
             throw new GleamException("not an environment", newEnv);
         }
         Environment evalEnv = (Environment) newEnv;
         expr = expr.analyze(evalEnv).optimize(evalEnv);
-        trace(out -> out.printf("%s\n", expr.toWriteFormat()), env);
+        trace(out -> out.printf("%s\n", expr.toWriteFormat()), env, cont);
         return expr.eval(evalEnv, cont);
     }
 }
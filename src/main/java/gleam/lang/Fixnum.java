@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * Scheme exact integer that fits in a Java long.
+ * Small values are preallocated, so that counters and indexes do not
+ * allocate a new object at each step.
+ * @see Bignum
+ */
+public final class Fixnum extends Number
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the smallest preallocated value */
+    private static final int CACHE_LOW = -128;
+
+    /** the largest preallocated value */
+    private static final int CACHE_HIGH = 1024;
+
+    /** the preallocated values */
+    private static final Fixnum[] cache = new Fixnum[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < cache.length; ++i) {
+            cache[i] = new Fixnum(CACHE_LOW + i);
+        }
+    }
+
+    /** the value */
+    private final long value;
+
+    /** private constructor */
+    private Fixnum(long value)
+    {
+        this.value = value;
+    }
+
+    /**
+     * Static factory.
+     */
+    public static Fixnum makeFixnum(long value)
+    {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return cache[(int) value - CACHE_LOW];
+        }
+        return new Fixnum(value);
+    }
+
+    /** Takes value of number as a long. */
+    public long getLongValue() {
+        return value;
+    }
+
+    /** Takes value of number as a double. */
+    @Override
+    public double getDoubleValue() {
+        return value;
+    }
+
+    /**
+     * Scheme integer comparison.
+     * @return boolean
+     * @param o java.lang.Object
+     */
+    @Override
+    public boolean equals(java.lang.Object o) {
+        if (o instanceof Fixnum) {
+            return value == ((Fixnum) o).value;
+        }
+        else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a hashcode for this Scheme object.
+     * The implementation is the same as per java.lang.Long.
+     * @return int
+     */
+    @Override
+    public int hashCode() {
+        return (int) (value ^ (value >>> 32));
+    }
+
+    /**
+     * Writes an integer
+     */
+    @Override
+    public void write(PrintWriter out)
+    {
+        out.print(value);
+    }
+
+    /** preserves the identity of preallocated values */
+    protected java.lang.Object readResolve()
+    {
+        return makeFixnum(value);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.util.Arrays;
+
+/**
+ * An activation frame, i.e., the local environment of a procedure call.
+ * Local variables are kept in an array of slots, positioned according to
+ * the frame layout, so that compiled code can access them by position
+ * instead of by name (see {@link LocalRef}).
+ * Variables that are not in the layout (e.g., defined by an eval in the
+ * current environment) are kept as in an ordinary environment.
+ */
+public class Frame extends Environment
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 2L;
+
+    /** the layout of this frame */
+    final FrameLayout layout;
+
+    /** the local variables */
+    final Entity[] slots;
+
+    /**
+     * true if this frame may be referenced after the end of the code that
+     * created it, e.g. by a closure: a loop must not reuse it for another
+     * iteration
+     */
+    boolean captured;
+
+    /**
+     * Creates a new frame, with each variable bound to Undefined.
+     *
+     * @param parent the parent environment
+     * @param layout the frame layout
+     */
+    Frame(Environment parent, FrameLayout layout)
+    {
+        super(parent);
+        this.layout = layout;
+        this.slots = new Entity[layout.size()];
+        Arrays.fill(slots, Undefined.value);
+    }
+
+    /**
+     * Creates a new frame for a call of a procedure, with each variable
+     * bound to Undefined. The current ports are those of the caller, so
+     * that a procedure of the shared image of the system environments
+     * uses the ports of the interpreter calling it.
+     *
+     * @param parent the parent environment, where the procedure is defined
+     * @param layout the frame layout
+     * @param caller the environment of the caller
+     */
+    Frame(Environment parent, FrameLayout layout, Environment caller)
+    {
+        super(parent, caller);
+        this.layout = layout;
+        this.slots = new Entity[layout.size()];
+        Arrays.fill(slots, Undefined.value);
+    }
+
+    /**
+     * Marks the frames in an environment chain as captured, because the
+     * environment is going to be referenced, e.g. by a new closure.
+     *
+     * @param env an environment
+     */
+    public static void capture(Environment env)
+    {
+        for (Environment e = env; e instanceof Frame; e = e.parent) {
+            Frame frame = (Frame) e;
+            if (frame.captured)
+                break;
+            frame.captured = true;
+        }
+    }
+
+    /**
+     * Associates a symbol in this frame with a value.
+     */
+    @Override
+    public void define(Symbol s, Entity v)
+    {
+        int index = layout.indexOf(s);
+        if (index >= 0) {
+            slots[index] = v;
+        }
+        else {
+            super.define(s, v);
+        }
+    }
+
+    /**
+     * Gives a Location for a local variable, as a view of its slot.
+     * This is only needed for by-name access; compiled code uses
+     * {@link LocalRef} instead.
+     */
+    @Override
+    Location localLocation(Symbol s)
+    {
+        int index = layout.indexOf(s);
+        if (index >= 0) {
+            return new SlotLocation(slots, index);
+        }
+        return super.localLocation(s);
+    }
+
+    @Override
+    void dumpBindings(OutputPort out)
+    {
+        for (int i = 0; i < slots.length; ++i) {
+            out.printf("|       %s\t: %s\n", layout.nameAt(i), slots[i]);
+        }
+        super.dumpBindings(out);
+    }
+
+    /**
+     * A Location reading and writing a frame slot.
+     */
+    private static final class SlotLocation extends Location
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Entity[] slots;
+
+        private final int index;
+
+        SlotLocation(Entity[] slots, int index)
+        {
+            super(null);
+            this.slots = slots;
+            this.index = index;
+        }
+
+        @Override
+        public void set(Entity obj)
+        {
+            slots[index] = obj;
+        }
+
+        @Override
+        public Entity get()
+        {
+            return slots[index];
+        }
+    }
+}
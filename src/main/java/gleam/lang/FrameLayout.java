@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.util.ArrayList;
+
+/**
+ * The layout of an activation frame: the names of the local variables of a
+ * procedure, in slot order. Procedure parameters come first, followed by
+ * the variables defined in the procedure body (scanned-out defines).
+ * The layout is also the arity descriptor of the procedure: the required
+ * parameters take the first slots, then the rest parameter, if any.
+ * The frames created by let, let* and do forms have a layout, too, where
+ * the bound variables take the place of the parameters.
+ * Layouts are cached in the code they are computed from, so that they are
+ * not computed again each time a procedure is created or a let form is
+ * evaluated.
+ */
+public final class FrameLayout implements java.io.Serializable
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 2L;
+
+    /** variable names, in slot order */
+    private final Symbol[] names;
+
+    /** the number of required parameters */
+    final int required;
+
+    /** true if there is a rest parameter */
+    final boolean rest;
+
+    /** the code this layout has been computed from, with its holder */
+    private final transient Entity source;
+
+    private FrameLayout(Symbol[] names, int required, boolean rest, Entity source)
+    {
+        this.names = names;
+        this.required = required;
+        this.rest = rest;
+        this.source = source;
+    }
+
+    /**
+     * Gets the layout for a procedure.
+     *
+     * @param params the formal parameters: a symbol or a (possibly
+     *               improper) list of symbols
+     * @param body the procedure body
+     * @return the layout of the activation frames of the procedure
+     */
+    static FrameLayout forProcedure(Entity params, Iterable<Entity> body)
+    {
+        FrameLayout layout = cached(body, params);
+        if (layout != null) {
+            return layout;
+        }
+        java.util.List<Symbol> vars = new ArrayList<>();
+        int required = 0;
+        Entity p = params;
+        while (p instanceof Pair) {
+            // each parameter takes a slot, even if not a valid name
+            Entity name = ((Pair) p).getCar();
+            vars.add(name instanceof Symbol ? (Symbol) name : null);
+            ++required;
+            p = ((Pair) p).getCdr();
+        }
+        boolean rest = p instanceof Symbol;
+        if (rest) {
+            vars.add((Symbol) p);
+        }
+        for (Entity bodyPart : body) {
+            scanOut(bodyPart, vars);
+        }
+        return cache(body, new FrameLayout(vars.toArray(new Symbol[0]), required, rest, params));
+    }
+
+    /**
+     * Gets the layout for the frame of a let form.
+     *
+     * @param bindings the list of bindings, as in ((var init) ...)
+     * @param body the let body
+     * @return the layout of the frame
+     */
+    static FrameLayout forLet(List bindings, List body)
+    {
+        FrameLayout layout = cached(body, bindings);
+        if (layout != null) {
+            return layout;
+        }
+        java.util.List<Symbol> vars = new ArrayList<>();
+        int required = 0;
+        for (Entity b = bindings; b instanceof Pair; b = ((Pair) b).getCdr()) {
+            vars.add(bindingVariable(((Pair) b).getCar()));
+            ++required;
+        }
+        for (Entity bodyPart : body) {
+            scanOut(bodyPart, vars);
+        }
+        return cache(body, new FrameLayout(vars.toArray(new Symbol[0]), required, false, bindings));
+    }
+
+    /**
+     * Gets the layout for the frame of a single binding in a let* form.
+     * The frame for the last binding also holds the variables defined in
+     * the body.
+     *
+     * @param bindings the list of bindings, starting at the given binding
+     * @param body the let* body
+     * @return the layout of the frame
+     */
+    static FrameLayout forLetStar(Pair bindings, List body)
+    {
+        FrameLayout layout = cached(bindings, body);
+        if (layout != null) {
+            return layout;
+        }
+        java.util.List<Symbol> vars = new ArrayList<>();
+        vars.add(bindingVariable(bindings.getCar()));
+        if (bindings.getCdr() == EmptyList.value) {
+            for (Entity bodyPart : body) {
+                scanOut(bodyPart, vars);
+            }
+        }
+        return cache(bindings, new FrameLayout(vars.toArray(new Symbol[0]), 1, false, body));
+    }
+
+    /**
+     * Gets the layout for the frame holding the procedure of a named let.
+     *
+     * @param args the arguments of a named let, as in (name bindings body...)
+     * @return the layout of the frame
+     */
+    static FrameLayout forNamedLet(Pair args)
+    {
+        Entity name = args.getCar();
+        FrameLayout layout = cached(args, name);
+        if (layout != null) {
+            return layout;
+        }
+        Symbol[] names = { name instanceof Symbol ? (Symbol) name : null };
+        return cache(args, new FrameLayout(names, 1, false, name));
+    }
+
+    private static Symbol bindingVariable(Entity binding)
+    {
+        if (binding instanceof Pair && ((Pair) binding).getCar() instanceof Symbol) {
+            return (Symbol) ((Pair) binding).getCar();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the layout cached in a pair, if computed from the given source.
+     */
+    private static FrameLayout cached(Object holder, Entity source)
+    {
+        if (holder instanceof Pair && ((Pair) holder).compiled instanceof FrameLayout) {
+            FrameLayout layout = (FrameLayout) ((Pair) holder).compiled;
+            if (layout.source == source) {
+                return layout;
+            }
+        }
+        return null;
+    }
+
+    private static FrameLayout cache(Object holder, FrameLayout layout)
+    {
+        if (holder instanceof Pair) {
+            ((Pair) holder).compiled = layout;
+        }
+        return layout;
+    }
+
+    /**
+     * Collects the variables defined by a body part: a define, or a begin
+     * holding defines.
+     */
+    private static void scanOut(Entity bodyPart, java.util.List<Symbol> vars)
+    {
+        // the body may have been compiled already
+        if (bodyPart instanceof Define) {
+            addName(vars, ((Define) bodyPart).symbol);
+            return;
+        }
+        if (bodyPart instanceof Seq) {
+            for (Entity e : ((Seq) bodyPart).body) {
+                scanOut(e, vars);
+            }
+            return;
+        }
+        if (!(bodyPart instanceof Pair))
+            return;
+
+        Pair form = (Pair) bodyPart;
+        if (form.getCar() == Symbol.DEFINE && form.getCdr() instanceof Pair) {
+            Entity target = ((Pair) form.getCdr()).getCar();
+            if (target instanceof Pair) {
+                target = ((Pair) target).getCar();
+            }
+            addName(vars, target);
+        }
+        else if (form.getCar() == Symbol.BEGIN) {
+            Entity rest = form.getCdr();
+            while (rest instanceof Pair) {
+                scanOut(((Pair) rest).getCar(), vars);
+                rest = ((Pair) rest).getCdr();
+            }
+        }
+    }
+
+    private static void addName(java.util.List<Symbol> vars, Entity name)
+    {
+        if (name instanceof Symbol && !vars.contains(name)) {
+            vars.add((Symbol) name);
+        }
+    }
+
+    /**
+     * @return the number of slots in a frame
+     */
+    int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * @return the number of variables defined in the procedure body
+     */
+    int defines()
+    {
+        return names.length - required - (rest ? 1 : 0);
+    }
+
+    /**
+     * @param index a slot index
+     * @return the name of the variable in the given slot
+     */
+    Symbol nameAt(int index)
+    {
+        return names[index];
+    }
+
+    /**
+     * @param s a variable name
+     * @return the slot index of the variable, or -1 if not in this layout
+     */
+    int indexOf(Symbol s)
+    {
+        for (int i = names.length - 1; i >= 0; --i) {
+            if (names[i] == s)
+                return i;
+        }
+        return -1;
+    }
+}
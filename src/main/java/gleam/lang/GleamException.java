@@ -33,6 +33,9 @@ import static gleam.util.Logger.Level.FINE;
 
 /**
  * The base class for Gleam error objects.
+ * These are errors of Scheme programs, reported to the user or passed to
+ * exception handlers, so they do not record a Java stack trace, which is
+ * costly to fill in, unless FINE logging is enabled.
  */
 public class GleamException extends Exception
 {
@@ -54,10 +57,17 @@ public class GleamException extends Exception
 
     public GleamException(String message, Entity value)
     {
-        super(message);
+        super(message, null, false, isTracing());
         errobj = (value != null) ? value : Void.value;
 
-        Logger.enter(FINE, "Generated GleamException: " + message);
+        if (isTracing()) {
+            Logger.enter(FINE, "Generated GleamException: " + message);
+        }
+    }
+
+    private static boolean isTracing()
+    {
+        return Logger.getLevelValue() <= FINE.getValue();
     }
 
     /**
@@ -65,8 +75,21 @@ public class GleamException extends Exception
      *
      * @return Entity the error value.
      */
-    @SuppressWarnings("unused")
     public Entity value() {
         return errobj;
     }
+
+    /**
+     * Gets the condition object to pass to exception handlers: an error
+     * object, with the message of this error, and its value, if any, as
+     * the irritant.
+     *
+     * @return the condition object
+     */
+    public Entity condition() {
+        List irritants = errobj == Void.value
+                ? EmptyList.value
+                : new Pair(errobj, EmptyList.value);
+        return new ErrorObject(new MutableString(getMessage()), irritants);
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * A compiled reference to a global variable, holding the Location the
+ * variable has been resolved to, so that it is not looked up by name at
+ * run time.
+ * A later definition in an environment enclosed by the one where the
+ * variable was found may shadow that binding, e.g. a redefinition of a
+ * primitive procedure in the session environment. Such definitions are
+ * counted, and the reference is resolved again when the count changes.
+ * A variable referenced before its definition is compiled to an unbound
+ * Location of the environment where the lookup starts, which the
+ * definition fills later.
+ */
+public final class GlobalRef extends Node
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the variable name */
+    final Symbol symbol;
+
+    /** the environment where the lookup of the variable starts */
+    private final Environment env;
+
+    /** the location of the variable */
+    private Location location;
+
+    /** the count of shadowing definitions when the location was resolved */
+    private transient int shadowings;
+
+    GlobalRef(Symbol symbol, Environment env, Location location)
+    {
+        super(true);
+        this.symbol = symbol;
+        this.env = env;
+        this.location = location;
+        this.shadowings = Environment.shadowings();
+    }
+
+    /** A global reference evaluates to the current value of the variable */
+    @Override
+    public Entity eval(Environment env, Continuation cont)
+        throws UnboundVariableException
+    {
+        Location loc = location();
+        if (!loc.isBound()) {
+            // not defined yet where expected: maybe in an enclosing environment
+            loc = location = this.env.getLocation(symbol);
+        }
+        return loc.get();
+    }
+
+    /**
+     * @return the location of the variable, resolved again if it may have
+     * been shadowed
+     */
+    Location location()
+    {
+        int count = Environment.shadowings();
+        if (shadowings != count) {
+            Location loc = env.getLocationOrNull(symbol);
+            if (loc != null) {
+                location = loc;
+            }
+            shadowings = count;
+        }
+        return location;
+    }
+
+    /** Writes this global reference as the variable name */
+    @Override
+    public void write(PrintWriter out)
+    {
+        symbol.write(out);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * A compiled if form.
+ */
+public final class If extends Node
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the original form */
+    private final Pair form;
+
+    /** the test */
+    final Entity test;
+
+    /** the consequent */
+    final Entity consequent;
+
+    /** the alternate, or null if there is none */
+    final Entity alternate;
+
+    /** true if the test is a simple expression */
+    private final boolean simpleTest;
+
+    If(Pair form, Entity test, Entity consequent, Entity alternate)
+    {
+        super(false);
+        this.form = form;
+        this.test = test;
+        this.consequent = consequent;
+        this.alternate = alternate;
+        this.simpleTest = System.isSimpleExpression(test);
+    }
+
+    /**
+     * Evaluates the consequent or the alternate, upon the value of the test.
+     * A simple test is decided right now.
+     */
+    @Override
+    public Entity eval(Environment env, Continuation cont)
+        throws GleamException
+    {
+        Entity otherwise = alternate == null ? Void.value() : alternate;
+        if (simpleTest) {
+            if (test.eval(env, cont) != Boolean.falseValue)
+                return consequent.eval(env, cont);
+            else
+                return otherwise.eval(env, cont);
+        }
+        Entity value = CallSite.evalInPlace(test, env, cont);
+        if (value != null) {
+            return value != Boolean.falseValue ? consequent.eval(env, cont)
+                                               : otherwise.eval(env, cont);
+        }
+
+        cont.begin(new IfAction(consequent, otherwise, env));
+        cont.begin(new ExpressionAction(test, env));
+
+        return null;
+    }
+
+    /** Writes this if form as the original form */
+    @Override
+    public void write(PrintWriter out)
+    {
+        form.write(out);
+    }
+}
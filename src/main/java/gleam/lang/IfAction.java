@@ -45,17 +45,12 @@ public class IfAction extends Action {
     protected final Entity consequent, alternate;
 
     /** Creates a new IfAction */
-    public IfAction(Entity consequent, Entity alternate, Environment env, Action next) {
-        super(env, next);
+    public IfAction(Entity consequent, Entity alternate, Environment env) {
+        super(env);
         this.consequent = consequent;
         this.alternate = alternate;
     }
 
-    /** Creates a new IfAction */
-    public IfAction(Entity consequent, Entity alternate, Environment env) {
-        this(consequent, alternate, env, null);
-    }
-
     /**
      * Evaluates the the consequent or the alternate, deciding upon the
      * truth value of the argument. If it is any value except a boolean
@@ -67,7 +62,7 @@ public class IfAction extends Action {
     */
     @Override
     Entity invoke(Entity arg, Continuation cont) throws gleam.lang.GleamException {
-        cont.head = next;
+        cont.pop();
         if (arg != Boolean.falseValue)
             return consequent.eval(env, cont);
         else
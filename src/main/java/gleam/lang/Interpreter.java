@@ -36,9 +36,10 @@ package gleam.lang;
 import gleam.library.Primitive;
 import gleam.util.Logger;
 
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
@@ -53,33 +54,77 @@ public class Interpreter {
 
     static final Symbol INTERPRETER_SYMBOL = Symbol.makeUninternedSymbol("__intp__");
 
+    /** the primitive libraries, installed in every interpreter */
+    private static final Primitive[][] LIBRARIES = {
+            gleam.library.Booleans.primitives,
+            gleam.library.Characters.primitives,
+            gleam.library.ControlFeatures.primitives,
+            gleam.library.Equivalence.primitives,
+            gleam.library.Eval.primitives,
+            gleam.library.Input.primitives,
+            gleam.library.Interaction.primitives,
+            gleam.library.JavaInterface.primitives,
+            gleam.library.Numbers.primitives,
+            gleam.library.Output.primitives,
+            gleam.library.PairsAndLists.primitives,
+            gleam.library.Ports.primitives,
+            gleam.library.Strings.primitives,
+            gleam.library.Symbols.primitives,
+            gleam.library.Syntax.primitives,
+            gleam.library.SystemInterface.primitives,
+            gleam.library.Vectors.primitives
+    };
+
+    /*
+     * The keyword set and the help maps depend on the primitives only:
+     * they are built once, and never change afterwards, so that all the
+     * interpreters, in whatever thread, share them without locking.
+     */
+
     /** the keyword set */
-    private static final Collection<Symbol> kwSet = new HashSet<>();
+    private static final Set<Symbol> kwSet;
 
     /** the short-help map */
-    private static final HashMap<String, String> helpComment = new HashMap<>();
+    private static final Map<String, String> helpComment;
 
     /** the long-help map */
-    private static final HashMap<String, String> helpDocumentation = new HashMap<>();
-
-    private static boolean traceEnabled = false;
+    private static final Map<String, String> helpDocumentation;
+
+    static {
+        Set<Symbol> keywords = new HashSet<>();
+        Map<String, String> comments = new HashMap<>();
+        Map<String, String> documentation = new HashMap<>();
+        for (Primitive[] primitives : LIBRARIES) {
+            for (Primitive primitive : primitives) {
+                if (primitive.keyword)
+                    keywords.add(Symbol.makeSymbol(primitive.getName()));
+
+                if (primitive.comment != null)
+                    comments.put(primitive.getName(), primitive.comment);
+
+                if (primitive.documentation != null)
+                    documentation.put(primitive.getName(), primitive.documentation);
+            }
+        }
+        kwSet = Collections.unmodifiableSet(keywords);
+        helpComment = Collections.unmodifiableMap(comments);
+        helpDocumentation = Collections.unmodifiableMap(documentation);
+    }
 
-    /**
-     * true if bootstrap code already loaded
-     */
-    private static boolean bootstrapped = false;
+    /** the arguments of a thunk */
+    private static final Entity[] NO_ARGS = {};
 
     /** the program continuation */
     private final Continuation cont;
 
     /** the null environment, as defined in r5rs */
-    private final Environment nullEnv = new SystemEnvironment(NULL_ENV);
+    private final Environment nullEnv;
 
     /** the scheme-report environment, as defined in r5rs */
-    private final Environment reportEnv = new SystemEnvironment(nullEnv, REPORT_ENV);
+    private final Environment reportEnv;
 
     /** the interaction environment, as defined in r5rs */
-    private final Environment interactionEnv = new SystemEnvironment(reportEnv, INTERACTION_ENV);
+    private final Environment interactionEnv;
 
     /** the current-input-port */
     private InputPort cin = null;
@@ -101,13 +146,33 @@ public class Interpreter {
      * @throws gleam.lang.GleamException on any error
      */
     private Interpreter() throws GleamException {
-        initEnvironments();
+        nullEnv = new SystemEnvironment(null, NULL_ENV, Image.nullEnv);
+        reportEnv = new SystemEnvironment(nullEnv, REPORT_ENV, Image.reportEnv);
+        interactionEnv = new SystemEnvironment(reportEnv, INTERACTION_ENV, Image.interactionEnv);
+        nullEnv.define(INTERPRETER_SYMBOL, new JavaObject(this));
         bindIOPorts();
-        cont = new Continuation();
+        cont = new Continuation(this);
         accum = Void.value;
         setSessionEnv(interactionEnv, Environment.newEnvironment(cin, cout));
     }
 
+    /**
+     * Creates an interpreter for a task of another interpreter (see Task),
+     * sharing its environments and ports, with a continuation of its own.
+     * @param owner the interpreter starting the task
+     */
+    private Interpreter(Interpreter owner) {
+        nullEnv = owner.nullEnv;
+        reportEnv = owner.reportEnv;
+        interactionEnv = owner.interactionEnv;
+        cin = owner.cin;
+        cout = owner.cout;
+        sesnEnv = owner.sesnEnv;
+        cont = new Continuation(this);
+        cont.trace = owner.cont.trace;
+        accum = Void.value;
+    }
+
     public static Environment getSessionEnv(Environment env)
             throws GleamException
     {
@@ -161,7 +226,11 @@ public class Interpreter {
     }
 
     /**
-     * Creates and bootstraps a new Interpreter.
+     * Creates a new Interpreter, on top of the shared bootstrapped image
+     * of the system environments, which is built by the first call.
+     * Interpreters share no mutable state, so that any number of threads
+     * may create interpreters at the same time, each interpreter being
+     * then used by one thread at a time.
      * @return a Gleam Scheme Interpreter
      *
      * @throws GleamException in case of error
@@ -171,8 +240,6 @@ public class Interpreter {
     {
         Interpreter interpreter = new Interpreter();
         Logger.enter(Logger.Level.FINE, String.format("created Interpreter %s", interpreter));
-        interpreter.bootstrap();
-        Logger.enter(FINE, String.format("bootstrapped Interpreter %s", interpreter));
 
         return interpreter;
     }
@@ -180,7 +247,7 @@ public class Interpreter {
     public static void addForEval(Entity expr, Environment env, Continuation cont) throws GleamException
     {
         expr = expr.analyze(env).optimize(env);
-        cont.begin(new ExpressionAction(expr, env, null));
+        cont.begin(new ExpressionAction(expr, env));
     }
 
     /**
@@ -200,38 +267,38 @@ public class Interpreter {
     /**
      * @return true if trace is enabled
      */
-    public static boolean traceEnabled() {
-        return traceEnabled;
+    public boolean traceEnabled() {
+        return cont.trace;
     }
 
     /** enables trace */
-    public static void traceOn() {
-        traceEnabled = true;
+    public void traceOn() {
+        cont.trace = true;
     }
 
     /** disables trace */
-    public static void traceOff() {
-        traceEnabled = false;
+    public void traceOff() {
+        cont.trace = false;
     }
 
     /**
      * Imports primitives
      */
-    private void importPrimitives(Primitive[] primitives) {
+    private static void importPrimitives(Primitive[] primitives) {
         Environment instEnv;
         for (Primitive primitive : primitives) {
             switch (primitive.definitionEnv) {
                 case NULL_ENV:
-                    instEnv = getNullEnv();
+                    instEnv = Image.nullEnv;
                     break;
 
                 case REPORT_ENV:
-                    instEnv = getSchemeReportEnv();
+                    instEnv = Image.reportEnv;
                     break;
 
                 case INTERACTION_ENV:
                 default:
-                    instEnv = getInteractionEnv();
+                    instEnv = Image.interactionEnv;
             }
             installPrimitive(instEnv, primitive);
         }
@@ -242,54 +309,33 @@ public class Interpreter {
      * @param env the environment
      * @param primitive the primitive
      */
-    private void installPrimitive(Environment env, Primitive primitive) {
+    private static void installPrimitive(Environment env, Primitive primitive) {
         Symbol name = Symbol.makeSymbol(primitive.getName());
         Procedure proc = primitive.keyword ? new SyntaxProcedure(primitive) : new PrimitiveProcedure(primitive);
         env.define(name, proc);
-
-        if (primitive.keyword)
-            kwSet.add(name);
-
-        if (primitive.comment != null)
-            helpComment.put(primitive.getName(), primitive.comment);
-
-        if (primitive.documentation != null)
-            helpDocumentation.put(primitive.getName(), primitive.documentation);
     }
 
     /**
-     * Initialize the three initial environments (null, report, interaction).
+     * Initialize the three system environments (null, report, interaction)
+     * of the image.
      */
-    private void initEnvironments() {
-        nullEnv.define(INTERPRETER_SYMBOL, new JavaObject(this));
+    private static void initEnvironments() {
         try {
             /*
              * import primitives
              */
-            importPrimitives(gleam.library.Booleans.primitives);
-            importPrimitives(gleam.library.Characters.primitives);
-            importPrimitives(gleam.library.ControlFeatures.primitives);
-            importPrimitives(gleam.library.Equivalence.primitives);
-            importPrimitives(gleam.library.Eval.primitives);
-            importPrimitives(gleam.library.Input.primitives);
-            importPrimitives(gleam.library.Interaction.primitives);
-            importPrimitives(gleam.library.JavaInterface.primitives);
-            importPrimitives(gleam.library.Numbers.primitives);
-            importPrimitives(gleam.library.Output.primitives);
-            importPrimitives(gleam.library.PairsAndLists.primitives);
-            importPrimitives(gleam.library.Ports.primitives);
-            importPrimitives(gleam.library.Strings.primitives);
-            importPrimitives(gleam.library.Symbols.primitives);
-            importPrimitives(gleam.library.Syntax.primitives);
-            importPrimitives(gleam.library.SystemInterface.primitives);
-            importPrimitives(gleam.library.Vectors.primitives);
+            for (Primitive[] primitives : LIBRARIES) {
+                importPrimitives(primitives);
+            }
 
             /*
              * define special symbols
              */
-            getSchemeReportEnv().define(Symbol.ERROBJ, Void.value);
-            getSchemeReportEnv().define(Symbol.CALL_CC, getSchemeReportEnv().lookup(Symbol.CALL_WITH_CURRENT_CONTINUATION ));
-            getSchemeReportEnv().define(Symbol.makeSymbol("null"), new JavaObject()); // the Java null value
+            Environment reportEnv = Image.reportEnv;
+            reportEnv.define(Symbol.ERROBJ, Void.value);
+            reportEnv.define(Symbol.CALL_CC, reportEnv.lookup(Symbol.CALL_WITH_CURRENT_CONTINUATION ));
+            reportEnv.define(Symbol.CALL_EC, reportEnv.lookup(Symbol.CALL_WITH_ESCAPE_CONTINUATION));
+            reportEnv.define(Symbol.makeSymbol("null"), new JavaObject()); // the Java null value
         }
         catch (GleamException e) {
             // should never happen
@@ -319,12 +365,8 @@ public class Interpreter {
      */
     private void bindIOPorts()
     {
-        cin = new InputPort(new java.io.BufferedReader(
-                new java.io.InputStreamReader(
-                        java.lang.System.in)));
-
-        boolean isConsole = java.lang.System.console() != null;
-        cout = new OutputPort(java.lang.System.out, isConsole);
+        cin = StandardPorts.in;
+        cout = StandardPorts.out;
 
         getNullEnv().setIn(cin);
         getNullEnv().setOut(cout);
@@ -372,7 +414,35 @@ public class Interpreter {
     public Entity eval(Entity expr, Environment env) throws GleamException
     {
         expr = expr.analyze(env).optimize(env);
-        cont.begin(new ExpressionAction(expr, env, null));
+        cont.begin(new ExpressionAction(expr, env));
+        execute();
+        return accum;
+    }
+
+    /**
+     * Creates an interpreter to run a task of this one, e.g. in another
+     * thread.
+     * @return a new interpreter, sharing the environments of this one
+     */
+    Interpreter newTaskInterpreter()
+    {
+        return new Interpreter(this);
+    }
+
+    /**
+     * Calls a procedure with no arguments, and runs the continuation of
+     * this interpreter to the end.
+     * @param procedure the procedure
+     * @param env the environment of the call
+     * @return the value of the procedure
+     * @throws gleam.lang.GleamException on any error not handled
+     */
+    Entity call(Procedure procedure, Environment env) throws GleamException
+    {
+        Entity result = procedure.apply(NO_ARGS, env, cont);
+        if (result != null) {
+            accum = result;
+        }
         execute();
         return accum;
     }
@@ -385,7 +455,7 @@ public class Interpreter {
      */
     public void replaceContinuation(Continuation cont)
     {
-        this.cont.head = cont.head;
+        this.cont.resume(cont);
     }
 
     /**
@@ -401,24 +471,55 @@ public class Interpreter {
      * When this method is called, the first action in the current
      * continuation is invoked with the current value of the accumulator
      * register as its argument. When a result is produced, it is stored in
-     * the accumulator. Then the next action in the continuation chain is
+     * the accumulator. Then the next action in the continuation is
      * extracted, and the loop repeats itself until there are no more
      * actions to execute.
-     * @throws gleam.lang.GleamException on any error
+     * An error raised by an action is passed to the current exception
+     * handler, if any, as an error object.
+     * @throws gleam.lang.GleamException on any error not handled
      */
     private void execute() throws GleamException
     {
-        Action currentAction = cont.head;
+        Action currentAction;
         Entity tmp;
-        while (currentAction != null) {
-            tmp = currentAction.invoke(accum, cont);
+        while ((currentAction = cont.head()) != null) {
+            try {
+                tmp = currentAction.invoke(accum, cont);
+            }
+            catch (GleamException e) {
+                tmp = raise(e, currentAction.env);
+            }
             if (tmp != null) {
                 accum = tmp;
             }
-            currentAction = cont.head;
         }
     }
 
+    /**
+     * Raises an error as a non-continuable exception: calls the current
+     * exception handler with the corresponding condition object.
+     * An error in calling the handler is passed to the outer handler.
+     * @param e the error
+     * @param env the environment of the action that raised the error
+     * @return the value of the handler, or null if the continuation has
+     *  changed
+     * @throws gleam.lang.GleamException if there are no handlers left
+     */
+    private Entity raise(GleamException e, Environment env) throws GleamException
+    {
+        while (cont.handlers != null) {
+            try {
+                return cont.raise(e.condition(), false, env);
+            }
+            catch (GleamException again) {
+                e = again;
+            }
+        }
+        // not handled: the dynamic-wind entries are left behind
+        cont.winders = null;
+        throw e;
+    }
+
     /**
      * Loads and executes a Gleam Scheme program from a stream
      * @param reader a <CODE>gleam.lang.InputPort</CODE> representing the
@@ -443,19 +544,17 @@ public class Interpreter {
 
     /**
      * Loads and executes the bootstrap code for the Gleam Scheme Interpreter.
+     * @param env the environment of the bootstrap definitions
      * @throws gleam.lang.GleamException on any error
      */
-    private synchronized void bootstrap() throws GleamException
+    private void bootstrap(Environment env) throws GleamException
     {
-        if (!bootstrapped) {
-            gleam.lang.InputPort bootstrap =
-                new gleam.lang.InputPort(
-                    new java.io.BufferedReader(
-                        new java.io.InputStreamReader(
-                                Objects.requireNonNull(getClass().getResourceAsStream("/bootstrap.scm")))));
-            load(bootstrap, getSchemeReportEnv());
-            bootstrapped = true;
-        }
+        gleam.lang.InputPort bootstrap =
+            new gleam.lang.InputPort(
+                new java.io.BufferedReader(
+                    new java.io.InputStreamReader(
+                            Objects.requireNonNull(getClass().getResourceAsStream("/bootstrap.scm")))));
+        load(bootstrap, env);
     }
 
     /**
@@ -498,4 +597,49 @@ public class Interpreter {
     public void setCout(OutputPort newcout) {
         cout = newcout;
     }
+
+    /**
+     * The shared image: the system environments holding the primitives
+     * and the bootstrap definitions, built once, on first use, and never
+     * changed afterwards. Each interpreter has system environments of its
+     * own overlaying those of the image (see SystemEnvironment), so that
+     * creating an interpreter costs a few objects only.
+     */
+    private static final class Image
+    {
+        static final SystemEnvironment nullEnv = new SystemEnvironment(NULL_ENV);
+
+        static final SystemEnvironment reportEnv = new SystemEnvironment(nullEnv, REPORT_ENV);
+
+        static final SystemEnvironment interactionEnv = new SystemEnvironment(reportEnv, INTERACTION_ENV);
+
+        static {
+            initEnvironments();
+            try {
+                // the bootstrap code runs in an interpreter of its own
+                new Interpreter().bootstrap(reportEnv);
+                Logger.enter(FINE, "bootstrapped image");
+            }
+            catch (GleamException e) {
+                // should never happen
+                Logger.enter(ERROR,
+                        "Internal error during bootstrap: "
+                                + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The standard ports, shared by all the interpreters, as the standard
+     * streams they wrap are.
+     */
+    private static final class StandardPorts
+    {
+        static final InputPort in = new InputPort(new java.io.BufferedReader(
+                new java.io.InputStreamReader(
+                        java.lang.System.in)));
+
+        static final OutputPort out = new OutputPort(java.lang.System.out,
+                                                     java.lang.System.console() != null);
+    }
 }
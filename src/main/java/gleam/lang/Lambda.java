@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * A compiled lambda form, whose evaluation creates a closure.
+ * The layout of the frames of the closures is computed once, with the
+ * form; the closures also share the calls to their body, and its compiled
+ * code, see ClosureCompiler.
+ */
+public final class Lambda extends Node
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the original form */
+    private final Pair form;
+
+    /** the formal parameters */
+    final Entity params;
+
+    /** the optimized body */
+    final List body;
+
+    /** the layout of the frames of the closure */
+    final FrameLayout layout;
+
+    /** shared by the closures of this lambda form */
+    private transient Closure.Profile profile;
+
+    Lambda(Pair form, Entity params, List body)
+    {
+        super(true);
+        this.form = form;
+        this.params = params;
+        this.body = body;
+        this.layout = FrameLayout.forProcedure(params, body);
+        this.profile = new Closure.Profile();
+    }
+
+    /** A lambda form evaluates to a new closure */
+    @Override
+    public Entity eval(Environment env, Continuation cont)
+    {
+        Closure.Profile p = profile;
+        if (p == null) {
+            // a deserialized lambda form
+            p = profile = new Closure.Profile();
+        }
+        return new Closure(params, body, env, layout, p);
+    }
+
+    /** Writes this lambda form as the original form */
+    @Override
+    public void write(PrintWriter out)
+    {
+        form.write(out);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * Let binding: receives the value of the init expression of a binding in a
+ * let or letrec form, then goes on with the remaining bindings. When all
+ * the values are known, the body is evaluated in a frame holding them.
+ * The init expressions of a let are evaluated in the current environment,
+ * and the frame is created afterwards; those of a letrec are evaluated in
+ * the frame itself, so that they can refer to each other.
+ */
+public class LetAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the bindings, starting with the one whose value is awaited */
+    private final List bindings;
+
+    /** the values of the bindings */
+    private final Entity[] values;
+
+    /** the index of the value awaited */
+    private final int index;
+
+    /** the layout of the new frame */
+    private final FrameLayout layout;
+
+    /** the frame of a letrec, or null for a let */
+    private final Frame frame;
+
+    /** the body */
+    private final List body;
+
+    /** the number of captures of the continuation when this action was created */
+    private final int captures;
+
+    private LetAction(List bindings, Entity[] values, int index, FrameLayout layout, Frame frame,
+                      List body, Environment env, Continuation cont)
+    {
+        super(env);
+        this.captures = cont.captures;
+        this.bindings = bindings;
+        this.values = values;
+        this.index = index;
+        this.layout = layout;
+        this.frame = frame;
+        this.body = body;
+    }
+
+    @Override
+    Entity invoke(Entity arg, Continuation cont) throws GleamException {
+        cont.pop();
+        // the values may be shared with a captured continuation
+        Entity[] values = cont.captures == captures ? this.values : this.values.clone();
+        values[index] = arg;
+        return bind((List) bindings.getCdr(), values, index + 1, layout, frame, body, env, cont);
+    }
+
+    /**
+     * Evaluates a let form: the init expressions are evaluated in the
+     * current environment, then the body is evaluated in a new frame.
+     * @param bindings the bindings, as in ((var init) ...)
+     * @param body the let body
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the let form, or null if the continuation has
+     * been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluate(List bindings, List body, Environment env, Continuation cont)
+            throws GleamException
+    {
+        FrameLayout layout = FrameLayout.forLet(bindings, body);
+        return bind(bindings, new Entity[layout.required], 0, layout, null, body, env, cont);
+    }
+
+    /**
+     * Evaluates a letrec form: the init expressions are evaluated in a new
+     * frame, where the variables are unassigned; then the variables are
+     * assigned, and the body is evaluated in the same frame.
+     * @param bindings the bindings, as in ((var init) ...)
+     * @param body the letrec body
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the letrec form, or null if the continuation has
+     * been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluateLetrec(List bindings, List body, Environment env, Continuation cont)
+            throws GleamException
+    {
+        FrameLayout layout = FrameLayout.forLet(bindings, body);
+        Frame frame = new Frame(env, layout);
+        return bind(bindings, new Entity[layout.required], 0, layout, frame, body, frame, cont);
+    }
+
+    private static Entity bind(List bindings, Entity[] values, int from, FrameLayout layout, Frame frame,
+                               List body, Environment env, Continuation cont)
+            throws GleamException
+    {
+        int i = from;
+        for (List b = bindings; b != EmptyList.value; b = (List) b.getCdr(), ++i) {
+            Entity init = ((List) ((List) b.getCar()).getCdr()).getCar();
+            if (System.isSimpleExpression(init)) {
+                values[i] = init.eval(env, cont);
+            }
+            else {
+                cont.begin(new LetAction(b, values, i, layout, frame, body, env, cont));
+                return init.eval(env, cont);
+            }
+        }
+
+        Frame bodyFrame = frame != null ? frame : new Frame(env, layout);
+        java.lang.System.arraycopy(values, 0, bodyFrame.slots, 0, values.length);
+        cont.addCommandSequenceActions(body, bodyFrame);
+        return null;
+    }
+}
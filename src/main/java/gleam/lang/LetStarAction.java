@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * Let* binding: receives the value of the init expression of a binding in
+ * a let* form, and binds it in a new frame, where the remaining bindings
+ * (and finally the let* body) are evaluated.
+ */
+public class LetStarAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the bindings, starting with the one whose value is awaited */
+    private final Pair bindings;
+
+    /** the let* body */
+    private final List body;
+
+    private LetStarAction(Pair bindings, List body, Environment env) {
+        super(env);
+        this.bindings = bindings;
+        this.body = body;
+    }
+
+    @Override
+    Entity invoke(Entity arg, Continuation cont) throws GleamException {
+        cont.pop();
+        return bind(bindings, arg, body, env, cont);
+    }
+
+    /**
+     * Evaluates a let* form: each init expression is evaluated in an
+     * environment where the previous bindings are visible, and the body
+     * is evaluated where all the bindings are visible.
+     * @param bindings the bindings, as in ((var init) ...)
+     * @param body the let* body
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the let* form, or null if the continuation has
+     * been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluate(List bindings, List body, Environment env, Continuation cont)
+            throws GleamException
+    {
+        if (bindings == EmptyList.value) {
+            // same as let
+            return LetAction.evaluate(bindings, body, env, cont);
+        }
+        return next((Pair) bindings, body, env, cont);
+    }
+
+    /**
+     * Evaluates the init expression of the first of the given bindings.
+     */
+    private static Entity next(Pair bindings, List body, Environment env, Continuation cont)
+            throws GleamException
+    {
+        while (true) {
+            Entity init = ((List) ((List) bindings.getCar()).getCdr()).getCar();
+            if (!System.isSimpleExpression(init)) {
+                cont.begin(new LetStarAction(bindings, body, env));
+                return init.eval(env, cont);
+            }
+            Frame frame = frame(bindings, init.eval(env, cont), body, env);
+            if (bindings.getCdr() == EmptyList.value) {
+                cont.addCommandSequenceActions(body, frame);
+                return null;
+            }
+            bindings = (Pair) bindings.getCdr();
+            env = frame;
+        }
+    }
+
+    /**
+     * Binds the value of the first of the given bindings, then goes on.
+     */
+    private static Entity bind(Pair bindings, Entity value, List body, Environment env, Continuation cont)
+            throws GleamException
+    {
+        Frame frame = frame(bindings, value, body, env);
+        if (bindings.getCdr() == EmptyList.value) {
+            cont.addCommandSequenceActions(body, frame);
+            return null;
+        }
+        return next((Pair) bindings.getCdr(), body, frame, cont);
+    }
+
+    private static Frame frame(Pair bindings, Entity value, List body, Environment env)
+    {
+        Frame frame = new Frame(env, FrameLayout.forLetStar(bindings, body));
+        frame.slots[0] = value;
+        return frame;
+    }
+}
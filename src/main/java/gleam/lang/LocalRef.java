@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * A compiled reference to a local variable, by lexical address: the number
+ * of environments to go up from the current one (depth), and the position
+ * of the variable in that frame (index).
+ * Local references replace symbols in optimized procedure bodies, to avoid
+ * the lookup of variables by name at run time.
+ */
+public final class LocalRef extends Node
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the variable name */
+    final Symbol symbol;
+
+    /** how many environments to go up */
+    final int depth;
+
+    /** the slot index in the frame */
+    final int index;
+
+    LocalRef(Symbol symbol, int depth, int index)
+    {
+        super(true);
+        this.symbol = symbol;
+        this.depth = depth;
+        this.index = index;
+    }
+
+    /** A local reference evaluates to the current value of the variable */
+    @Override
+    public Entity eval(Environment env, Continuation cont)
+    {
+        Environment e = env;
+        for (int i = depth; i > 0; --i) {
+            e = e.parent;
+        }
+        return ((Frame) e).slots[index];
+    }
+
+    /** Writes this local reference as the variable name */
+    @Override
+    public void write(PrintWriter out)
+    {
+        symbol.write(out);
+    }
+}
@@ -39,14 +39,18 @@ import java.io.PrintWriter;
  * a variable. Locations are used in compiled Scheme code to avoid interpreted
  * (non constant-time) lookup and set operations on variables.
  */
-public final class Location extends AbstractEntity
+public class Location extends AbstractEntity
 {
     /**
      * serialVersionUID
      */
     private static final long serialVersionUID = 1L;
 
-    private Entity value;
+    /**
+     * the value, or null if unbound; volatile, as a global variable may be
+     * defined in a thread and read in another
+     */
+    private volatile Entity value;
 
     /**
      * Location constructor.
@@ -55,10 +59,26 @@ public final class Location extends AbstractEntity
         this.value = value;
     }
 
+    /**
+     * Creates an unbound location, i.e. a cell for a variable that is
+     * referenced before it is defined. A later definition of the variable
+     * fills this location.
+     */
+    Location() {
+        this.value = null;
+    }
+
+    /**
+     * @return true if a value has been stored in this location
+     */
+    boolean isBound() {
+        return value != null;
+    }
+
     /** Location evaluates to its content value */
     @Override
     public Entity eval(Environment env, Continuation cont) {
-        return value;
+        return get();
     }
 
     /**
@@ -81,9 +101,14 @@ public final class Location extends AbstractEntity
     @Override
     public void write(PrintWriter out)
     {
-        out.write("#<location of ");
-        value.write(out);
-        out.write(">");
+        if (isBound()) {
+            out.write("#<location of ");
+            get().write(out);
+            out.write(">");
+        }
+        else {
+            out.write("#<unbound location>");
+        }
     }
 }
 
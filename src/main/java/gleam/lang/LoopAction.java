@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.util.Arrays;
+
+/**
+ * Loop iteration: executes a do form, or the body of a named let.
+ * All the iterations run in the same frame, whose slots are rebound with
+ * the values of the variables for the next iteration. A new frame is
+ * created only if the current one has been captured, e.g. by a closure
+ * created in the loop body.
+ * The same action waits for the value of each expression in the loop,
+ * and is at the head of the continuation while the last expression of
+ * the body of a named let is evaluated: when the procedure of the named
+ * let is called in tail position, it finds this action and restarts the
+ * loop instead of creating a new frame.
+ * Since the state of this action changes at each step, it is copied when
+ * the continuation has been captured, so that the captured continuation
+ * keeps its own state.
+ */
+public class LoopAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** nothing evaluated yet */
+    private static final int START = 0;
+
+    /** evaluating the init expressions */
+    private static final int INIT = 1;
+
+    /** evaluating the test of a do loop */
+    private static final int TEST = 2;
+
+    /** evaluating the commands of a do loop, or the body of a named let */
+    private static final int BODY = 3;
+
+    /** evaluating the step expressions of a do loop */
+    private static final int STEP = 4;
+
+    /** evaluating the last expression in the body of a named let */
+    private static final int TAIL = 5;
+
+    /** the variable specs, as in ((var init step) ...) */
+    private final List specs;
+
+    /** the test and result expressions of a do loop, or null for a named let */
+    private final Pair clause;
+
+    /** the commands of a do loop, or the body of a named let */
+    private final List body;
+
+    /** the layout of the loop frame */
+    private final FrameLayout layout;
+
+    /** the environment enclosing the loop frame */
+    private final Environment frameParent;
+
+    /** the procedure of a named let, or null for a do loop */
+    private Closure procedure;
+
+    /** the values of the variables, while they are evaluated */
+    private Entity[] values;
+
+    /** the loop frame */
+    private Frame frame;
+
+    /** what is being evaluated */
+    private int phase;
+
+    /** the expressions, or specs, still to evaluate in this phase */
+    private List position;
+
+    /** the index of the variable being evaluated */
+    private int index;
+
+    /** the number of captures of the continuation when this action last ran */
+    private int captures;
+
+    private LoopAction(List specs, Pair clause, List body, FrameLayout layout,
+                       Environment env, Environment frameParent)
+    {
+        super(env);
+        this.specs = specs;
+        this.clause = clause;
+        this.body = body;
+        this.layout = layout;
+        this.frameParent = frameParent;
+        this.values = new Entity[layout.required];
+        this.phase = START;
+    }
+
+    /** Copies a loop action, with its state */
+    private LoopAction(LoopAction other)
+    {
+        super(other.env);
+        this.specs = other.specs;
+        this.clause = other.clause;
+        this.body = other.body;
+        this.layout = other.layout;
+        this.frameParent = other.frameParent;
+        this.procedure = other.procedure;
+        this.values = other.values.clone();
+        this.frame = other.frame;
+        this.phase = other.phase;
+        this.position = other.position;
+        this.index = other.index;
+    }
+
+    /**
+     * Evaluates a do form.
+     * @param specs the variable specs, as in ((var init step) ...)
+     * @param clause the test and the result expressions
+     * @param commands the commands
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the do form, or null if the continuation has
+     * been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluateDo(List specs, Pair clause, List commands, Environment env, Continuation cont)
+            throws GleamException
+    {
+        LoopAction loop = new LoopAction(specs, clause, commands,
+                FrameLayout.forLet(specs, commands), env, env);
+        return loop.start(cont);
+    }
+
+    /**
+     * Evaluates a named let form.
+     * The name is bound to a procedure, whose parameters are the bound
+     * variables, and whose body is the let body, in a frame enclosing the
+     * loop frame.
+     * @param args the arguments of the let form, as in (name bindings body...)
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the named let form, or null if the continuation
+     * has been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluateNamedLet(Pair args, Environment env, Continuation cont)
+            throws GleamException
+    {
+        List bindings = (List) ((Pair) args.getCdr()).getCar();
+        List body = (List) ((Pair) args.getCdr()).getCdr();
+        if (body == EmptyList.value) {
+            throw new GleamException("let: missing body", args);
+        }
+        Frame procedureFrame = new Frame(env, FrameLayout.forNamedLet(args));
+        FrameLayout layout = FrameLayout.forLet(bindings, body);
+        Closure procedure = new Closure(parameters(bindings), body, procedureFrame, layout);
+        procedureFrame.slots[0] = procedure;
+
+        LoopAction loop = new LoopAction(bindings, null, body, layout, env, procedureFrame);
+        loop.procedure = procedure;
+        return loop.start(cont);
+    }
+
+    private static List parameters(List bindings) throws GleamException
+    {
+        if (bindings == EmptyList.value) {
+            return EmptyList.value;
+        }
+        return new Pair(((List) bindings.getCar()).getCar(), parameters((List) bindings.getCdr()));
+    }
+
+    @Override
+    Entity invoke(Entity arg, Continuation cont) throws GleamException {
+        cont.pop();
+        return run(owned(cont), arg, cont);
+    }
+
+    /**
+     * @param closure a procedure
+     * @return true if a call to the given procedure, with this action at
+     * the head of the continuation, is a tail call that starts the next
+     * iteration of this loop
+     */
+    boolean iterates(Closure closure)
+    {
+        return phase == TAIL && procedure == closure;
+    }
+
+    /**
+     * Starts the next iteration of a named let, with new values for the
+     * variables. This action must be at the head of the continuation.
+     * @param args the new values
+     * @param cont the current continuation
+     * @return a value for this action
+     */
+    Entity restart(Entity[] args, Continuation cont)
+    {
+        LoopAction loop = owned(cont);
+        if (loop != this) {
+            cont.pop();
+            cont.begin(loop);
+        }
+        loop.bind(args);
+        loop.phase = BODY;
+        loop.position = loop.body;
+        return Void.value;
+    }
+
+    private Entity start(Continuation cont) throws GleamException
+    {
+        captures = cont.captures;
+        return run(this, null, cont);
+    }
+
+    /**
+     * Runs a loop, as long as expressions can be evaluated inline.
+     * @param loop the loop action
+     * @param value the value of the last expression evaluated
+     * @param cont the current continuation, whose head is the action after
+     *             the loop action
+     */
+    private static Entity run(LoopAction loop, Entity value, Continuation cont)
+            throws GleamException
+    {
+        while (true) {
+            if (loop.phase == TAIL) {
+                return value;
+            }
+            if (loop.phase == TEST && value != Boolean.falseValue) {
+                return loop.result(cont);
+            }
+            loop.consume(value);
+
+            Entity expr = loop.nextExpression();
+            Environment exprEnv = loop.phase == INIT ? loop.env : loop.frame;
+            if (System.isSimpleExpression(expr)) {
+                value = expr.eval(exprEnv, cont);
+                continue;
+            }
+            cont.begin(loop);
+            value = expr.eval(exprEnv, cont);
+            if (value == null || cont.head() != loop) {
+                return value;
+            }
+            // evaluated without changing the continuation: go on here
+            cont.pop();
+            loop = loop.owned(cont);
+        }
+    }
+
+    /**
+     * Takes the value of the last expression evaluated.
+     */
+    private void consume(Entity value) throws GleamException
+    {
+        switch (phase) {
+            case START:
+                phase = INIT;
+                position = specs;
+                index = 0;
+                break;
+            case INIT:
+            case STEP:
+                values[index++] = value;
+                position = (List) position.getCdr();
+                break;
+            case TEST:
+                // the test is false
+                phase = BODY;
+                position = body;
+                break;
+            default:
+                // the value of a command is ignored
+                break;
+        }
+    }
+
+    /**
+     * Moves to the next expression to evaluate.
+     * @return the expression
+     */
+    private Entity nextExpression() throws GleamException
+    {
+        while (true) {
+            if (phase == INIT) {
+                if (position != EmptyList.value) {
+                    return ((List) ((List) position.getCar()).getCdr()).getCar();
+                }
+                bind(values);
+                if (clause != null) {
+                    phase = TEST;
+                    return clause.getCar();
+                }
+                phase = BODY;
+                position = body;
+            }
+            else if (phase == BODY) {
+                if (position == EmptyList.value) {
+                    // end of the commands of a do loop
+                    phase = STEP;
+                    position = specs;
+                    index = 0;
+                    continue;
+                }
+                Entity expr = position.getCar();
+                position = (List) position.getCdr();
+                if (clause == null && position == EmptyList.value) {
+                    phase = TAIL;
+                }
+                return expr;
+            }
+            else {
+                // STEP
+                while (position != EmptyList.value) {
+                    List step = (List) ((List) ((List) position.getCar()).getCdr()).getCdr();
+                    if (step != EmptyList.value) {
+                        return step.getCar();
+                    }
+                    // no step: the variable keeps its value
+                    values[index] = frame.slots[index];
+                    ++index;
+                    position = (List) position.getCdr();
+                }
+                bind(values);
+                phase = TEST;
+                return clause.getCar();
+            }
+        }
+    }
+
+    /**
+     * Binds the variables of the loop to new values, reusing the loop
+     * frame, unless it has been captured.
+     */
+    private void bind(Entity[] newValues)
+    {
+        if (frame == null || frame.captured) {
+            frame = new Frame(frameParent, layout);
+        }
+        else {
+            // variables defined in the body are not defined yet
+            Arrays.fill(frame.slots, newValues.length, frame.slots.length, Undefined.value);
+        }
+        java.lang.System.arraycopy(newValues, 0, frame.slots, 0, newValues.length);
+    }
+
+    /**
+     * Evaluates the result expressions of a do loop.
+     */
+    private Entity result(Continuation cont) throws GleamException
+    {
+        List exprs = (List) clause.getCdr();
+        if (exprs == EmptyList.value) {
+            return Void.value;
+        }
+        if (exprs.getCdr() == EmptyList.value) {
+            return exprs.getCar().eval(frame, cont);
+        }
+        cont.addCommandSequenceActions(exprs, frame);
+        return null;
+    }
+
+    /**
+     * Gets an action, with the state of this one, that can be changed:
+     * if the continuation has been captured since this action last ran,
+     * the captured continuation may hold this action and the loop frame,
+     * so they are left as they are, and a copy is returned.
+     */
+    private LoopAction owned(Continuation cont)
+    {
+        if (cont.captures == captures) {
+            return this;
+        }
+        if (frame != null) {
+            frame.captured = true;
+        }
+        LoopAction copy = new LoopAction(this);
+        copy.captures = cont.captures;
+        return copy;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import java.io.PrintWriter;
+
+/**
+ * The values returned by a call to values with other than one argument.
+ * Multiple values are passed along the continuation as a single entity,
+ * the way a single value is, until they reach a receiver, e.g. the
+ * consumer of call-with-values, or the formals of a receive form, which
+ * takes them apart. A single value is never wrapped: it is passed as is.
+ */
+public final class MultipleValues extends AbstractEntity
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the values */
+    private final Entity[] values;
+
+    /**
+     * Creates new multiple values.
+     *
+     * @param values the values, which must not change afterwards
+     */
+    public MultipleValues(Entity... values)
+    {
+        this.values = values;
+    }
+
+    /**
+     * Gives the value delivered by a number of arguments to a continuation:
+     * the argument itself if it is only one, multiple values otherwise.
+     *
+     * @param args the arguments, which are copied if needed
+     * @return the value to pass along the continuation
+     */
+    public static Entity of(Entity[] args)
+    {
+        return args.length == 1 ? args[0] : new MultipleValues(args.clone());
+    }
+
+    /**
+     * Gets the values held by an entity: the multiple values themselves,
+     * or the entity as the only value.
+     *
+     * @param value a value returned by an expression
+     * @return the values, which must not be modified
+     */
+    static Entity[] spread(Entity value)
+    {
+        return value instanceof MultipleValues
+                ? ((MultipleValues) value).values
+                : new Entity[] {value};
+    }
+
+    /**
+     * Writes the values, separated by spaces.
+     */
+    @Override
+    public void write(PrintWriter out)
+    {
+        for (int i = 0; i < values.length; ++i) {
+            if (i > 0) {
+                out.write(' ');
+            }
+            values[i].write(out);
+        }
+    }
+
+    /**
+     * Displays the values, separated by spaces.
+     */
+    @Override
+    public void display(PrintWriter out)
+    {
+        for (int i = 0; i < values.length; ++i) {
+            if (i > 0) {
+                out.write(' ');
+            }
+            values[i].display(out);
+        }
+    }
+}
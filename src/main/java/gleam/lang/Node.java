@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * Executable code, as compiled by the optimizer from the data read as a
+ * program: each kind of expression has a node class of its own (constants,
+ * variable references, procedure calls, special forms), whose evaluation
+ * only does what that kind of expression needs, on the usual continuation
+ * machinery. Nodes are built once, when an expression is optimized, so
+ * that the source data is not walked again each time it is evaluated.
+ * A node is written as the form it has been compiled from.
+ */
+public abstract class Node extends AbstractEntity
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** true if the evaluation of this node never changes the continuation */
+    final boolean simple;
+
+    Node(boolean simple)
+    {
+        this.simple = simple;
+    }
+}
@@ -51,6 +51,19 @@ public class Pair extends AbstractEntity implements List {
     private Entity cdr;
     boolean analyzed;
 
+    /**
+     * the cached expansion of this form; it is cached without locking, so
+     * it is replaced as a whole, never changed
+     */
+    private transient Expansion expansion;
+
+    /**
+     * what has been compiled from the code starting at this pair, e.g. the
+     * layout of a frame or the dispatch table of a case form; it is cached
+     * without locking, so it must only have final fields
+     */
+    transient Object compiled;
+
     public Pair(Entity head, Entity tail)
     {
         this.car = head;
@@ -71,11 +84,13 @@ public class Pair extends AbstractEntity implements List {
     @Override
     public void setCar(Entity obj) {
         car = obj;
+        clearExpansion();
     }
 
     @Override
     public void setCdr(Entity obj) {
         cdr = obj;
+        clearExpansion();
     }
 
     /**
@@ -86,6 +101,12 @@ public class Pair extends AbstractEntity implements List {
         throws GleamException
     {
         if (!analyzed) {
+            /* the operands of a syntax rewriter are not code, e.g. the
+             * clauses of a guard: the expansion is analyzed instead */
+            if (getCar() instanceof Symbol
+                    && lookupOrNull(env, (Symbol) getCar()) instanceof SyntaxRewriter) {
+                return this;
+            }
             if (getCar() instanceof Symbol && System.isSpecialForm((Symbol) getCar(), env)) {
                 /* we have a special form, so let's
                  * perform syntax analysis
@@ -141,64 +162,84 @@ public class Pair extends AbstractEntity implements List {
     public Entity eval(Environment env, Continuation cont)
         throws GleamException
     {
-        ListIterator it = new ListIterator(this);
-        // operator
-        Entity operator = it.next();
+        Entity operator = getCar();
+        // the value of the operator, if evaluated here
+        Entity procedure = null;
 
         /* check for special forms or syntax rewriters */
         if (operator instanceof Symbol) {
             Entity e = env.lookup( (Symbol) operator);
+            procedure = e;
             if (e instanceof SyntaxRewriter) {
                 // call of syntax rewriter, will be followed by evaluation of resulting expression
-                rewriteAndEval((SyntaxRewriter) e, new ArgumentList(), env, cont);
-                return null;
+                return rewriteAndEval((SyntaxRewriter) e, env, cont);
             }
             else if (e instanceof SyntaxProcedure) {
                 // special procedure call
                 // don't evaluate arguments at all!
-                cont
-                    .begin(new ExpressionAction(operator, env))
-                    .andThen(new ProcedureCallAction(new ArgumentList((List) this.getCdr()), env));
-
-                return null;
+                return ((SyntaxProcedure) e).apply((List) this.getCdr(), env, cont);
             }
         }
         else if (operator instanceof Location) {
             Entity e = ( (Location) operator).get();
+            procedure = e;
             if (e instanceof SyntaxRewriter) {
                 // call of syntax rewriter, will be followed by evaluation of resulting expression
-                rewriteAndEval((SyntaxRewriter) e, new ArgumentList(), env, cont);
-                return null;
+                return rewriteAndEval((SyntaxRewriter) e, env, cont);
             }
         }
 
-        /* we have a regular procedure call */
-        ArgumentList argList = new ArgumentList();
-        Action action = cont.beginSequence();
-
-        // evaluate each argument
-        int argidx = 0;
-        while (it.hasNext()) {
-            Entity nextArg = it.next();
-            action = action
-                    .andThen(new ExpressionAction(nextArg, env))
-                    .andThen(new ObtainArgumentAction(argList, argidx++, env));
-        }
-        action = action
-                .andThen(new ExpressionAction(operator, env))
-                .andThen(new ProcedureCallAction(argList, env));
-
-        cont.endSequence();
-        return null;
+        /* we have a regular procedure call, of a form that has not been
+         * optimized (e.g., whose operator is itself an application)
+         */
+        CallSite callSite = new CallSite(this, operator, ArgumentList.toArray((List) getCdr()));
+        return callSite.call(procedure, env, cont);
     }
 
-    private void rewriteAndEval(SyntaxRewriter syntaxRewriter, ArgumentList args, Environment env, Continuation cont) {
-        cont
-                .begin(new ExpressionAction(syntaxRewriter, env))
-                .andThen(new ProcedureCallAction(args, env))
-                .andThen(new EvalAction(env));
+    /**
+     * Evaluates the expansion of this form.
+     * The expansion is computed only the first time, or when the binding of
+     * the syntax rewriter has changed since the last expansion, or when the
+     * form is evaluated in an environment of another shape, e.g. by eval;
+     * otherwise, the cached expansion is evaluated directly.
+     */
+    private Entity rewriteAndEval(SyntaxRewriter syntaxRewriter, Environment env, Continuation cont)
+        throws GleamException
+    {
+        Expansion cached = expansion;
+        if (cached != null && cached.fits(syntaxRewriter, env)) {
+            return cached.code.eval(env, cont);
+        }
+        ArgumentList args = new ArgumentList(1);
+        cont.begin(new ExpansionAction(this, syntaxRewriter, env));
+        cont.begin(new ProcedureCallAction(args, env));
+        cont.begin(new ExpressionAction(syntaxRewriter, env));
         // pass this pair, not evaluated
         args.set(0, this);
+        return null;
+    }
+
+    /**
+     * Caches the expansion of this form, as produced by a syntax rewriter.
+     * The expansion is analyzed and optimized once, before being cached.
+     *
+     * @param rewriter the syntax rewriter that produced the expansion
+     * @param value the expansion
+     * @param env the environment of evaluation of this form
+     * @return the analyzed and optimized expansion
+     * @throws GleamException in case of syntax error in the expansion
+     */
+    Entity setExpansion(SyntaxRewriter rewriter, Entity value, Environment env)
+        throws GleamException
+    {
+        Entity code = value.analyze(env).optimize(env);
+        expansion = new Expansion(rewriter, env, code);
+        return code;
+    }
+
+    private void clearExpansion() {
+        expansion = null;
+        compiled = null;
     }
 
     /**
@@ -208,20 +249,20 @@ public class Pair extends AbstractEntity implements List {
     public Entity optimize(Environment env)
         throws GleamException
     {
-        /* first check for special forms */
+        /* if the operator is a syntax rewriter, we must not optimize */
+        if ((getCar() instanceof SyntaxRewriter) ||
+            (getCar() instanceof Symbol && lookupOrNull(env, (Symbol) getCar()) instanceof SyntaxRewriter)) {
+            return this;
+        }
+
+        /* then check for special forms */
         if (getCar() instanceof Symbol && System.isSpecialForm( (Symbol) getCar(), env)) {
             // we have a special form, so let's perform
             // specific optimization
             // -- may change retVal.{car|cdr}
-//          System.optimizeSpecialForm(retVal, env);
-//          return retVal;
-            return this;
-        }
-
-        /* if the operator is a syntax rewriter, we must not optimize */
-        if ((getCar() instanceof SyntaxRewriter) ||
-            (getCar() instanceof Symbol && env.lookup( (Symbol) getCar()) instanceof SyntaxRewriter)) {
-            return this;
+            Pair retVal = new Pair(getCar(), getCdr());
+            System.optimizeSpecialForm(retVal, env);
+            return System.compileSpecialForm(retVal);
         }
 
         /* if the operator is itself an application, then it could
@@ -232,46 +273,33 @@ public class Pair extends AbstractEntity implements List {
             return this;
         }
 
-        /* we must not modify in place, since this pair must remain
-         * a valid data structure after optimization (think eval)
-         */
-        Pair retVal = new Pair(getCar(), getCdr());
-
         /* so we have a simple procedure application:
-         * first optimize car, then cdr
+         * we must not modify in place, since this pair must remain
+         * a valid data structure after optimization (think eval),
+         * so we compile it to a call site holding the optimized operator
+         * and operands
          */
-        retVal.setCar(retVal.getCar().optimize(env));
-
-        /* we can't simply do: retVal.cdr = retVal.cdr.optimize(env)
-         * but we must traverse the cdr list ourselves at this level,
-         * otherwise (f1 f2 f3) would be optimized as (f1 (f2 (f3)),
-         * which is wrong.
-         *
-         * this also means that we must allocate new pairs for tail
-         * here.
-         */
-        Entity rest = retVal.getCdr();
-        List restParent = retVal;
-        while (rest != EmptyList.value) {
-            if (rest instanceof List) {
-                // this is a proper list
-                List restAsList = (List) rest;
-                rest = new Pair(restAsList.getCar(), restAsList.getCdr());
-                restParent.setCdr(rest);
-                restParent = restAsList;
-                restAsList.setCar(restAsList.getCar().optimize(env));
-                rest = restAsList.getCdr();
-            }
-            else {
-                /* this is an improper list
-                 * (not necessarily an error: e.g., lambda)
-                 */
-                Logger.enter(INFO, "dotted pair in optimize... check for correctness");
-                restParent.setCdr(rest.optimize(env));
-                break;
-            }
+        if (!(getCdr() instanceof List)) {
+            return this;
+        }
+        Entity[] operands;
+        try {
+            operands = ArgumentList.toArray((List) getCdr());
+        }
+        catch (ImproperListException e) {
+            Logger.enter(INFO, "dotted pair in optimize... check for correctness");
+            return this;
+        }
+        for (int i = 0; i < operands.length; ++i) {
+            operands[i] = operands[i].optimize(env);
         }
-        return retVal;
+        return new CallSite(this, getCar().optimize(env), operands);
+    }
+
+    private static Entity lookupOrNull(Environment env, Symbol s)
+    {
+        Location location = env.getLocationOrNull(s);
+        return location == null ? null : location.get();
     }
 
     /**
@@ -338,4 +366,63 @@ public class Pair extends AbstractEntity implements List {
     public Iterator<Entity> iterator() {
         return new ListIterator(this);
     }
+
+    /**
+     * An expansion of a form, with the syntax rewriter that produced it
+     * and the shape of the environment it has been optimized in: the
+     * layouts of the frames, since local variables are compiled to frame
+     * slots, and the first environment that is not a frame.
+     * All fields are final, so that an expansion cached by one thread is
+     * seen whole by the others.
+     */
+    private static final class Expansion
+    {
+        /** the syntax rewriter that produced the expansion */
+        final SyntaxRewriter rewriter;
+
+        /** the layouts of the frames, innermost first */
+        private final FrameLayout[] layouts;
+
+        /** the environment enclosing the frames */
+        private final Environment scope;
+
+        /** the expansion, already analyzed and optimized */
+        final Entity code;
+
+        Expansion(SyntaxRewriter rewriter, Environment env, Entity code)
+        {
+            int n = 0;
+            Environment e = env;
+            for (; e instanceof Frame; e = e.parent) {
+                ++n;
+            }
+            this.rewriter = rewriter;
+            this.layouts = new FrameLayout[n];
+            this.scope = e;
+            this.code = code;
+            e = env;
+            for (int i = 0; i < n; ++i, e = e.parent) {
+                layouts[i] = ((Frame) e).layout;
+            }
+        }
+
+        /**
+         * @return true if this expansion can be evaluated for the given
+         * rewriter in the given environment
+         */
+        boolean fits(SyntaxRewriter r, Environment env)
+        {
+            if (r != rewriter) {
+                return false;
+            }
+            Environment e = env;
+            for (FrameLayout layout : layouts) {
+                if (!(e instanceof Frame) || ((Frame) e).layout != layout) {
+                    return false;
+                }
+                e = e.parent;
+            }
+            return e == scope;
+        }
+    }
 }
@@ -26,10 +26,21 @@
 
 package gleam.lang;
 
+import gleam.library.Booleans;
+import gleam.library.Characters;
+import gleam.library.Equivalence;
+import gleam.library.Numbers;
+import gleam.library.PairsAndLists;
 import gleam.library.Primitive;
+import gleam.library.Strings;
+import gleam.library.Symbols;
+import gleam.library.Vectors;
 
 import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Set;
 
 /**
  * Scheme primitive library procedure.
@@ -41,6 +52,12 @@ public class PrimitiveProcedure extends Procedure
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * the primitives that compute their value from their arguments only,
+     * and never use the continuation
+     */
+    private static final Set<Primitive> DIRECT = directPrimitives();
+
     protected final Primitive value;
 
     /**
@@ -54,6 +71,10 @@ public class PrimitiveProcedure extends Procedure
     public Entity apply(List arg, Environment env, Continuation cont)
         throws GleamException
     {
+        if (!value.keyword) {
+            // evaluated arguments: go the array way
+            return apply(ArgumentList.toArray(arg), env, cont);
+        }
         if (value.maxArgs < 0 || value.maxArgs > 3) {
             if (value.minArgs >= 0 || value.maxArgs >= 0) {
                 checkNumArgs(arg);
@@ -73,15 +94,46 @@ public class PrimitiveProcedure extends Procedure
         if (countedArgs < value.minArgs) {
             throw new GleamException(value, "too few arguments", arg);
         }
+        return applyFixed(argArray[0], argArray[1], argArray[2], env, cont);
+    }
+
+    @Override
+    public Entity apply(Entity[] args, Environment env, Continuation cont)
+        throws GleamException
+    {
+        int count = args.length;
+        if (count < value.minArgs) {
+            throw new GleamException(value, "too few arguments", ArgumentList.toList(args, 0));
+        }
+        if (value.maxArgs < 0 || value.maxArgs > 3) {
+            if (value.maxArgs >= 0 && count > value.maxArgs) {
+                throw new GleamException(value, "too many arguments", ArgumentList.toList(args, 0));
+            }
+            return value.applyN(args, env, cont);
+        }
+        // ok, 0 <= maxArgs <= 3 : missing arguments are null
+        if (count > value.maxArgs) {
+            throw new GleamException(value, "too many arguments", ArgumentList.toList(args, 0));
+        }
+        return applyFixed(
+                count > 0 ? args[0] : null,
+                count > 1 ? args[1] : null,
+                count > 2 ? args[2] : null,
+                env, cont);
+    }
+
+    private Entity applyFixed(Entity arg1, Entity arg2, Entity arg3, Environment env, Continuation cont)
+        throws GleamException
+    {
         switch (value.maxArgs) {
             case 0:
                 return value.apply0(env, cont);
             case 1:
-                return value.apply1(argArray[0], env, cont);
+                return value.apply1(arg1, env, cont);
             case 2:
-                return value.apply2(argArray[0], argArray[1], env, cont);
+                return value.apply2(arg1, arg2, env, cont);
             default: // 3
-                return value.apply3(argArray[0], argArray[1], argArray[2], env, cont);
+                return value.apply3(arg1, arg2, arg3, env, cont);
         }
     }
 
@@ -107,4 +159,36 @@ public class PrimitiveProcedure extends Procedure
             }
         }
     }
+
+    /**
+     * Tells whether a primitive computes its value from its arguments
+     * only, without using the continuation: a call to such a primitive
+     * can be evaluated in place, with no actions, wherever it appears.
+     *
+     * @param primitive a primitive
+     * @return true if the primitive never uses the continuation
+     */
+    static boolean isDirect(Primitive primitive)
+    {
+        return DIRECT.contains(primitive);
+    }
+
+    private static Set<Primitive> directPrimitives()
+    {
+        Set<Primitive> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        Primitive[][] libraries = {
+                Booleans.primitives,
+                Characters.primitives,
+                Equivalence.primitives,
+                Numbers.primitives,
+                PairsAndLists.primitives,
+                Strings.primitives,
+                Symbols.primitives,
+                Vectors.primitives
+        };
+        for (Primitive[] library : libraries) {
+            Collections.addAll(set, library);
+        }
+        return set;
+    }
 }
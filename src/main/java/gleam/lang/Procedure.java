@@ -34,4 +34,16 @@ public abstract class Procedure extends AbstractEntity
     public abstract Entity
         apply(List args, Environment env, Continuation cont)
             throws GleamException;
+
+    /**
+     * Applies this procedure to an array of already evaluated arguments.
+     * The array belongs to the caller, and must not be retained.
+     * The default implementation passes the arguments as a list.
+     */
+    public Entity
+        apply(Entity[] args, Environment env, Continuation cont)
+            throws GleamException
+    {
+        return apply(ArgumentList.toList(args, 0), env, cont);
+    }
 }
@@ -35,32 +35,36 @@ public class ProcedureCallAction extends Action {
 
     private final ArgumentList arglist;
 
-    /** Creates a new instance of this action */
-    public ProcedureCallAction(ArgumentList arglist, Environment env, Action next) {
-        super(env, next);
-        this.arglist = arglist;
-    }
-
     /** Creates a new instance of this action */
     public ProcedureCallAction(ArgumentList arglist, Environment env) {
-        this(arglist, env, null);
+        super(env);
+        this.arglist = arglist;
     }
 
     // arg is the function, arglist contains the arguments
     @Override
     Entity invoke(Entity arg, Continuation cont) throws gleam.lang.GleamException {
-        cont.head = next;
+        cont.pop();
         // apply function to args, return result
-        Procedure operator;
+        Procedure operator = toProcedure(arg);
+        trace(out -> out.printf("%s\n", arg.toWriteFormat()), env, cont);
+        return arglist.applyTo(operator, env, cont);
+    }
+
+    /**
+     * Checks that the value of an operator is a procedure.
+     * @param operator the value of the operator
+     * @return the procedure
+     * @throws GleamException if the operator is not a procedure
+     */
+    static Procedure toProcedure(Entity operator) throws GleamException {
         try {
-            operator = (Procedure) arg;
+            return (Procedure) operator;
         }
         catch (ClassCastException ex) {
             throw new GleamException(
                       "procedure call: operator is not a procedure",
-                      arg);
+                      operator);
         }
-        trace(out -> out.printf("%s\n", arg.toWriteFormat()), env);
-        return operator.apply(arglist.getArguments(), env, cont);
     }
 }
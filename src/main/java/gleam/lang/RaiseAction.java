@@ -26,37 +26,37 @@
 
 package gleam.lang;
 
-public class ObtainArgumentAction extends Action {
-
+/**
+ * An Action that follows the call to an exception handler for a
+ * non-continuable raise: if the handler returns, it raises a secondary
+ * exception, in the dynamic environment of the handler.
+ */
+public class RaiseAction extends Action {
     /**
      * serialVersionUID
      */
-    private static final long serialVersionUID = 2L;
-
-    private final ArgumentList arglist;
+    private static final long serialVersionUID = 1L;
 
-    private final int argumentIndex;
-
-    /** Creates a new instance of this action */
-    public ObtainArgumentAction(ArgumentList arglist, int argumentIndex, Environment env, Action next) {
-        super(env, next);
-        this.arglist = arglist;
-        this.argumentIndex = argumentIndex;
-    }
+    /** the object originally raised */
+    private final Entity obj;
 
     /** Creates a new instance of this action */
-    public ObtainArgumentAction(ArgumentList arglist, int argumentIndex, Environment env) {
-        this(arglist, argumentIndex, env, null);
+    RaiseAction(Entity obj, Environment env) {
+        super(env);
+        this.obj = obj;
     }
 
+    /** Invokes this action, raising a secondary exception
+     * @param arg the value of the handler, ignored
+     * @param cont the current Continuation
+     * @return never
+     * @throws gleam.lang.GleamException always
+    */
     @Override
     Entity invoke(Entity arg, Continuation cont)
-            throws GleamException
+        throws GleamException
     {
-        cont.head = next;
-        // arg is already evaluated
-        arglist.set(argumentIndex, arg);
-        trace(out -> out.printf("[%s] <- %s\n", argumentIndex, arg.toWriteFormat()), env);
-        return arg;
+        cont.pop();
+        throw new GleamException("exception handler returned from non-continuable raise", obj);
     }
 }
@@ -29,6 +29,7 @@ package gleam.lang;
 import gleam.util.Logger;
 
 import java.io.StreamTokenizer;
+import java.math.BigInteger;
 
 import static gleam.util.Logger.Level.FINE;
 
@@ -179,6 +180,26 @@ class Reader {
         }
     }
 
+    /**
+     * Parses a numeric literal: an exact integer if made only of digits,
+     * with an optional sign, a real otherwise.
+     */
+    private static Number parseNumber(String t)
+    {
+        int start = t.charAt(0) == '+' || t.charAt(0) == '-' ? 1 : 0;
+        for (int i = start; i < t.length(); ++i) {
+            char c = t.charAt(i);
+            if (c < '0' || c > '9') {
+                return new Real(Double.parseDouble(t));
+            }
+        }
+        if (t.length() - start < 19) {
+            // fits in a long
+            return Fixnum.makeFixnum(Long.parseLong(t));
+        }
+        return Bignum.makeInteger(new BigInteger(t));
+    }
+
     private Entity readOthers(String t)
         throws GleamException, java.io.IOException
     {
@@ -188,7 +209,7 @@ class Reader {
         && !t.equals("...")) {
             try {
                 logReadOthers(t, "number");
-                return new Real(Double.parseDouble(t));
+                return parseNumber(t);
             }
             catch (NumberFormatException e) {
                 throw new GleamException("read: invalid number " + t);
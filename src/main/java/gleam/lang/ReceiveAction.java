@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * Receive (as in SRFI 8): receives the values of the expression of a
+ * receive form, and evaluates the body in a frame where the formals are
+ * bound to them, as the parameters of a procedure would be to its
+ * arguments. Multiple values go from the expression to the frame without
+ * being gathered in a list, or in a closure call.
+ */
+public class ReceiveAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the layout of the new frame */
+    private final FrameLayout layout;
+
+    /** the body */
+    private final List body;
+
+    private ReceiveAction(FrameLayout layout, List body, Environment env)
+    {
+        super(env);
+        this.layout = layout;
+        this.body = body;
+    }
+
+    @Override
+    Entity invoke(Entity arg, Continuation cont) throws GleamException {
+        cont.pop();
+        return bind(arg, layout, body, env, cont);
+    }
+
+    /**
+     * Evaluates a receive form: the expression is evaluated in the current
+     * environment, then the body is evaluated in a new frame.
+     * @param formals the formals, as in a lambda form
+     * @param expr the expression
+     * @param body the receive body
+     * @param env the environment of evaluation
+     * @param cont the current continuation
+     * @return the value of the receive form, or null if the continuation
+     * has been changed
+     * @throws GleamException in case of errors
+     */
+    public static Entity evaluate(Entity formals, Entity expr, List body, Environment env, Continuation cont)
+            throws GleamException
+    {
+        FrameLayout layout = FrameLayout.forProcedure(formals, body);
+        if (System.isSimpleExpression(expr)) {
+            return bind(expr.eval(env, cont), layout, body, env, cont);
+        }
+        cont.begin(new ReceiveAction(layout, body, env));
+        return expr.eval(env, cont);
+    }
+
+    private static Entity bind(Entity value, FrameLayout layout, List body, Environment env, Continuation cont)
+            throws GleamException
+    {
+        int required = layout.required;
+        Frame frame = new Frame(env, layout);
+        if (value instanceof MultipleValues) {
+            Entity[] values = MultipleValues.spread(value);
+            checkCount(values.length, layout, value);
+            java.lang.System.arraycopy(values, 0, frame.slots, 0, required);
+            if (layout.rest) {
+                frame.slots[required] = ArgumentList.toList(values, required);
+            }
+        }
+        else {
+            checkCount(1, layout, value);
+            if (required == 1) {
+                frame.slots[0] = value;
+                if (layout.rest) {
+                    frame.slots[1] = EmptyList.value;
+                }
+            }
+            else {
+                frame.slots[0] = new Pair(value, EmptyList.value);
+            }
+        }
+        cont.addCommandSequenceActions(body, frame);
+        return null;
+    }
+
+    private static void checkCount(int count, FrameLayout layout, Entity value)
+            throws GleamException
+    {
+        if (count < layout.required) {
+            throw new GleamException("receive: too few values", value);
+        }
+        if (count > layout.required && !layout.rest) {
+            throw new GleamException("receive: too many values", value);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * An Action that restores the dynamic-wind entries and the exception
+ * handlers in effect, e.g. at the end of the body of a
+ * with-exception-handler, or at the end of a transfer of control to a
+ * continuation, and passes on a value.
+ */
+public class RestoreAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the dynamic-wind entries to restore */
+    private final Continuation.Winder winders;
+
+    /** the exception handlers to restore */
+    private final Continuation.Handler handlers;
+
+    /** the value to pass on, or null to pass on the argument */
+    private final Entity value;
+
+    /** Creates a new instance of this action */
+    RestoreAction(Continuation.Winder winders, Continuation.Handler handlers,
+                  Entity value, Environment env) {
+        super(env);
+        this.winders = winders;
+        this.handlers = handlers;
+        this.value = value;
+    }
+
+    /** Invokes this action, restoring the dynamic environment
+     * @param arg the value to pass on, unless one has been given
+     * @param cont the current Continuation
+     * @return the value
+    */
+    @Override
+    Entity invoke(Entity arg, Continuation cont)
+    {
+        cont.pop();
+        cont.winders = winders;
+        cont.handlers = handlers;
+        return value != null ? value : arg;
+    }
+}
@@ -29,8 +29,10 @@ package gleam.lang;
 import gleam.util.Logger;
 
 import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Scheme symbol factory.
@@ -43,9 +45,16 @@ public final class Symbol extends AbstractEntity
     private static final long serialVersionUID = 1L;
 
     /**
-     * The unique symbol table
+     * The unique symbol table. Lookups take no lock, so that readers in
+     * different threads do not wait for each other. Symbols are referenced
+     * weakly, and a symbol no longer in use anywhere, e.g. one read from a
+     * data file, is collected and removed from the table; the symbols
+     * below, held by static fields, are never collected.
      */
-    static final Map<String, Symbol> symtable = new HashMap<>(512);
+    private static final ConcurrentHashMap<String, Entry> symtable = new ConcurrentHashMap<>(512);
+
+    /** the entries of the collected symbols, to be removed from the table */
+    private static final ReferenceQueue<Symbol> collected = new ReferenceQueue<>();
 
     /*
      * common symbols (some are keywords, some are not)
@@ -53,10 +62,12 @@ public final class Symbol extends AbstractEntity
      */
     public static final Symbol AND = makeSymbol("and");
     public static final Symbol APPEND = makeSymbol("append");
-//    public static final Symbol ARROW = makeSymbol("=>");
+    public static final Symbol ARROW = makeSymbol("=>");
     public static final Symbol BEGIN = makeSymbol("begin");
     public static final Symbol CALL_CC = makeSymbol("call/cc");
     public static final Symbol CALL_WITH_CURRENT_CONTINUATION = makeSymbol("call-with-current-continuation");
+    public static final Symbol CALL_EC = makeSymbol("call/ec");
+    public static final Symbol CALL_WITH_ESCAPE_CONTINUATION = makeSymbol("call-with-escape-continuation");
     public static final Symbol CASE = makeSymbol("case");
     public static final Symbol COND = makeSymbol("cond");
     public static final Symbol CONS = makeSymbol("cons");
@@ -75,6 +86,7 @@ public final class Symbol extends AbstractEntity
     public static final Symbol OR = makeSymbol("or");
     public static final Symbol QUASIQUOTE = makeSymbol("quasiquote");
     public static final Symbol QUOTE = makeSymbol("quote");
+    public static final Symbol RECEIVE = makeSymbol("receive");
     public static final Symbol SET = makeSymbol("set!");
     public static final Symbol UNQUOTE = makeSymbol("unquote");
     public static final Symbol UNQUOTE_SPLICING = makeSymbol("unquote-splicing");
@@ -124,15 +136,41 @@ public final class Symbol extends AbstractEntity
     /**
      * Factory method to create and intern a symbol.
      */
-    public synchronized static Symbol makeSymbol(String s)
+    public static Symbol makeSymbol(String s)
     {
-        Symbol o = symtable.get(s);
-        if (o == null) {
-            o = new Symbol(s);
-            symtable.put(s, o);
+        Entry entry = symtable.get(s);
+        Symbol o;
+        if (entry != null && (o = entry.get()) != null) {
+            return o;
+        }
+        removeCollected();
+        Symbol created = new Symbol(s);
+        Entry newEntry = new Entry(created);
+        while (true) {
+            entry = symtable.putIfAbsent(s, newEntry);
+            if (entry == null) {
+                return created;
+            }
+            if ((o = entry.get()) != null) {
+                // interned meanwhile by another thread
+                return o;
+            }
+            if (symtable.replace(s, entry, newEntry)) {
+                // the entry of a collected symbol
+                return created;
+            }
         }
+    }
 
-        return o;
+    /**
+     * Removes the entries of the symbols collected so far.
+     */
+    private static void removeCollected()
+    {
+        Reference<? extends Symbol> ref;
+        while ((ref = collected.poll()) != null) {
+            symtable.remove(((Entry) ref).name, ref);
+        }
     }
 
     /**
@@ -157,23 +195,40 @@ public final class Symbol extends AbstractEntity
 
     /**
      * Performs environment optimization on this symbol.
+     * A local variable is compiled to its lexical address in the activation
+     * frame, a global variable to a reference to its Location.
      */
     @Override
     public Entity optimize(Environment env)
     {
-        Location loc = env.getLocationOrNull(this);
-        if (loc == null) {
-            // if unbound, return just the symbol (for syntax rewriters)
-            return this;
-        }
-        if (loc.get() == Undefined.value) {
-            /* this symbol is a function parameter, so let
-             * name resolution take place at run time
-             */
-            return this;
+        int depth = 0;
+        // where the lookup of a global variable starts
+        Environment global = null;
+        for (Environment e = env; e != null; e = e.parent, ++depth) {
+            if (global == null && !(e instanceof Frame)) {
+                global = e;
+            }
+            if (e instanceof Frame) {
+                int index = ((Frame) e).layout.indexOf(this);
+                if (index >= 0) {
+                    return new LocalRef(this, depth, index);
+                }
+            }
+            Location loc = e.localLocation(this);
+            if (loc == null) {
+                continue;
+            }
+            if (loc.get() == Undefined.value || e instanceof Frame) {
+                /* this symbol is defined at run time, so let
+                 * name resolution take place at run time
+                 */
+                return this;
+            }
+            return new GlobalRef(this, global, loc);
         }
 
-        return loc;
+        // if unbound, refer to the location a later definition will fill
+        return new GlobalRef(this, global, global.cell(this));
     }
 
     /** Writes this symbol */
@@ -182,4 +237,17 @@ public final class Symbol extends AbstractEntity
     {
         out.write(value);
     }
+
+    /** An entry of the symbol table, referring to its symbol weakly */
+    private static final class Entry extends WeakReference<Symbol>
+    {
+        /** the name of the symbol, to remove the entry when collected */
+        final String name;
+
+        Entry(Symbol symbol)
+        {
+            super(symbol, collected);
+            this.name = symbol.value;
+        }
+    }
 }
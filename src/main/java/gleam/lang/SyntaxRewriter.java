@@ -44,7 +44,7 @@ public final class SyntaxRewriter extends Closure implements SyntaxObject
     private static final long serialVersionUID = 1L;
 
     public SyntaxRewriter(Closure rewriter) {
-        super(rewriter.param, rewriter.body, rewriter.definitionEnv);
+        super(rewriter.param, rewriter.body, rewriter.definitionEnv, rewriter.layout);
     }
 
     /**
@@ -43,6 +43,20 @@ public final class System
     /** can't instantiate this class */
     private System() {}
 
+    /**
+     * Checks if an expression is simple, i.e., if it can be evaluated
+     * without using the continuation: a literal, a variable, a constant,
+     * a lambda form, or a compiled variable reference, as opposed to a
+     * procedure call or another special form. Simple expressions can be
+     * evaluated inline.
+     *
+     * @param expr the expression to check
+     * @return true if expr is a simple expression
+     */
+    public static boolean isSimpleExpression(Entity expr) {
+        return !(expr instanceof Pair || expr instanceof Node && !((Node) expr).simple);
+    }
+
     /**
      * Checks if a symbol stands for the name of a special form in a given environment.
      *
@@ -91,6 +105,18 @@ public final class System
             }
             return;
         }
+        if (op == Symbol.COND) {
+            // cond is followed by zero or more clauses
+            while (it.hasNext()) {
+                Entity clause = it.next();
+                if (!(clause instanceof Pair)) {
+                    throw new GleamException(
+                            "cond: invalid clause", form);
+                }
+                analyzeCondClause((Pair) clause, !it.hasNext(), form, env);
+            }
+            return;
+        }
 
         // Other special forms have at least an argument, so check for it
         if (!it.hasNext()) {
@@ -108,40 +134,28 @@ public final class System
         }
         else if (op == Symbol.LAMBDA) {
             // analyze param list
-            if (arg == EmptyList.value || isVariable(arg)) {
-                // ok
-                it.replace(arg.analyze(env));
+            it.replace(analyzeParams(arg, "lambda", form, env));
+            // analyze body
+            if (!it.hasNext()) {
+                throw new GleamException(
+                        "lambda: missing procedure body", form);
             }
-            else if (arg instanceof List) {
-                // iterate over (possibly improper) list
-                ListIterator ait = new ListIterator( (List) arg, true);
-                Collection<Symbol> paramSet = new HashSet<>();
-                while (ait.hasNext()) {
-                    Entity pobj = ait.next();
-                    if (!isVariable(pobj)) {
-                        throw new GleamException(
-                                "lambda: procedure parameter is not a variable",
-                                form);
-                    }
-                    Symbol param = (Symbol) pobj;
-                    if (paramSet.contains(param)) {
-                        throw new GleamException(
-                                "lambda: repeated procedure parameter",
-                                form);
-                    }
-                    paramSet.add(param);
-                    ait.replace(pobj.analyze(env));
-                }
+            while (it.hasNext()) {
+                Entity bodyPart = it.next();
+                it.replace(bodyPart.analyze(env));
             }
-            else {
+        }
+        else if (op == Symbol.RECEIVE) {
+            // analyze formals, then expression, then body
+            it.replace(analyzeParams(arg, "receive", form, env));
+            if (!it.hasNext()) {
                 throw new GleamException(
-                        "lambda: parameter is not a variable nor a variable list",
-                        form);
+                        "receive: missing expression", form);
             }
-            // analyze body
+            it.replace(it.next().analyze(env));
             if (!it.hasNext()) {
                 throw new GleamException(
-                        "lambda: missing procedure body", form);
+                        "receive: missing body", form);
             }
             while (it.hasNext()) {
                 Entity bodyPart = it.next();
@@ -195,13 +209,94 @@ public final class System
                 it.replace(it.next().analyze(env));
             }
         }
-        else if (op == Symbol.COND) {
-        }
         else if (op == Symbol.CASE) {
+            // analyze key
+            it.replace(arg.analyze(env));
+            // case is followed by zero or more clauses
+            while (it.hasNext()) {
+                Entity clause = it.next();
+                if (!(clause instanceof Pair)
+                        || !(((Pair) clause).getCdr() instanceof Pair)) {
+                    throw new GleamException(
+                            "case: invalid clause", form);
+                }
+                Entity datums = ((Pair) clause).getCar();
+                if (datums == Symbol.ELSE) {
+                    if (it.hasNext()) {
+                        throw new GleamException(
+                                "case: else clause must be the last one", form);
+                    }
+                }
+                else if (!(datums instanceof List)) {
+                    throw new GleamException(
+                            "case: invalid datum list", form);
+                }
+                // analyze expressions, not datums
+                ListIterator cit = new ListIterator((List) ((Pair) clause).getCdr());
+                while (cit.hasNext()) {
+                    cit.replace(cit.next().analyze(env));
+                }
+            }
         }
         else if (op == Symbol.LET || op == Symbol.LETSTAR || op == Symbol.LETREC) {
+            if (arg instanceof Symbol && op == Symbol.LET) {
+                // named let: skip the name
+                if (!it.hasNext()) {
+                    throw new GleamException(
+                            "let: missing bindings", form);
+                }
+                arg = it.next();
+            }
+            analyzeBindings(arg, op, form, env);
+            // analyze body
+            if (!it.hasNext()) {
+                throw new GleamException(
+                        String.format("%s: missing body", op.toString()), form);
+            }
+            while (it.hasNext()) {
+                it.replace(it.next().analyze(env));
+            }
         }
         else if (op == Symbol.DO) {
+            // check and analyze variable specs
+            if (!(arg instanceof List)) {
+                throw new GleamException(
+                        "do: invalid variable specs", form);
+            }
+            ListIterator sit = new ListIterator((List) arg);
+            Collection<Symbol> varSet = new HashSet<>();
+            while (sit.hasNext()) {
+                Entity spec = sit.next();
+                if (!(spec instanceof Pair)
+                        || !isVariable(((Pair) spec).getCar())
+                        || !varSet.add((Symbol) ((Pair) spec).getCar())) {
+                    throw new GleamException(
+                            "do: invalid variable spec", form);
+                }
+                ListIterator eit = new ListIterator((List) ((Pair) spec).getCdr());
+                int count = 0;
+                while (eit.hasNext()) {
+                    eit.replace(eit.next().analyze(env));
+                    ++count;
+                }
+                if (count < 1 || count > 2) {
+                    throw new GleamException(
+                            "do: invalid variable spec", form);
+                }
+            }
+            // check and analyze test and result expressions
+            if (!it.hasNext() || !((arg = it.next()) instanceof Pair)) {
+                throw new GleamException(
+                        "do: missing test", form);
+            }
+            ListIterator cit = new ListIterator((List) arg);
+            while (cit.hasNext()) {
+                cit.replace(cit.next().analyze(env));
+            }
+            // analyze commands
+            while (it.hasNext()) {
+                it.replace(it.next().analyze(env));
+            }
         }
 //        else if (op == Symbol.DELAY) {
 //            // delay wants one expression
@@ -290,6 +385,117 @@ public final class System
         }
     }
 
+    /**
+     * Checks the formal parameters of a lambda form, or the formals of a
+     * receive form, and analyzes them.
+     */
+    private static Entity analyzeParams(Entity arg, String op, List form, Environment env)
+            throws GleamException
+    {
+        if (arg == EmptyList.value || isVariable(arg)) {
+            // ok
+            return arg.analyze(env);
+        }
+        else if (arg instanceof List) {
+            // iterate over (possibly improper) list
+            ListIterator ait = new ListIterator( (List) arg, true);
+            Collection<Symbol> paramSet = new HashSet<>();
+            while (ait.hasNext()) {
+                Entity pobj = ait.next();
+                if (!isVariable(pobj)) {
+                    throw new GleamException(
+                            op + ": procedure parameter is not a variable",
+                            form);
+                }
+                Symbol param = (Symbol) pobj;
+                if (paramSet.contains(param)) {
+                    throw new GleamException(
+                            op + ": repeated procedure parameter",
+                            form);
+                }
+                paramSet.add(param);
+                ait.replace(pobj.analyze(env));
+            }
+        }
+        else {
+            throw new GleamException(
+                    op + ": parameter is not a variable nor a variable list",
+                    form);
+        }
+        return arg;
+    }
+
+    /**
+     * Checks the bindings of a let, let* or letrec form, and analyzes the init
+     * expressions.
+     */
+    private static void analyzeBindings(Entity bindings, Entity op, List form, Environment env)
+            throws GleamException
+    {
+        if (!(bindings instanceof List)) {
+            throw new GleamException(
+                    String.format("%s: invalid bindings", op.toString()), form);
+        }
+        ListIterator bit = new ListIterator((List) bindings);
+        Collection<Symbol> varSet = new HashSet<>();
+        while (bit.hasNext()) {
+            Entity binding = bit.next();
+            if (!(binding instanceof Pair)
+                    || !isVariable(((Pair) binding).getCar())
+                    || !(((Pair) binding).getCdr() instanceof Pair)
+                    || ((Pair) ((Pair) binding).getCdr()).getCdr() != EmptyList.value) {
+                throw new GleamException(
+                        String.format("%s: invalid binding", op.toString()), form);
+            }
+            Symbol var = (Symbol) ((Pair) binding).getCar();
+            if (op != Symbol.LETSTAR && !varSet.add(var)) {
+                throw new GleamException(
+                        String.format("%s: repeated variable", op.toString()), form);
+            }
+            Pair init = (Pair) ((Pair) binding).getCdr();
+            init.setCar(init.getCar().analyze(env));
+        }
+    }
+
+    /**
+     * Checks a cond clause, and analyzes its expressions.
+     */
+    private static void analyzeCondClause(Pair clause, boolean last, List form, Environment env)
+            throws GleamException
+    {
+        ListIterator cit = new ListIterator(clause);
+        Entity test = cit.next();
+        if (test == Symbol.ELSE) {
+            if (!last) {
+                throw new GleamException(
+                        "cond: else clause must be the last one", form);
+            }
+            if (!cit.hasNext()) {
+                throw new GleamException(
+                        "cond: empty else clause", form);
+            }
+        }
+        else {
+            cit.replace(test.analyze(env));
+        }
+        if (cit.hasNext() && ((List) clause.getCdr()).getCar() == Symbol.ARROW) {
+            cit.next();
+            if (!cit.hasNext()) {
+                throw new GleamException(
+                        "cond: missing receiver after =>", form);
+            }
+            cit.replace(cit.next().analyze(env));
+            if (cit.hasNext()) {
+                throw new GleamException(
+                        "cond: too many receivers after =>", form);
+            }
+            return;
+        }
+        while (cit.hasNext()) {
+            cit.replace(cit.next().analyze(env));
+        }
+    }
+
     /**
      * Performs optimization of special forms.
      * Creation date: (14/11/2001 02.19.35)
@@ -305,9 +511,8 @@ public final class System
         form.setCdr(clone(form.getCdr()));
 
         ListIterator it = new ListIterator(form);
-        // optimize operator itself
+        // the operator itself is left alone: it must stay a keyword
         Entity op = it.next();
-        it.replace(op.optimize(env));
 
         // form arguments
         Entity arg;
@@ -320,6 +525,13 @@ public final class System
             }
             return;
         }
+        if (op == Symbol.COND) {
+            // optimize tests and expressions, leaving else and => alone
+            while (it.hasNext()) {
+                optimizeCondClause(it.next(), env);
+            }
+            return;
+        }
 
         // Other special forms have at least an argument
         arg = it.next();
@@ -328,116 +540,167 @@ public final class System
             // shall not touch arg, that's the whole point of quote!
         }
         else if (op == Symbol.LAMBDA) {
-            // analyze param list
-
-            /* we scan out the defines in lambda body
+            /* we create a frame with the same layout as the
+             * activation frames of the procedure (params and
+             * scanned-out defines), for the purpose of optimization
+             * only: each reference to a local variable in the body
+             * is compiled to its position in the frame
              */
-            Environment newEnv = createScanOutDefineEnv(form, env);
+            Frame paramEnv = new Frame(env, FrameLayout.forProcedure(arg, (List) it.rest()));
 
-            /* then we create an augmented environment to hold
-             * the param names with undefined values
-             * for the purpose of optimization only
-             */
-            Environment paramEnv = new Environment(newEnv);
-            if (arg == EmptyList.value) {
-                // ok (but different from Pair below)
-            }
-            else if (isVariable(arg)) {
-                // ok, but we add it to paramEnv
-                paramEnv.define( (Symbol) arg, Undefined.value);
-            }
-            else if (arg instanceof List) {
-                // iterate over (possibly improper) list
-                ListIterator ait = new ListIterator( (List) arg, true);
-                while (ait.hasNext()) {
-                    Entity pobj = ait.next();
-                    paramEnv.define( (Symbol) pobj,
-                            Undefined.value);
-                }
-            }
             // optimize body in the new param environment
-            // this will leave each use of the parameters
-            // untouched (because their names are bound to Undefined)
             while (it.hasNext()) {
                 Entity bodyPart = it.next();
                 it.replace(bodyPart.optimize(paramEnv));
             }
         }
+        else if (op == Symbol.RECEIVE) {
+            // the expression is evaluated in the current environment
+            it.replace(it.next().optimize(env));
+            // the body in a frame with the same layout as the receive frame
+            Frame receiveEnv = new Frame(env, FrameLayout.forProcedure(arg, (List) it.rest()));
+            while (it.hasNext()) {
+                it.replace(it.next().optimize(receiveEnv));
+            }
+        }
         else if (op == Symbol.SET) {
             // only optimize expression, not variable name
             it.replace(it.next().optimize(env));
         }
         else if (op == Symbol.BEGIN) {
-            Environment newEnv = createScanOutDefineEnv(form, env);
+            /* at top level, the defines in begin are executed in the
+             * current environment, so they must shadow the enclosing
+             * bindings; in a procedure body they are already slots
+             * in the frame
+             */
+            Environment newEnv = isInFrame(env) ? env : createScanOutDefineEnv(form, env);
             it.replace(arg.optimize(newEnv));
             while (it.hasNext()) {
                 it.replace(it.next().optimize(newEnv));
             }
         }
-//      else if (op == Symbol.LET) {
-//          // TODO
-//      }
-//      else if (op == Symbol.LETSTAR) {
-//          // TODO
-//      }
-//      else if (op == Symbol.LETREC) {
-//          // TODO
-//      }
-//        else if (op == Symbol.DO) {
-//            // TODO
-//        }
+        else if (op == Symbol.LET && arg instanceof List) {
+            // the init expressions are evaluated in the current environment
+            List bindings = (List) arg;
+            for (Entity b = bindings; b instanceof Pair; b = ((Pair) b).getCdr()) {
+                Pair init = (Pair) ((Pair) ((Pair) b).getCar()).getCdr();
+                init.setCar(init.getCar().optimize(env));
+            }
+            // the body in a frame with the same layout as the let frame
+            Frame letEnv = new Frame(env, FrameLayout.forLet(bindings, (List) it.rest()));
+            while (it.hasNext()) {
+                it.replace(it.next().optimize(letEnv));
+            }
+        }
+        else if (op == Symbol.LETSTAR) {
+            /* each init expression is evaluated in the frame of the
+             * previous binding, and the body in the frame of the last one
+             */
+            List body = (List) it.rest();
+            Environment letEnv = env;
+            for (Entity b = arg; b instanceof Pair; b = ((Pair) b).getCdr()) {
+                Pair init = (Pair) ((Pair) ((Pair) b).getCar()).getCdr();
+                init.setCar(init.getCar().optimize(letEnv));
+                letEnv = new Frame(letEnv, FrameLayout.forLetStar((Pair) b, body));
+            }
+            if (letEnv == env) {
+                // no bindings: same as let
+                letEnv = new Frame(env, FrameLayout.forLet(EmptyList.value, body));
+            }
+            while (it.hasNext()) {
+                it.replace(it.next().optimize(letEnv));
+            }
+        }
+        else if (op == Symbol.LETREC) {
+            // the init expressions and the body are evaluated in the new frame
+            List bindings = (List) arg;
+            Frame letEnv = new Frame(env, FrameLayout.forLet(bindings, (List) it.rest()));
+            for (Entity b = bindings; b instanceof Pair; b = ((Pair) b).getCdr()) {
+                Pair init = (Pair) ((Pair) ((Pair) b).getCar()).getCdr();
+                init.setCar(init.getCar().optimize(letEnv));
+            }
+            while (it.hasNext()) {
+                it.replace(it.next().optimize(letEnv));
+            }
+        }
+        else if (op == Symbol.LET && arg instanceof Symbol) {
+            /* named let: the init expressions are evaluated in the current
+             * environment, the body in a frame enclosed in the frame
+             * holding the procedure
+             */
+            List bindings = (List) it.next();
+            for (Entity b = bindings; b instanceof Pair; b = ((Pair) b).getCdr()) {
+                Pair init = (Pair) ((Pair) ((Pair) b).getCar()).getCdr();
+                init.setCar(init.getCar().optimize(env));
+            }
+            Frame procedureEnv = new Frame(env, FrameLayout.forNamedLet((Pair) form.getCdr()));
+            Frame loopEnv = new Frame(procedureEnv, FrameLayout.forLet(bindings, (List) it.rest()));
+            while (it.hasNext()) {
+                it.replace(it.next().optimize(loopEnv));
+            }
+        }
+        else if (op == Symbol.DO) {
+            // the init expressions are evaluated in the current environment
+            List specs = (List) arg;
+            for (Entity s = specs; s instanceof Pair; s = ((Pair) s).getCdr()) {
+                Pair init = (Pair) ((Pair) ((Pair) s).getCar()).getCdr();
+                init.setCar(init.getCar().optimize(env));
+            }
+            // everything else in the loop frame
+            Pair clause = (Pair) it.next();
+            Frame loopEnv = new Frame(env, FrameLayout.forLet(specs, (List) it.rest()));
+            for (Entity s = specs; s instanceof Pair; s = ((Pair) s).getCdr()) {
+                Entity step = ((Pair) ((Pair) ((Pair) s).getCar()).getCdr()).getCdr();
+                if (step instanceof Pair) {
+                    ((Pair) step).setCar(((Pair) step).getCar().optimize(loopEnv));
+                }
+            }
+            ListIterator cit = new ListIterator(clause);
+            while (cit.hasNext()) {
+                cit.replace(cit.next().optimize(loopEnv));
+            }
+            while (it.hasNext()) {
+                it.replace(it.next().optimize(loopEnv));
+            }
+        }
 //        else if (op == Symbol.DELAY) {
 //            // TODO
 //        }
         else if (op == Symbol.QUASIQUOTE) {
             // shall not touch arg, like quote
         }
-        else if (op == Symbol.DEFINE) {
-            /* in case this is a procedure
-             * we scan out the defines in lambda body
-             */
-            Environment newEnv = createScanOutDefineEnv(form, env);
-
-            /* then we create an augmented environment to hold
-             * the param names with undefined values
-             * for the purpose of optimization only
-             */
-            Environment paramEnv = new Environment(newEnv);
-
-            // optimize variable or function
-            if (isVariable(arg)) {
-                // ok, leave it alone
+        else if (op == Symbol.CASE) {
+            // optimize key and expressions, leaving datums alone
+            it.replace(arg.optimize(env));
+            while (it.hasNext()) {
+                ListIterator cit = new ListIterator((List) ((List) it.next()).getCdr());
+                while (cit.hasNext()) {
+                    cit.replace(cit.next().optimize(env));
+                }
             }
-            else if (arg instanceof List) {
-                // iterate over (possibly improper) list
-                ListIterator ait = new ListIterator( (List) arg, true);
-
-                while (ait.hasNext()) {
-                    Entity pobj = ait.next();
-                    paramEnv.define( (Symbol) pobj,
-                            Undefined.value);
+        }
+        else if (op == Symbol.DEFINE) {
+            if (arg instanceof List) {
+                /* this is a procedure: we create a frame with the
+                 * same layout as the activation frames of the procedure,
+                 * as in lambda
+                 */
+                Frame paramEnv = new Frame(env,
+                        FrameLayout.forProcedure(((List) arg).getCdr(), (List) it.rest()));
+
+                // optimize procedure body in the new param environment
+                while (it.hasNext()) {
+                    Entity bodyPart = it.next();
+                    it.replace(bodyPart.optimize(paramEnv));
                 }
             }
-            /* optimize value or procedure body
-             *
-             * if this is a procedure:
-             * optimize body in the new param environment--
-             * this will leave each use of the parameters
-             * untouched (because their names are bound to Undefined)
-             */
-            while (it.hasNext()) {
-                Entity bodyPart = it.next();
-                it.replace(bodyPart.optimize(paramEnv));
+            else {
+                // a variable: leave it alone, and optimize value
+                it.replace(it.next().optimize(env));
             }
         }
-        else {
-            /* Default case for:
-             *  if
-             *  cond
-             *  case
-             *
-             * Just optimize every argument.
-             */
+        else if (op == Symbol.IF) {
+            // optimize every argument
             it.replace(arg.optimize(env));
             while (it.hasNext()) {
                 arg = it.next();
@@ -446,6 +709,96 @@ public final class System
         }
     }
 
+    /**
+     * Compiles an optimized special form to a node, if it is a quote, if,
+     * lambda, begin, set! or define form, with a valid syntax.
+     * Any other form is left as it is, to be evaluated by its syntax
+     * procedure, which also reports syntax errors.
+     *
+     * @param form the optimized special form
+     * @return the node for the form, or the form itself
+     */
+    static Entity compileSpecialForm(Pair form)
+    {
+        Entity op = form.getCar();
+        if (!(form.getCdr() instanceof Pair)) {
+            return form;
+        }
+        Pair args = (Pair) form.getCdr();
+        Entity arg = args.getCar();
+        Entity rest = args.getCdr();
+
+        if (op == Symbol.QUOTE) {
+            if (rest == EmptyList.value) {
+                return new Const(form, arg);
+            }
+        }
+        else if (op == Symbol.IF) {
+            if (rest instanceof Pair) {
+                Entity consequent = ((Pair) rest).getCar();
+                Entity more = ((Pair) rest).getCdr();
+                if (more == EmptyList.value) {
+                    return new If(form, arg, consequent, null);
+                }
+                if (more instanceof Pair && ((Pair) more).getCdr() == EmptyList.value) {
+                    return new If(form, arg, consequent, ((Pair) more).getCar());
+                }
+            }
+        }
+        else if (op == Symbol.LAMBDA) {
+            if (rest instanceof Pair) {
+                return new Lambda(form, arg, (Pair) rest);
+            }
+        }
+        else if (op == Symbol.BEGIN) {
+            return new Seq(form, args);
+        }
+        else if (op == Symbol.SET) {
+            if (arg instanceof Symbol && rest instanceof Pair
+                    && ((Pair) rest).getCdr() == EmptyList.value) {
+                return new Set(form, (Symbol) arg, ((Pair) rest).getCar());
+            }
+        }
+        else if (op == Symbol.DEFINE) {
+            if (arg instanceof Symbol && rest instanceof Pair
+                    && ((Pair) rest).getCdr() == EmptyList.value) {
+                return new Define(form, (Symbol) arg, ((Pair) rest).getCar());
+            }
+            if (arg instanceof Pair && ((Pair) arg).getCar() instanceof Symbol
+                    && rest instanceof Pair) {
+                Entity params = ((Pair) arg).getCdr();
+                Pair lambda = new Pair(Symbol.LAMBDA, new Pair(params, rest));
+                return new Define(form, (Symbol) ((Pair) arg).getCar(),
+                                  new Lambda(lambda, params, (Pair) rest));
+            }
+        }
+        return form;
+    }
+
+    private static void optimizeCondClause(Entity clause, Environment env)
+            throws GleamException
+    {
+        ListIterator cit = new ListIterator((List) clause);
+        while (cit.hasNext()) {
+            Entity e = cit.next();
+            if (e != Symbol.ELSE && e != Symbol.ARROW) {
+                cit.replace(e.optimize(env));
+            }
+        }
+    }
+
+    /**
+     * Determines if an environment is (or is enclosed in) an activation frame.
+     */
+    private static boolean isInFrame(Environment env)
+    {
+        for (Environment e = env; e != null; e = e.parent) {
+            if (e instanceof Frame)
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Deep clones a list
      *
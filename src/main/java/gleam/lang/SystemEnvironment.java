@@ -30,6 +30,11 @@ import java.io.PrintWriter;
 
 /**
  * Specialization of Environment with special serialization rules.
+ * The system environments (null, report and interaction) of an interpreter
+ * overlay those of a shared image, which is bootstrapped once for all the
+ * interpreters: a variable not defined in the overlay is looked up in the
+ * image, and assigning it defines it in the overlay (copy on write), so
+ * that the image never changes after the bootstrap.
  */
 public final class SystemEnvironment extends Environment
 {
@@ -40,6 +45,9 @@ public final class SystemEnvironment extends Environment
 
     private final Kind kind;
 
+    /** the environment of the shared image overlaid by this one, or null */
+    private final transient SystemEnvironment base;
+
     /** Constructor */
     SystemEnvironment(Kind kind)
     {
@@ -47,9 +55,49 @@ public final class SystemEnvironment extends Environment
     }
 
     SystemEnvironment(Environment parent, Kind kind)
+    {
+        this(parent, kind, null);
+    }
+
+    /**
+     * Creates a system environment overlaying one of the shared image.
+     *
+     * @param parent the parent environment
+     * @param kind the kind of system environment
+     * @param base the environment of the image, of the same kind
+     */
+    SystemEnvironment(Environment parent, Kind kind, SystemEnvironment base)
     {
         super(parent);
         this.kind = kind;
+        this.base = base;
+    }
+
+    /** Looks up a variable in this environment, then in the image */
+    @Override
+    Location localLocation(Symbol s)
+    {
+        Location loc = super.localLocation(s);
+        return loc != null || base == null ? loc : base.localLocation(s);
+    }
+
+    /** Copies a variable of the image to this environment, to assign it */
+    @Override
+    Location assignableLocation(Symbol s)
+    {
+        Location loc = super.localLocation(s);
+        if (loc == null && base != null && (loc = base.localLocation(s)) != null) {
+            define(s, loc.get());
+            loc = super.localLocation(s);
+        }
+        return loc;
+    }
+
+    /** A variable of the image is shadowed by defining it here */
+    @Override
+    boolean isInherited(Symbol s)
+    {
+        return base != null && base.localLocation(s) != null || super.isInherited(s);
     }
 
     /** Writes this environment */
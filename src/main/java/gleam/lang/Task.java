@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import gleam.util.Logger;
+
+import java.io.PrintWriter;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static gleam.util.Logger.Level.WARNING;
+
+/**
+ * A task: a procedure of no arguments running in a continuation of its
+ * own, in parallel with the code that started it. A task is started by
+ * future or spawn, and its value is waited for by touch or thread-join;
+ * an error in the task is raised again in the code waiting for it.
+ * Futures run on an executor chosen by the gleam.executor property:
+ * fork-join (the default), a pool of as many threads as processors, or
+ * virtual, a virtual thread for each future, if the Java runtime supports
+ * them. A thread started by spawn runs in a thread of its own, a virtual
+ * one with the virtual executor, so that threads waiting for a long time
+ * do not hold up the futures.
+ * Tasks share the environments captured by their procedures: global
+ * variables may be defined and read by different tasks at the same time
+ * (see Environment), while other data, e.g. pairs and strings, are not
+ * locked.
+ */
+public final class Task extends AbstractEntity
+{
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the executor of the futures */
+    private static final Executor FUTURES = executor(java.lang.System.getProperty("gleam.executor", "fork-join"));
+
+    /** the executor of the threads, with a new thread for each */
+    private static final Executor THREADS = FUTURES instanceof ForkJoinPool ? Task::newThread : FUTURES;
+
+    /** the kind of task, future or thread */
+    private final String kind;
+
+    /** the value of the task, when done */
+    private final transient CompletableFuture<Entity> value;
+
+    private Task(String kind, CompletableFuture<Entity> value)
+    {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    /**
+     * Starts a future, calling a procedure with no arguments on the
+     * executor of the futures.
+     * @param procedure the procedure
+     * @param env the environment of the call
+     * @param cont the current continuation
+     * @return the future
+     * @throws GleamException if the continuation has no interpreter
+     */
+    public static Task future(Procedure procedure, Environment env, Continuation cont)
+            throws GleamException
+    {
+        return start("future", procedure, env, cont, FUTURES);
+    }
+
+    /**
+     * Starts a thread, calling a procedure with no arguments in a new
+     * thread.
+     * @param procedure the procedure
+     * @param env the environment of the call
+     * @param cont the current continuation
+     * @return the thread
+     * @throws GleamException if the continuation has no interpreter
+     */
+    public static Task thread(Procedure procedure, Environment env, Continuation cont)
+            throws GleamException
+    {
+        return start("thread", procedure, env, cont, THREADS);
+    }
+
+    private static Task start(String kind, Procedure procedure, Environment env, Continuation cont,
+                              Executor executor)
+            throws GleamException
+    {
+        if (cont.interpreter == null) {
+            throw new GleamException(kind + ": no interpreter to run the task", procedure);
+        }
+        Interpreter intp = cont.interpreter.newTaskInterpreter();
+        return new Task(kind, CompletableFuture.supplyAsync(() -> {
+            try {
+                return intp.call(procedure, env);
+            }
+            catch (GleamException e) {
+                throw new CompletionException(e);
+            }
+        }, executor));
+    }
+
+    /**
+     * Waits for this task to be done.
+     * @return the value of the task
+     * @throws GleamException the error of the task, if any
+     */
+    public Entity join() throws GleamException
+    {
+        try {
+            return value.join();
+        }
+        catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof GleamException) {
+                throw (GleamException) cause;
+            }
+            throw new GleamException(kind + ": " + cause, this);
+        }
+    }
+
+    /** Writes this task */
+    @Override
+    public void write(PrintWriter out)
+    {
+        out.write("#<" + kind + (value != null && value.isDone() ? " done>" : ">"));
+    }
+
+    private static void newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, "gleam-thread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Executor executor(String name)
+    {
+        if (name.equals("virtual")) {
+            try {
+                return (Executor) java.util.concurrent.Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            }
+            catch (ReflectiveOperationException e) {
+                Logger.enter(WARNING, "virtual threads not supported, futures run in a fork-join pool");
+            }
+        }
+        else if (!name.equals("fork-join")) {
+            Logger.enter(WARNING, "unknown executor " + name + ", futures run in a fork-join pool");
+        }
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * An Action that follows the thunk of a dynamic-wind: it leaves the
+ * dynamic-wind entry, and calls the after thunk, then passes on the
+ * value of the thunk.
+ */
+public class UnwindAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the arguments of a thunk */
+    private static final Entity[] NO_ARGS = {};
+
+    /** the dynamic-wind entry to leave */
+    private final Continuation.Winder winder;
+
+    /** Creates a new instance of this action */
+    UnwindAction(Continuation.Winder winder, Environment env) {
+        super(env);
+        this.winder = winder;
+    }
+
+    /** Invokes this action, calling the after thunk
+     * @param arg the value of the thunk
+     * @param cont the current Continuation
+     * @return the value of the after thunk, or null if the continuation has changed
+     * @throws gleam.lang.GleamException in case of errors
+    */
+    @Override
+    Entity invoke(Entity arg, Continuation cont)
+        throws GleamException
+    {
+        cont.pop();
+        cont.winders = winder.outer;
+        cont.handlers = winder.handlers;
+        cont.begin(new RestoreAction(winder.outer, winder.handlers, arg, env));
+        return winder.after.apply(NO_ARGS, env, cont);
+    }
+}
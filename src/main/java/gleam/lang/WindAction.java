@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+/**
+ * An Action that calls a procedure in a given dynamic environment: it
+ * sets the dynamic-wind entries and the exception handlers in effect,
+ * then applies the procedure, e.g. a before or after thunk of a
+ * dynamic-wind, or the body of a with-exception-handler.
+ */
+public class WindAction extends Action {
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** the procedure to call */
+    private final Procedure procedure;
+
+    /** the arguments of the call */
+    private final Entity[] args;
+
+    /** the dynamic-wind entries in effect during the call */
+    private final Continuation.Winder winders;
+
+    /** the exception handlers in effect during the call */
+    private final Continuation.Handler handlers;
+
+    /** Creates a new instance of this action */
+    WindAction(Procedure procedure, Entity[] args, Continuation.Winder winders,
+               Continuation.Handler handlers, Environment env) {
+        super(env);
+        this.procedure = procedure;
+        this.args = args;
+        this.winders = winders;
+        this.handlers = handlers;
+    }
+
+    /** Invokes this action, calling the procedure
+     * @param arg is ignored
+     * @param cont the current Continuation
+     * @return the value of the procedure, or null if the continuation has changed
+     * @throws gleam.lang.GleamException in case of errors
+    */
+    @Override
+    Entity invoke(Entity arg, Continuation cont)
+        throws GleamException
+    {
+        cont.pop();
+        cont.winders = winders;
+        cont.handlers = handlers;
+        return procedure.apply(args, env, cont);
+    }
+}
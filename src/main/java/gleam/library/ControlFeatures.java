@@ -28,13 +28,19 @@ package gleam.library;
 
 import gleam.lang.ArgumentList;
 import gleam.lang.Boolean;
+import gleam.lang.CallWithValuesAction;
 import gleam.lang.Continuation;
 import gleam.lang.Entity;
 import gleam.lang.Environment;
+import gleam.lang.ErrorObject;
+import gleam.lang.EscapeContinuation;
 import gleam.lang.GleamException;
 import gleam.lang.List;
+import gleam.lang.MultipleValues;
+import gleam.lang.MutableString;
 import gleam.lang.Procedure;
 import gleam.lang.ProcedureCallAction;
+import gleam.lang.Task;
 
 import static gleam.lang.Environment.Kind.REPORT_ENV;
 
@@ -86,7 +92,7 @@ public final class ControlFeatures {
     {
         if (arg1 instanceof Procedure) {
             /* create a new procedure call with the continuation argument. */
-            ArgumentList arglist = new ArgumentList();
+            ArgumentList arglist = new ArgumentList(1);
             arglist.set(0, new Continuation(cont)); // copy-constructor: cont itself is going to change soon!
             cont.begin(new ProcedureCallAction(arglist, env));
             return arg1;
@@ -96,6 +102,209 @@ public final class ControlFeatures {
         }
     }},
 
+    /*
+     * call-with-escape-continuation
+     */
+    new Primitive( "call-with-escape-continuation",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Calls a procedure with an escape-only continuation arg.",
+        "Also known as call/ec. The continuation can only be called to leave\n"+
+        "the procedure, e.g. to exit early from a search, and costs much less\n"+
+        "than a full continuation." /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity arg1, Environment env, Continuation cont)
+        throws GleamException
+    {
+        if (!(arg1 instanceof Procedure)) {
+            throw new GleamException(this, "wrong argument type, should be a procedure", arg1);
+        }
+        return EscapeContinuation.callWithEscape((Procedure) arg1, env, cont);
+    }},
+
+    /*
+     * values
+     */
+    new Primitive( "values",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        0, Primitive.VAR_ARGS, /* min, max no. of arguments */
+        "Delivers its arguments to the continuation, e.g. (values 1 2)",
+        "A single value is delivered as it is, without a wrapper." /* doc strings */ ) {
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return true;
+    }
+
+    @Override
+    public Entity apply0(Environment env, Continuation cont)
+    {
+        return new MultipleValues();
+    }
+
+    @Override
+    public Entity apply1(Entity arg1, Environment env, Continuation cont)
+    {
+        return arg1;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+    {
+        return new MultipleValues(arg1, arg2);
+    }
+
+    @Override
+    public Entity apply3(Entity arg1, Entity arg2, Entity arg3, Environment env, Continuation cont)
+    {
+        return new MultipleValues(arg1, arg2, arg3);
+    }
+
+    @Override
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
+    {
+        return MultipleValues.of(args);
+    }},
+
+    /*
+     * call-with-values
+     */
+    new Primitive( "call-with-values",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        2, 2, /* min, max no. of arguments */
+        "Calls a consumer with the values of a producer, e.g.",
+        "(call-with-values (lambda () (values 1 2)) +)" /* doc strings */ ) {
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return CallWithValuesAction.evaluate(procedure(this, arg1), procedure(this, arg2), env, cont);
+    }},
+
+    /*
+     * dynamic-wind
+     */
+    new Primitive( "dynamic-wind",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        3, 3, /* min, max no. of arguments */
+        "Calls a thunk between a before and an after thunk, e.g.",
+        "(dynamic-wind (lambda () (display \"in\")) thunk (lambda () (display \"out\")))\n"+
+        "The before and after thunks are also called whenever a continuation\n"+
+        "enters or leaves the thunk." /* doc strings */ ) {
+    @Override
+    public Entity apply3(Entity before, Entity thunk, Entity after, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return cont.dynamicWind(procedure(this, before), procedure(this, thunk), procedure(this, after), env);
+    }},
+
+    /*
+     * with-exception-handler
+     */
+    new Primitive( "with-exception-handler",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        2, 2, /* min, max no. of arguments */
+        "Calls a thunk with an exception handler installed",
+        "E.g. (with-exception-handler (lambda (e) 0) (lambda () (raise-continuable 'oops)))" /* doc strings */ ) {
+    @Override
+    public Entity apply2(Entity handler, Entity thunk, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return cont.withExceptionHandler(procedure(this, handler), procedure(this, thunk), env);
+    }},
+
+    /*
+     * raise
+     */
+    new Primitive( "raise",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Raises an exception, e.g. (raise 'oops)",
+        "The current exception handler is called with the object; it must not return." /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity obj, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return cont.raise(obj, false, env);
+    }},
+
+    /*
+     * raise-continuable
+     */
+    new Primitive( "raise-continuable",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Raises a continuable exception, e.g. (raise-continuable 'oops)",
+        "The value of the current exception handler is the value of the raise." /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity obj, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return cont.raise(obj, true, env);
+    }},
+
+    /*
+     * error
+     */
+    new Primitive( "error",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, Primitive.VAR_ARGS, /* min, max no. of arguments */
+        "Raises an error, e.g. (error \"not a list:\" x)",
+        "The error object holds the message and the other arguments, as irritants." /* doc strings */ ) {
+    @Override
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
+        throws GleamException
+    {
+        MutableString message = args[0] instanceof MutableString
+                ? (MutableString) args[0]
+                : new MutableString(args[0].toString());
+        return cont.raise(new ErrorObject(message, ArgumentList.toList(args, 1)), false, env);
+    }},
+
+    /*
+     * error-object?
+     */
+    new Primitive( "error-object?",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Returns true if argument is an error object, false otherwise",
+        null /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity arg1, Environment env, Continuation cont)
+    {
+        return Boolean.makeBoolean(arg1 instanceof ErrorObject);
+    }},
+
+    /*
+     * error-object-message
+     */
+    new Primitive( "error-object-message",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Returns the message of an error object",
+        null /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity arg1, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return errorObject(this, arg1).getMessage();
+    }},
+
+    /*
+     * error-object-irritants
+     */
+    new Primitive( "error-object-irritants",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Returns the irritants of an error object",
+        null /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity arg1, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return errorObject(this, arg1).getIrritants();
+    }},
+
     /*
      * apply
      */
@@ -113,13 +322,94 @@ public final class ControlFeatures {
 
         if (args instanceof List) {
             /* create a new procedure call with the given arguments. */
-            cont.begin(new ProcedureCallAction(new ArgumentList((List) args), env));
+            cont.begin(new ProcedureCallAction(new ArgumentList(ArgumentList.toArray((List) args)), env));
             return proc;
         }
 
         throw new GleamException(this, "wrong argument type, should be a list", args);
     }},
 
+    /*
+     * future
+     */
+    new Primitive( "future",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Calls a thunk in parallel, returning a future of its value, e.g.",
+        "(define f (future (lambda () (fib 30)))) (touch f)" /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity thunk, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return Task.future(procedure(this, thunk), env, cont);
+    }},
+
+    /*
+     * touch
+     */
+    new Primitive( "touch",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Waits for a future, returning its value, e.g. (touch f)",
+        "Any other object is returned as is." /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity obj, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return obj instanceof Task ? ((Task) obj).join() : obj;
+    }},
+
+    /*
+     * spawn
+     */
+    new Primitive( "spawn",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Calls a thunk in a new thread, returning the thread, e.g.",
+        "(define t (spawn (lambda () (display \"hello\")))) (thread-join t)" /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity thunk, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return Task.thread(procedure(this, thunk), env, cont);
+    }},
+
+    /*
+     * thread-join
+     */
+    new Primitive( "thread-join",
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
+        1, 1, /* min, max no. of arguments */
+        "Waits for a thread, returning the value of its thunk, e.g. (thread-join t)",
+        null /* doc strings */ ) {
+    @Override
+    public Entity apply1(Entity thread, Environment env, Continuation cont)
+        throws GleamException
+    {
+        if (!(thread instanceof Task)) {
+            throw new GleamException(this, "wrong argument type, should be a thread", thread);
+        }
+        return ((Task) thread).join();
+    }},
+
     }; // primitives
 
+    private static Procedure procedure(Primitive primitive, Entity arg)
+        throws GleamException
+    {
+        if (!(arg instanceof Procedure)) {
+            throw new GleamException(primitive, "wrong argument type, should be a procedure", arg);
+        }
+        return (Procedure) arg;
+    }
+
+    private static ErrorObject errorObject(Primitive primitive, Entity arg)
+        throws GleamException
+    {
+        if (!(arg instanceof ErrorObject)) {
+            throw new GleamException(primitive, "wrong argument type, should be an error object", arg);
+        }
+        return (ErrorObject) arg;
+    }
+
 }
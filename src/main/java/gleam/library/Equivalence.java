@@ -30,6 +30,7 @@ import gleam.lang.Boolean;
 import gleam.lang.Continuation;
 import gleam.lang.Entity;
 import gleam.lang.Environment;
+import gleam.lang.Fixnum;
 import gleam.lang.JavaObject;
 
 import static gleam.lang.Environment.Kind.REPORT_ENV;
@@ -84,7 +85,29 @@ public final class Equivalence {
     public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
     {
         return Boolean.makeBoolean(arg1.equals(arg2));
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return args[0] instanceof Fixnum && args[1] instanceof Fixnum ? FIXNUM_EQV : null;
     }},
 
     }; // primitives
+
+    /*
+     * Specializations of the predicates for the types of their arguments.
+     */
+
+    private static final Specialization FIXNUM_EQV = new Specialization() {
+        @Override
+        public Entity apply2(Entity arg1, Entity arg2)
+        {
+            if (arg1 instanceof Fixnum && arg2 instanceof Fixnum) {
+                return Boolean.makeBoolean(
+                        ((Fixnum) arg1).getLongValue() == ((Fixnum) arg2).getLongValue());
+            }
+            return null;
+        }
+    };
 }
@@ -32,6 +32,7 @@ import gleam.lang.Entity;
 import gleam.lang.Environment;
 import gleam.lang.ExpressionAction;
 import gleam.lang.ExpressionInEnvironmentAction;
+import gleam.lang.Frame;
 import gleam.lang.GleamException;
 import gleam.lang.Interpreter;
 import gleam.lang.Number;
@@ -82,7 +83,7 @@ public final class Eval {
             throw new GleamException(this, "not an environment", arg2);
         }
         arg1 = arg1.analyze(env).optimize(eval_env);
-        cont.begin(new ExpressionAction(arg1, eval_env, null));
+        cont.begin(new ExpressionAction(arg1, eval_env));
         return null;
     }},
 
@@ -171,6 +172,8 @@ public final class Eval {
         null /* doc strings */ ) {
     @Override
     public Entity apply0(Environment env, Continuation cont) {
+        // the environment may be kept, and must not be reused by loops
+        Frame.capture(env);
         return env;
     }},
 
@@ -185,9 +188,9 @@ public final class Eval {
         "E.g. (in-environment (scheme-report-environment 5) (+ 1 2)) => 3" /* doc strings */ ) {
     @Override
     public Entity apply2(Entity argEnv, Entity argExpr, Environment env, Continuation cont) {
-        cont
-                .begin(new ExpressionAction(argEnv, env))         // 1) evaluate environment expr
-                .andThen(new ExpressionInEnvironmentAction(argExpr, env)); // 2) evaluate expr in that env
+        // evaluate the environment expr first, then expr in that env
+        cont.begin(new ExpressionInEnvironmentAction(argExpr, env));
+        cont.begin(new ExpressionAction(argEnv, env));
 
         return null;
     }},
@@ -29,12 +29,12 @@ package gleam.library;
 import gleam.lang.Continuation;
 import gleam.lang.Entity;
 import gleam.lang.Environment;
+import gleam.lang.Fixnum;
 import gleam.lang.GleamException;
 import gleam.lang.Interpreter;
 import gleam.lang.MutableString;
 import gleam.lang.Number;
 import gleam.lang.OutputPort;
-import gleam.lang.Real;
 import gleam.lang.Symbol;
 import gleam.lang.Void;
 import gleam.util.Logger;
@@ -177,7 +177,7 @@ public final class Interaction {
     @Override
     public Entity apply0(Environment env, Continuation cont)
     {
-        return new Real(Level.OFF.getValue() - Logger.getLevelValue());
+        return Fixnum.makeFixnum(Level.OFF.getValue() - Logger.getLevelValue());
     }},
 
     /*
@@ -34,9 +34,11 @@
 package gleam.library;
 
 import gleam.lang.AbstractEntity;
+import gleam.lang.Bignum;
 import gleam.lang.Continuation;
 import gleam.lang.Entity;
 import gleam.lang.Environment;
+import gleam.lang.Fixnum;
 import gleam.lang.GleamException;
 import gleam.lang.JavaObject;
 import gleam.lang.ListIterator;
@@ -49,6 +51,7 @@ import gleam.util.Logger;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -203,6 +206,15 @@ public class JavaInterface {
         {
             return String.class;
         }
+        else if (arg instanceof Fixnum)
+        {
+            long value = ((Fixnum) arg).getLongValue();
+            return value == (int) value ? int.class : long.class;
+        }
+        else if (arg instanceof Bignum)
+        {
+            return BigInteger.class;
+        }
         else if (arg instanceof Real)
         {
             return double.class;
@@ -223,6 +235,15 @@ public class JavaInterface {
         {
             return arg.toString();
         }
+        else if (arg instanceof Fixnum)
+        {
+            long value = ((Fixnum) arg).getLongValue();
+            return value == (int) value ? (Object) (int) value : (Object) value;
+        }
+        else if (arg instanceof Bignum)
+        {
+            return ((Bignum) arg).getBigIntegerValue();
+        }
         else if (arg instanceof Real)
         {
             return ((Number) arg).getDoubleValue();
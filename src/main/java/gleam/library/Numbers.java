@@ -26,16 +26,18 @@
 
 package gleam.library;
 
+import gleam.lang.Bignum;
 import gleam.lang.Boolean;
 import gleam.lang.Continuation;
 import gleam.lang.Entity;
 import gleam.lang.Environment;
+import gleam.lang.Fixnum;
 import gleam.lang.GleamException;
-import gleam.lang.List;
-import gleam.lang.ListIterator;
 import gleam.lang.Number;
 import gleam.lang.Real;
 
+import java.math.BigInteger;
+
 import static gleam.lang.Environment.Kind.REPORT_ENV;
 
 /**
@@ -49,6 +51,12 @@ public final class Numbers {
     private Numbers() {
     }
 
+    /** exact zero */
+    private static final Fixnum ZERO = Fixnum.makeFixnum(0);
+
+    /** exact one */
+    private static final Fixnum ONE = Fixnum.makeFixnum(1);
+
     /**
      * This array contains definitions of primitives.
      * It is used by static initializers in gleam.lang.System to populate
@@ -66,23 +74,45 @@ public final class Numbers {
         "Difference, e.g. (- 7 3); Also negation, e.g. (- x)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
-        double result = 0.0;
-        ListIterator it = new ListIterator(args);
-        // first assume unary minus
-        result -= getNumberArgument(this, it.next());
-        /* if it is a real difference make sign adjustment and
-         * subtract remaining arguments
-         */
-        if (it.hasNext()) {
-            result = -result;
+        Number result = getNumberArgument(this, args[0]);
+        if (args.length == 1) {
+            // unary minus
+            return subtract(ZERO, result);
         }
-        while (it.hasNext()) {
-            result -= getNumberArgument(this, it.next());
+        for (int i = 1; i < args.length; ++i) {
+            result = subtract(result, getNumberArgument(this, args[i]));
         }
-        return new Real(result);
+        return result;
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 1 || count == 2;
+    }
+
+    @Override
+    public Entity apply1(Entity arg1, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return subtract(ZERO, getNumberArgument(this, arg1));
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return subtract(getNumberArgument(this, arg1), getNumberArgument(this, arg2));
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return args.length == 1 ? (args[0] instanceof Fixnum ? FIXNUM_NEGATE : null)
+                : choose(args, FIXNUM_SUBTRACT, REAL_SUBTRACT);
     }},
 
     /*
@@ -95,15 +125,33 @@ public final class Numbers {
         "Addition, e.g (+ 1 2)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
-        double result = 0.0;
-        ListIterator it = new ListIterator(args);
-        while (it.hasNext()) {
-            result += getNumberArgument(this, it.next());
+        Number result = ZERO;
+        for (Entity arg : args) {
+            result = add(result, getNumberArgument(this, arg));
         }
-        return new Real(result);
+        return result;
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 2;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return add(getNumberArgument(this, arg1), getNumberArgument(this, arg2));
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return choose(args, FIXNUM_ADD, REAL_ADD);
     }},
 
     /*
@@ -116,30 +164,31 @@ public final class Numbers {
         "Division, e.g. (/ 42 7)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
-        double result = 1.0;
-        ListIterator it = new ListIterator(args);
-        // first assume inverse
-        double next = getNumberArgument(this, it.next());
-        if (next == 0.0) {
-            throw new GleamException("/: division by zero");
-        }
-        if (!it.hasNext()) {
-            result /= next;
-        } else {
-            // it is a division, adjust result and divide remaining arguments
-            result = next;
-        }
-        while (it.hasNext()) {
-            next = getNumberArgument(this, it.next());
-            if (next == 0.0) {
-                throw new GleamException("/: division by zero");
-            }
-            result /= next;
+        Number result = getNumberArgument(this, args[0]);
+        if (args.length == 1) {
+            // inverse
+            return divide(this, ONE, result);
         }
-        return new Real(result);
+        for (int i = 1; i < args.length; ++i) {
+            result = divide(this, result, getNumberArgument(this, args[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 2;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return divide(this, getNumberArgument(this, arg1), getNumberArgument(this, arg2));
     }},
 
     /*
@@ -152,15 +201,33 @@ public final class Numbers {
         "Multiplication, e.g. (* 7 9)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
-        double result = 1.0;
-        ListIterator it = new ListIterator(args);
-        while (it.hasNext()) {
-            result *= getNumberArgument(this, it.next());
+        Number result = ONE;
+        for (Entity arg : args) {
+            result = multiply(result, getNumberArgument(this, arg));
         }
-        return new Real(result);
+        return result;
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 2;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return multiply(getNumberArgument(this, arg1), getNumberArgument(this, arg2));
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return choose(args, FIXNUM_MULTIPLY, REAL_MULTIPLY);
     }},
 
     /*
@@ -173,22 +240,41 @@ public final class Numbers {
         "Equals comparison, e.g. (= 1 1)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
         boolean retVal = true;
-        double prev, curr;
-        ListIterator it = new ListIterator(args);
+        Number prev, curr;
         // get first argument as prev
-        prev = getNumberArgument(this, it.next());
+        prev = getNumberArgument(this, args[0]);
 
         // follow remaining arguments
-        while (it.hasNext()) {
-            curr = getNumberArgument(this, it.next());
-            retVal &= prev == curr;
+        for (int i = 1; i < args.length; ++i) {
+            curr = getNumberArgument(this, args[i]);
+            retVal &= compare(prev, curr) == 0;
             prev = curr;
         }
         return Boolean.makeBoolean(retVal);
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 2;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return Boolean.makeBoolean(
+                compare(getNumberArgument(this, arg1), getNumberArgument(this, arg2)) == 0);
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return choose(args, FIXNUM_EQUAL, REAL_EQUAL);
     }},
 
     /*
@@ -201,22 +287,41 @@ public final class Numbers {
         "Greater-than-or-equals comparison, e.g. (>= 1 2)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
         boolean retVal = true;
-        double prev, curr;
-        ListIterator it = new ListIterator(args);
+        Number prev, curr;
         // get first argument as prev
-        prev = getNumberArgument(this, it.next());
+        prev = getNumberArgument(this, args[0]);
 
         // follow remaining arguments
-        while (it.hasNext()) {
-            curr = getNumberArgument(this, it.next());
-            retVal &= prev >= curr;
+        for (int i = 1; i < args.length; ++i) {
+            curr = getNumberArgument(this, args[i]);
+            retVal &= compare(prev, curr) >= 0;
             prev = curr;
         }
         return Boolean.makeBoolean(retVal);
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 2;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return Boolean.makeBoolean(
+                compare(getNumberArgument(this, arg1), getNumberArgument(this, arg2)) >= 0);
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return choose(args, FIXNUM_GREATER_EQUAL, REAL_GREATER_EQUAL);
     }},
 
     /*
@@ -229,22 +334,41 @@ public final class Numbers {
         "Less-than-or-equals comparison, e.g. (<= 1 2)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
         boolean retVal = true;
-        double prev, curr;
-        ListIterator it = new ListIterator(args);
+        Number prev, curr;
         // get first argument as prev
-        prev = getNumberArgument(this, it.next());
+        prev = getNumberArgument(this, args[0]);
 
         // follow remaining arguments
-        while (it.hasNext()) {
-            curr = getNumberArgument(this, it.next());
-            retVal &= prev <= curr;
+        for (int i = 1; i < args.length; ++i) {
+            curr = getNumberArgument(this, args[i]);
+            retVal &= compare(prev, curr) <= 0;
             prev = curr;
         }
         return Boolean.makeBoolean(retVal);
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 2;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return Boolean.makeBoolean(
+                compare(getNumberArgument(this, arg1), getNumberArgument(this, arg2)) <= 0);
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return choose(args, FIXNUM_LESS_EQUAL, REAL_LESS_EQUAL);
     }},
 
     /*
@@ -257,22 +381,41 @@ public final class Numbers {
         "Greater-than comparison, e.g. (> 1 2)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
         boolean retVal = true;
-        double prev, curr;
-        ListIterator it = new ListIterator(args);
+        Number prev, curr;
         // get first argument as prev
-        prev = getNumberArgument(this, it.next());
+        prev = getNumberArgument(this, args[0]);
 
         // follow remaining arguments
-        while (it.hasNext()) {
-            curr = getNumberArgument(this, it.next());
-            retVal &= prev > curr;
+        for (int i = 1; i < args.length; ++i) {
+            curr = getNumberArgument(this, args[i]);
+            retVal &= compare(prev, curr) > 0;
             prev = curr;
         }
         return Boolean.makeBoolean(retVal);
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 2;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return Boolean.makeBoolean(
+                compare(getNumberArgument(this, arg1), getNumberArgument(this, arg2)) > 0);
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return choose(args, FIXNUM_GREATER, REAL_GREATER);
     }},
 
     /*
@@ -285,22 +428,41 @@ public final class Numbers {
         "Less-than comparison, e.g. (< 1 2)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
         throws GleamException
     {
         boolean retVal = true;
-        double prev, curr;
-        ListIterator it = new ListIterator(args);
+        Number prev, curr;
         // get first argument as prev
-        prev = getNumberArgument(this, it.next());
+        prev = getNumberArgument(this, args[0]);
 
         // follow remaining arguments
-        while (it.hasNext()) {
-            curr = getNumberArgument(this, it.next());
-            retVal &= prev < curr;
+        for (int i = 1; i < args.length; ++i) {
+            curr = getNumberArgument(this, args[i]);
+            retVal &= compare(prev, curr) < 0;
             prev = curr;
         }
         return Boolean.makeBoolean(retVal);
+    }
+
+    @Override
+    public boolean hasFixedArity(int count)
+    {
+        return count == 2;
+    }
+
+    @Override
+    public Entity apply2(Entity arg1, Entity arg2, Environment env, Continuation cont)
+        throws GleamException
+    {
+        return Boolean.makeBoolean(
+                compare(getNumberArgument(this, arg1), getNumberArgument(this, arg2)) < 0);
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return choose(args, FIXNUM_LESS, REAL_LESS);
     }},
 
     /*
@@ -319,14 +481,317 @@ public final class Numbers {
 
     }; // primitives
 
-    private static double getNumberArgument(Primitive primitive, Entity obj) throws GleamException {
-        double arg;
+    private static Number getNumberArgument(Primitive primitive, Entity obj) throws GleamException {
         if (obj instanceof Number) {
-            arg = ((Number) obj).getDoubleValue();
+            return (Number) obj;
         }
         else {
             throw new GleamException(primitive, "argument is not a number", obj);
         }
-        return arg;
     }
+
+    /*
+     * Arithmetic on the numeric tower: exact integers are Fixnums, promoted
+     * to Bignums on overflow; if any operand is a Real, so is the result.
+     */
+
+    static Number add(Number a, Number b)
+    {
+        if (a instanceof Fixnum && b instanceof Fixnum) {
+            long x = ((Fixnum) a).getLongValue();
+            long y = ((Fixnum) b).getLongValue();
+            long r = x + y;
+            if (((x ^ r) & (y ^ r)) >= 0) {
+                return Fixnum.makeFixnum(r);
+            }
+        }
+        else if (a instanceof Real || b instanceof Real) {
+            return new Real(a.getDoubleValue() + b.getDoubleValue());
+        }
+        return Bignum.makeInteger(toBigInteger(a).add(toBigInteger(b)));
+    }
+
+    static Number subtract(Number a, Number b)
+    {
+        if (a instanceof Fixnum && b instanceof Fixnum) {
+            long x = ((Fixnum) a).getLongValue();
+            long y = ((Fixnum) b).getLongValue();
+            long r = x - y;
+            if (((x ^ y) & (x ^ r)) >= 0) {
+                return Fixnum.makeFixnum(r);
+            }
+        }
+        else if (a instanceof Real || b instanceof Real) {
+            return new Real(a.getDoubleValue() - b.getDoubleValue());
+        }
+        return Bignum.makeInteger(toBigInteger(a).subtract(toBigInteger(b)));
+    }
+
+    static Number multiply(Number a, Number b)
+    {
+        if (a instanceof Fixnum && b instanceof Fixnum) {
+            long x = ((Fixnum) a).getLongValue();
+            long y = ((Fixnum) b).getLongValue();
+            try {
+                return Fixnum.makeFixnum(Math.multiplyExact(x, y));
+            }
+            catch (ArithmeticException e) {
+                // overflow
+            }
+        }
+        else if (a instanceof Real || b instanceof Real) {
+            return new Real(a.getDoubleValue() * b.getDoubleValue());
+        }
+        return Bignum.makeInteger(toBigInteger(a).multiply(toBigInteger(b)));
+    }
+
+    /**
+     * Divides two numbers. The quotient of two exact integers is exact
+     * if there is no remainder, a Real otherwise.
+     */
+    static Number divide(Primitive primitive, Number a, Number b) throws GleamException
+    {
+        if (b.getDoubleValue() == 0.0) {
+            throw new GleamException(primitive, "division by zero", b);
+        }
+        if (a instanceof Real || b instanceof Real) {
+            return new Real(a.getDoubleValue() / b.getDoubleValue());
+        }
+        if (a instanceof Fixnum && b instanceof Fixnum) {
+            long x = ((Fixnum) a).getLongValue();
+            long y = ((Fixnum) b).getLongValue();
+            if (x % y == 0 && (x != Long.MIN_VALUE || y != -1)) {
+                return Fixnum.makeFixnum(x / y);
+            }
+        }
+        BigInteger[] qr = toBigInteger(a).divideAndRemainder(toBigInteger(b));
+        if (qr[1].signum() == 0) {
+            return Bignum.makeInteger(qr[0]);
+        }
+        return new Real(a.getDoubleValue() / b.getDoubleValue());
+    }
+
+    /**
+     * Compares two numbers.
+     * @return a negative integer, zero, or a positive integer as the first
+     * number is less than, equal to, or greater than the second
+     */
+    static int compare(Number a, Number b)
+    {
+        if (a instanceof Fixnum && b instanceof Fixnum) {
+            return Long.compare(((Fixnum) a).getLongValue(), ((Fixnum) b).getLongValue());
+        }
+        else if (a instanceof Real || b instanceof Real) {
+            double x = a.getDoubleValue();
+            double y = b.getDoubleValue();
+            return x < y ? -1 : (x > y ? 1 : 0);
+        }
+        return toBigInteger(a).compareTo(toBigInteger(b));
+    }
+
+    private static BigInteger toBigInteger(Number n)
+    {
+        if (n instanceof Fixnum) {
+            return BigInteger.valueOf(((Fixnum) n).getLongValue());
+        }
+        return ((Bignum) n).getBigIntegerValue();
+    }
+
+    /*
+     * Specializations of the operators for the types of their arguments.
+     */
+
+    /**
+     * Chooses the specialization of a binary operator for two fixnums or
+     * two reals, if the given arguments are such.
+     */
+    private static Specialization choose(Entity[] args, Specialization fixnums, Specialization reals)
+    {
+        if (args.length != 2) {
+            return null;
+        }
+        if (args[0] instanceof Fixnum && args[1] instanceof Fixnum) {
+            return fixnums;
+        }
+        if (args[0] instanceof Real && args[1] instanceof Real) {
+            return reals;
+        }
+        return null;
+    }
+
+    /** An operation on two fixnums */
+    private abstract static class FixnumOperation extends Specialization {
+        @Override
+        public final Entity apply2(Entity arg1, Entity arg2)
+        {
+            if (arg1 instanceof Fixnum && arg2 instanceof Fixnum) {
+                return apply(((Fixnum) arg1).getLongValue(), ((Fixnum) arg2).getLongValue());
+            }
+            return null;
+        }
+
+        abstract Entity apply(long x, long y);
+    }
+
+    /** An operation on two reals */
+    private abstract static class RealOperation extends Specialization {
+        @Override
+        public final Entity apply2(Entity arg1, Entity arg2)
+        {
+            if (arg1 instanceof Real && arg2 instanceof Real) {
+                return apply(((Real) arg1).getDoubleValue(), ((Real) arg2).getDoubleValue());
+            }
+            return null;
+        }
+
+        abstract Entity apply(double x, double y);
+    }
+
+    private static final Specialization FIXNUM_NEGATE = new Specialization() {
+        @Override
+        public Entity apply1(Entity arg1)
+        {
+            if (arg1 instanceof Fixnum) {
+                long x = ((Fixnum) arg1).getLongValue();
+                return x != Long.MIN_VALUE ? Fixnum.makeFixnum(-x) : subtract(ZERO, (Fixnum) arg1);
+            }
+            return null;
+        }
+    };
+
+    private static final Specialization FIXNUM_ADD = new FixnumOperation() {
+        @Override
+        Entity apply(long x, long y)
+        {
+            long r = x + y;
+            if (((x ^ r) & (y ^ r)) < 0) {
+                return Bignum.makeInteger(BigInteger.valueOf(x).add(BigInteger.valueOf(y)));
+            }
+            return Fixnum.makeFixnum(r);
+        }
+    };
+
+    private static final Specialization FIXNUM_SUBTRACT = new FixnumOperation() {
+        @Override
+        Entity apply(long x, long y)
+        {
+            long r = x - y;
+            if (((x ^ y) & (x ^ r)) < 0) {
+                return Bignum.makeInteger(BigInteger.valueOf(x).subtract(BigInteger.valueOf(y)));
+            }
+            return Fixnum.makeFixnum(r);
+        }
+    };
+
+    private static final Specialization FIXNUM_MULTIPLY = new FixnumOperation() {
+        @Override
+        Entity apply(long x, long y)
+        {
+            return multiply(Fixnum.makeFixnum(x), Fixnum.makeFixnum(y));
+        }
+    };
+
+    private static final Specialization FIXNUM_EQUAL = new FixnumOperation() {
+        @Override
+        Entity apply(long x, long y)
+        {
+            return Boolean.makeBoolean(x == y);
+        }
+    };
+
+    private static final Specialization FIXNUM_LESS = new FixnumOperation() {
+        @Override
+        Entity apply(long x, long y)
+        {
+            return Boolean.makeBoolean(x < y);
+        }
+    };
+
+    private static final Specialization FIXNUM_GREATER = new FixnumOperation() {
+        @Override
+        Entity apply(long x, long y)
+        {
+            return Boolean.makeBoolean(x > y);
+        }
+    };
+
+    private static final Specialization FIXNUM_LESS_EQUAL = new FixnumOperation() {
+        @Override
+        Entity apply(long x, long y)
+        {
+            return Boolean.makeBoolean(x <= y);
+        }
+    };
+
+    private static final Specialization FIXNUM_GREATER_EQUAL = new FixnumOperation() {
+        @Override
+        Entity apply(long x, long y)
+        {
+            return Boolean.makeBoolean(x >= y);
+        }
+    };
+
+    private static final Specialization REAL_ADD = new RealOperation() {
+        @Override
+        Entity apply(double x, double y)
+        {
+            return new Real(x + y);
+        }
+    };
+
+    private static final Specialization REAL_SUBTRACT = new RealOperation() {
+        @Override
+        Entity apply(double x, double y)
+        {
+            return new Real(x - y);
+        }
+    };
+
+    private static final Specialization REAL_MULTIPLY = new RealOperation() {
+        @Override
+        Entity apply(double x, double y)
+        {
+            return new Real(x * y);
+        }
+    };
+
+    private static final Specialization REAL_EQUAL = new RealOperation() {
+        @Override
+        Entity apply(double x, double y)
+        {
+            return Boolean.makeBoolean(x == y);
+        }
+    };
+
+    private static final Specialization REAL_LESS = new RealOperation() {
+        @Override
+        Entity apply(double x, double y)
+        {
+            return Boolean.makeBoolean(x < y);
+        }
+    };
+
+    private static final Specialization REAL_GREATER = new RealOperation() {
+        @Override
+        Entity apply(double x, double y)
+        {
+            return Boolean.makeBoolean(x > y);
+        }
+    };
+
+    private static final Specialization REAL_LESS_EQUAL = new RealOperation() {
+        @Override
+        Entity apply(double x, double y)
+        {
+            return Boolean.makeBoolean(x <= y);
+        }
+    };
+
+    private static final Specialization REAL_GREATER_EQUAL = new RealOperation() {
+        @Override
+        Entity apply(double x, double y)
+        {
+            return Boolean.makeBoolean(x >= y);
+        }
+    };
 }
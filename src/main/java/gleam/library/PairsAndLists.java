@@ -26,13 +26,13 @@
 
 package gleam.library;
 
+import gleam.lang.ArgumentList;
 import gleam.lang.Boolean;
 import gleam.lang.Continuation;
 import gleam.lang.EmptyList;
 import gleam.lang.Entity;
 import gleam.lang.Environment;
 import gleam.lang.GleamException;
-import gleam.lang.ListIterator;
 import gleam.lang.List;
 import gleam.lang.Pair;
 import gleam.lang.Void;
@@ -76,6 +76,12 @@ public final class PairsAndLists {
         catch (ClassCastException e) {
             throw new GleamException("car: invalid argument", arg1);
         }
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return args[0] instanceof Pair ? PAIR_CAR : null;
     }},
 
     /*
@@ -97,6 +103,12 @@ public final class PairsAndLists {
         catch (ClassCastException e) {
             throw new GleamException("cdr: invalid argument", arg1);
         }
+    }
+
+    @Override
+    public Specialization specialize(Entity[] args)
+    {
+        return args[0] instanceof Pair ? PAIR_CDR : null;
     }},
 
     /*
@@ -123,21 +135,9 @@ public final class PairsAndLists {
         "Creates a new list from its arguments, e.g. (list 1 2 3)",
         null /* doc strings */ ) {
     @Override
-    public Entity applyN(List args, Environment env, Continuation cont)
+    public Entity applyN(Entity[] args, Environment env, Continuation cont)
     {
-        // TODO: investigate: could we simply return list?
-        ListIterator it = new ListIterator(args);
-        if (!it.hasNext()) {
-            return EmptyList.value();
-        }
-        Pair l = new Pair(it.next(), EmptyList.value());
-        Pair ins = l;
-        while (it.hasNext()) {
-            Pair nextcons = new Pair(it.next(), EmptyList.value());
-            ins.setCdr(nextcons);
-            ins = nextcons;
-        }
-        return l;
+        return ArgumentList.toList(args, 0);
     }},
 
     /*
@@ -209,4 +209,24 @@ public final class PairsAndLists {
     }},
 
     }; // primitives
+
+    /*
+     * Specializations of the accessors for pairs.
+     */
+
+    private static final Specialization PAIR_CAR = new Specialization() {
+        @Override
+        public Entity apply1(Entity arg1)
+        {
+            return arg1 instanceof Pair ? ((Pair) arg1).getCar() : null;
+        }
+    };
+
+    private static final Specialization PAIR_CDR = new Specialization() {
+        @Override
+        public Entity apply1(Entity arg1)
+        {
+            return arg1 instanceof Pair ? ((Pair) arg1).getCdr() : null;
+        }
+    };
 }
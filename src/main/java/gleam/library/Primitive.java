@@ -33,6 +33,7 @@
 
 package gleam.library;
 
+import gleam.lang.ArgumentList;
 import gleam.lang.Continuation;
 import gleam.lang.Entity;
 import gleam.lang.Environment;
@@ -47,6 +48,13 @@ import gleam.lang.SystemEnvironment;
  * corresponding to the maxArgs of the primitive (0..3, or N when more than 3
  * or VAR_ARGS). Missing arguments will be represented by null values if minArgs
  * is less than maxArgs.
+ * A procedure primitive taking N arguments should preferably override the
+ * array version of applyN, which gets the arguments as gathered at the call
+ * site; the list version of applyN is needed by keywords, whose arguments
+ * are the unevaluated forms.
+ * A primitive taking a variable number of arguments may also override apply0
+ * to apply3 as faster entry points for calls with up to three arguments,
+ * telling so by means of hasFixedArity.
  */
 public abstract class Primitive implements java.io.Serializable {
     /**
@@ -191,6 +199,50 @@ public abstract class Primitive implements java.io.Serializable {
         throw new GleamException(this, "applyN not implemented", null);
     }
 
+    /**
+     * Apply this primitive to a variable number of arguments (but more
+     * than three), held in an array.
+     * The array must not be modified or retained by the primitive.
+     * The default implementation calls the list version of applyN.
+     * @param args an array holding the arguments
+     * @param env the environment in which to apply the primitive
+     * @param cont the current continuation
+     * @return an Entity, or null to signal that only the continuation has
+     * been modified.
+     * @throws gleam.lang.GleamException if any error is signaled during
+     * the execution of this primitive
+     */
+    public Entity applyN(Entity[] args, Environment env, Continuation cont) throws GleamException
+    {
+        return applyN(ArgumentList.toList(args, 0), env, cont);
+    }
+
+    /**
+     * Tells if this primitive, taking a variable number of arguments, also
+     * implements the apply method for exactly the given number of arguments
+     * (apply1 or apply2), as an entry point that call sites may use instead
+     * of gathering the arguments in an array.
+     * The default implementation returns false.
+     * @param count a number of arguments, from 0 to 3
+     * @return true if the apply method for count arguments is implemented
+     */
+    public boolean hasFixedArity(int count)
+    {
+        return false;
+    }
+
+    /**
+     * Gives a version of this primitive specialized for arguments of the
+     * same types as the given ones, which a call site has just seen.
+     * The default implementation returns null.
+     * @param args the arguments of a call, one or two
+     * @return a Specialization, or null if there is none for these types
+     */
+    public Specialization specialize(Entity[] args)
+    {
+        return null;
+    }
+
     /**
      * Gets the name of this Primitive.
      * @return a String holding the name of this Primitive.
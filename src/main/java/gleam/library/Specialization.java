@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2001 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.library;
+
+import gleam.lang.Entity;
+
+/**
+ * A version of a primitive specialized for the types of the arguments seen
+ * at a call site, e.g. an addition of two fixnums.
+ * A specialization has a guard: each apply method checks that its arguments
+ * are still of the expected types, and returns null if they are not, so
+ * that the call site falls back to the primitive. A specialization must not
+ * modify the continuation, nor raise errors: the primitive does it.
+ * A specialization should override exactly one of the apply methods, the
+ * one corresponding to the number of arguments it is specialized for.
+ * @see Primitive#specialize(Entity[])
+ */
+public abstract class Specialization {
+
+    /**
+     * Apply this specialization to one argument.
+     * @param arg1 the argument
+     * @return the result, or null if the argument is not of the expected
+     * type
+     */
+    public Entity apply1(Entity arg1)
+    {
+        return null;
+    }
+
+    /**
+     * Apply this specialization to two arguments.
+     * @param arg1 the first argument
+     * @param arg2 the second argument
+     * @return the result, or null if the arguments are not of the expected
+     * types
+     */
+    public Entity apply2(Entity arg1, Entity arg2)
+    {
+        return null;
+    }
+}
@@ -34,7 +34,6 @@ import gleam.lang.Symbol;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static gleam.lang.Environment.Kind.INTERACTION_ENV;
 import static gleam.lang.Environment.Kind.REPORT_ENV;
 
 /**
@@ -82,7 +81,7 @@ public final class Symbols {
      * Generates a fresh uninterned symbol
      */
     new Primitive( "generate-symbol",
-        INTERACTION_ENV, Primitive.IDENTIFIER, /* environment, type */
+        REPORT_ENV, Primitive.IDENTIFIER, /* environment, type */
         0, 0, /* min, max no. of arguments */
         "Makes a new symbol, e.g. (generate-symbol)",
         null /* doc strings */ ) {
@@ -26,19 +26,29 @@
 
 package gleam.library;
 
+import gleam.lang.AndAction;
 import gleam.lang.AssignmentAction;
+import gleam.lang.CaseAction;
+import gleam.lang.Boolean;
 import gleam.lang.Closure;
+import gleam.lang.CondClauseAction;
 import gleam.lang.Continuation;
 import gleam.lang.Entity;
 import gleam.lang.Environment;
 import gleam.lang.ExpressionAction;
 import gleam.lang.GleamException;
 import gleam.lang.IfAction;
+import gleam.lang.LetAction;
+import gleam.lang.LetStarAction;
 import gleam.lang.List;
 import gleam.lang.ListIterator;
+import gleam.lang.LoopAction;
+import gleam.lang.OrAction;
 import gleam.lang.Pair;
+import gleam.lang.ReceiveAction;
 import gleam.lang.Symbol;
 import gleam.lang.SyntaxRewriter;
+import gleam.lang.System;
 import gleam.lang.Undefined;
 import gleam.lang.Void;
 
@@ -105,9 +115,8 @@ public final class Syntax {
                 // create binding
                 env.define(s, Undefined.value());
                 // equivalent to set!
-                cont
-                        .begin(new ExpressionAction(value, env))
-                        .andThen(new AssignmentAction(s, env));
+                cont.begin(new AssignmentAction(s, env));
+                cont.begin(new ExpressionAction(value, env));
 
                 return null;
             }
@@ -168,13 +177,22 @@ public final class Syntax {
         "Conditional evaluation, e.g. (if (eqv? 1 0) 'hmm 'ok)",
         null /* doc strings */ ) {
     @Override
-    public Entity apply3(Entity test, Entity consequent, Entity alternate, Environment env, Continuation cont) {
+    public Entity apply3(Entity test, Entity consequent, Entity alternate, Environment env, Continuation cont)
+        throws GleamException
+    {
         if (alternate == null)
             alternate = Void.value();
 
-        cont
-                .begin(new ExpressionAction(test, env))
-                .andThen(new IfAction(consequent, alternate, env));
+        if (System.isSimpleExpression(test)) {
+            // decide right now
+            if (test.eval(env, cont) != Boolean.falseValue)
+                return consequent.eval(env, cont);
+            else
+                return alternate.eval(env, cont);
+        }
+
+        cont.begin(new IfAction(consequent, alternate, env));
+        cont.begin(new ExpressionAction(test, env));
 
         return null;
     }},
@@ -192,9 +210,8 @@ public final class Syntax {
     public Entity apply2(Entity arg1, Entity obj, Environment env, Continuation cont) throws GleamException {
         try {
             Symbol s = (Symbol) arg1;
-            cont
-                    .begin(new ExpressionAction(obj, env, null))
-                    .andThen(new AssignmentAction(s, env, null));
+            cont.begin(new AssignmentAction(s, env));
+            cont.begin(new ExpressionAction(obj, env));
 
             return null;
         }
@@ -222,23 +239,49 @@ public final class Syntax {
 
     /**
      * case
-     * @todo implementation
+     * Selects a clause by the value of a key.
      */
     new Primitive( "case",
         NULL_ENV, Primitive.KEYWORD, /* environment, type */
-        0, Primitive.VAR_ARGS, /* min, max no. of arguments */
-        "See cond", null /* doc strings */ ) {
-    },
+        1, Primitive.VAR_ARGS, /* min, max no. of arguments */
+        "Selects a clause by the value of a key, e.g. (case (* 2 3) ((2 3 5 7) 'prime) ((1 4 6 8 9) 'composite))",
+        "Each clause has a list of datums, compared with the key as in eqv?; "
+        +"the last clause may be an else clause" /* doc strings */ ) {
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        try {
+            return CaseAction.evaluate(args.getCar(), (List) args.getCdr(), env, cont);
+        }
+        catch (ClassCastException e) {
+            throw new GleamException(this, "invalid case syntax", args);
+        }
+    }},
 
     /**
      * do
-     * @todo implementation
+     * Iteration.
      */
     new Primitive( "do",
         NULL_ENV, Primitive.KEYWORD, /* environment, type */
-        0, Primitive.VAR_ARGS, /* min, max no. of arguments */
-        "Iteration syntax (not implemented)", null /* doc strings */ ) { // FIXME implement and change doc strings!
-    },
+        2, Primitive.VAR_ARGS, /* min, max no. of arguments */
+        "Iteration, e.g. (do ((i 0 (+ i 1))) ((= i 5) 'done) (display i))",
+        "Binds the variables to the values of the init expressions, then, "
+        +"until the test is true, evaluates the commands and rebinds the "
+        +"variables to the values of the step expressions; finally evaluates "
+        +"the result expressions" /* doc strings */ ) {
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        try {
+            Pair clauseAndCommands = (Pair) args.getCdr();
+            return LoopAction.evaluateDo((List) args.getCar(),
+                    (Pair) clauseAndCommands.getCar(),
+                    (List) clauseAndCommands.getCdr(),
+                    env, cont);
+        }
+        catch (ClassCastException e) {
+            throw new GleamException(this, "invalid do syntax", args);
+        }
+    }},
 
 //    /**
 //     * delay
@@ -295,26 +338,119 @@ public final class Syntax {
         NULL_ENV, Primitive.KEYWORD, /* environment, type */
             1, Primitive.VAR_ARGS, /* min, max no. of arguments */
             "Introduce bindings, e.g. (let ((x 2) (y 3)) (* x y))", null /* doc strings */ ) {
-    },
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        try {
+            if (args.getCar() instanceof Symbol) {
+                return LoopAction.evaluateNamedLet((Pair) args, env, cont);
+            }
+            return LetAction.evaluate((List) args.getCar(), (List) args.getCdr(), env, cont);
+        }
+        catch (ClassCastException e) {
+            throw new GleamException(this, "invalid let syntax", args);
+        }
+    }},
+
+    /*
+     * receive
+     */
+    new Primitive( "receive",
+        NULL_ENV, Primitive.KEYWORD, /* environment, type */
+            2, Primitive.VAR_ARGS, /* min, max no. of arguments */
+            "Binds the values of an expression, e.g. (receive (q r) (values 7 2) (list q r))",
+            "The formals are as those of a lambda form, e.g. (receive (x . rest) expr ...)" /* doc strings */ ) {
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        try {
+            Pair rest = (Pair) args.getCdr();
+            return ReceiveAction.evaluate(args.getCar(), rest.getCar(), (List) rest.getCdr(), env, cont);
+        }
+        catch (ClassCastException e) {
+            throw new GleamException(this, "invalid receive syntax", args);
+        }
+    }},
 
     /**
      * let*
-     * @todo implementation
      */
     new Primitive( "let*",
         NULL_ENV, Primitive.KEYWORD, /* environment, type */
             1, Primitive.VAR_ARGS, /* min, max no. of arguments */
             "Introduce bindings sequentially, e.g. (let* ((x 9) (y (+ x 1))) (+ x y))", null /* doc strings */ ) {
-    },
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        try {
+            return LetStarAction.evaluate((List) args.getCar(), (List) args.getCdr(), env, cont);
+        }
+        catch (ClassCastException e) {
+            throw new GleamException(this, "invalid let* syntax", args);
+        }
+    }},
+
+    /**
+     * letrec
+     */
+    new Primitive( "letrec",
+        NULL_ENV, Primitive.KEYWORD, /* environment, type */
+            1, Primitive.VAR_ARGS, /* min, max no. of arguments */
+            "Introduce recursive bindings, e.g. (letrec ((even? (lambda (n) (if (= n 0) #t (odd? (- n 1))))) "
+            +"(odd? (lambda (n) (if (= n 0) #f (even? (- n 1)))))) (even? 88))", null /* doc strings */ ) {
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        try {
+            return LetAction.evaluateLetrec((List) args.getCar(), (List) args.getCdr(), env, cont);
+        }
+        catch (ClassCastException e) {
+            throw new GleamException(this, "invalid letrec syntax", args);
+        }
+    }},
 
     /**
      * cond
      */
     new Primitive( "cond",
         NULL_ENV, Primitive.KEYWORD, /* environment, type */
-            1, Primitive.VAR_ARGS, /* min, max no. of arguments */
+            0, Primitive.VAR_ARGS, /* min, max no. of arguments */
             "Conditional, e.g. (cond ((> 3 3) 'greater) ((< 3 3) 'less) (else 'equal))", null /* doc strings */ ) {
-    },
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        try {
+            return CondClauseAction.evaluate(args, env, cont);
+        }
+        catch (ClassCastException e) {
+            throw new GleamException(this, "invalid cond syntax", args);
+        }
+    }},
+
+    /**
+     * and
+     * Evaluates its arguments from left to right, stopping at the first
+     * false value.
+     */
+    new Primitive( "and",
+        NULL_ENV, Primitive.KEYWORD, /* environment, type */
+            0, Primitive.VAR_ARGS, /* min, max no. of arguments */
+            "Logical and, e.g. (and (> x 0) (< x 10))",
+            "Returns the value of the last expression, or #f as soon as an expression is false" /* doc strings */ ) {
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        return AndAction.evaluate(args, env, cont);
+    }},
+
+    /**
+     * or
+     * Evaluates its arguments from left to right, stopping at the first
+     * true value.
+     */
+    new Primitive( "or",
+        NULL_ENV, Primitive.KEYWORD, /* environment, type */
+            0, Primitive.VAR_ARGS, /* min, max no. of arguments */
+            "Logical or, e.g. (or (< x 0) (> x 10))",
+            "Returns the value of the first expression that is not false, or #f" /* doc strings */ ) {
+    @Override
+    public Entity applyN(List args, Environment env, Continuation cont) throws GleamException {
+        return OrAction.evaluate(args, env, cont);
+    }},
 
     /**
      * unquote
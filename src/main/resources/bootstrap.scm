@@ -8,20 +8,6 @@
 ;;;;; prelude.scheme -- UMB Scheme, standard primitives in Scheme.
 ;;;;; Copyright 1988, 1991 University of Massachusetts
 
-;;;; Error Handling
-
-(define error-abort #f)
-
-(begin (call/cc (lambda (x) (set! error-abort x))) (display "\n")  )
-
-(define (error msg . obj )
-  (display "\n*** ") (display msg)
-  (if (null? obj)
-    (set! __errobj obj)
-    (begin (display " ") (display (car obj)) (set! __errobj (car obj)) ))
-  (error-abort #f))
-
-
 ;;;; LISTS
 
 ;(define (null? x) (eq? x '()))
@@ -249,118 +235,42 @@
 
 ; (_defmacro (h x) `(help ',(car x)) )
 
-;;; let
-
-; (let ((a b) (c d) ...) ...)
-; (let ((x 10) (y 20)) (+ x y)) => 30
-
-(_defmacro (let _x)
-  (define decl (car _x))
-  (define body (cdr _x))
-  `((lambda ,(map car decl) ,@body) ,@(map cadr decl)  ))
-
-
-;;; let*
+;;; gensym
 
-; (let* ((a b) (c d) ...) ...)
-; (let* ((x 10) (y (+ 1 x))) (+ x y)) => 21
+(define (gensym . x) (generate-symbol) )
 
-(_defmacro (let* x)
-  (if (null? (cdar x))
-    `(let ,@x)
-    `(let (,(caar x)) (let* ,(cdar x) ,@(cdr x)) )))
 
+;;;; EXCEPTIONS
 
-;;; gensym
-
-(define (gensym . x) (generate-symbol) )
+;;; (guard (var clause ...) body ...) -->
+;;; evaluates body with an exception handler that escapes back to the
+;;; guard, then selects a cond clause with var bound to the condition;
+;;; with no clause selected, the condition is raised again. The variables
+;;; of the expansion are fresh symbols, so they cannot capture those of
+;;; the body and clauses.
 
+(define guard (make-rewriter
+  (lambda (_x)
+    (let ((var (caadr _x))
+          (clauses (cdadr _x))
+          (body (cddr _x))
+          (k (gensym))
+          (condition (gensym))
+          (value (gensym)))
+      `((call/ec
+          (lambda (,k)
+            (with-exception-handler
+              (lambda (,condition)
+                (,k (lambda ()
+                      (let ((,var ,condition))
+                        (cond ,@clauses
+                              ,@(if (and (pair? clauses) (eq? (car (car (last clauses))) 'else))
+                                  '()
+                                  (list (list 'else (list 'raise-continuable condition)))))))))
+              (lambda ()
+                (let ((,value (let () ,@body)))
+                  (lambda () ,value)))))))))))
 
-;;; and
-
-; (and)       => #t
-; (and e1)    => e1
-; (and e1 e2 ...) =>
-;   (let ((x e1)
-;             (thunk (lambda()(and e2...))))
-;       (if x (thunk) x))
-
-(_defmacro (and args)
-    (if (null? args) #t
-  (if (null? (cdr args)) (car args)
-      (let* ((x (gensym "_x"))
-      (thunk (gensym "_thunk")))
-    `(let* ((,x ,(car args))
-           (,thunk (lambda ()
-        (and ,@(cdr args)))))
-        (if ,x (,thunk) ,x))
-      ))))
-
-
-;;; or
-
-; (or)       => #f
-; (or e1)    => e1
-; (or e1 e2 ...) =>
-;   (let ((x e1)
-;             (thunk (lambda()(or e2...))))
-;       (if x x (thunk)))
-
-
-(_defmacro (or args)
-    (if (null? args) #f
-  (if (null? (cdr args)) (car args)
-      (let ((x (gensym "_x"))
-      (thunk (gensym "_thunk")))
-    `(let ((,x ,(car args))
-           (,thunk (lambda ()
-         (or ,@(cdr args)))))
-        (if ,x ,x (,thunk)))
-      ))))
-
-;;; cond
-
-; (cond) => '()
-;
-; (cond (else seq)) => (begin seq)
-;
-; (cond (e1) c2 ...) => (or e1 (cond c2 ...))
-;
-; (cond (e1 => recipient) c2 ...) =>
-;   (let ((t e1)
-;         (r (lambda() recipient))
-;         (c (lambda() c2 ...)))
-;    (if t ((r)t) (c)) )
-;
-; (cond (e1 seq1) c2 ...) =>
-;    (if e1 (begin seq1)
-;     (cond c2 ...))
-;
-;(cond ((assv 'b '((a 1) (b 2))) => cadr) (else #f)) => 2
-
-
-(_defmacro (cond form)
-    (if (null? form) ''()
-  (let ((c1 (car form)))
-      (if (not (pair? c1))
-    (error "invalid cond syntax: " form)
-    (if (eq? (car c1) 'else)
-        `(begin ,@(cdr c1))
-    (if (null? (cdr c1))
-        `(or ,(car c1)
-       (cond ,@(cddr form)))
-    (if (eq? (cadr c1) '=>)
-      (let ((t (gensym "_t"))
-      (r (gensym "_r"))
-      (c (gensym "_c")))
-        `(let ((,t ,(car c1))
-         (,r (lambda () ,@(cddr c1)))
-         (,c (lambda () (cond ,@(cdr form)))))
-      (if ,t ((,r),t) (,c))) )
-      `(if ,(car c1)
-           (begin ,@(cdr c1))
-           (cond ,@(cdr form)))
-    )))))))
 
 (define (set-last-cdr! list elem)
   (if (null? (cdr list))
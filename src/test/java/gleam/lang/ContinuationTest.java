@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2001-2022 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for escape and full continuations, dynamic-wind, exception
+ * handling and multiple values.
+ */
+public class ContinuationTest {
+
+    private Interpreter intp;
+
+    private Environment env;
+
+    @Before
+    public void setUp() throws GleamException
+    {
+        intp = Interpreter.newInterpreter();
+        env = new Environment(intp.getSessionEnv());
+        eval("(define trace '())");
+        eval("(define (note x) (set! trace (cons x trace)))");
+    }
+
+    // escape continuations
+
+    @Test
+    public void escape_continuation_exits_early() throws GleamException
+    {
+        eval("(define (find p l) (call/ec (lambda (return)"
+                + " (let loop ((l l)) (cond ((null? l) #f) ((p (car l)) (return (car l))) (else (loop (cdr l)))))))))");
+        assertEquals("3", eval("(find (lambda (x) (> x 2)) '(1 2 3 4))"));
+        assertEquals("#f", eval("(find (lambda (x) (> x 9)) '(1 2 3 4))"));
+        assertEquals("42", eval("(+ 1 (call-with-escape-continuation (lambda (k) (+ 100 (k 41)))))"));
+    }
+
+    @Test
+    public void escape_continuation_is_valid_only_in_its_extent() throws GleamException
+    {
+        eval("(define saved #f)");
+        eval("(call/ec (lambda (k) (set! saved k)))");
+        try {
+            eval("(saved 1)");
+            fail("expected an error");
+        }
+        catch (GleamException e) {
+            assertTrue(e.getMessage().contains("outside of its extent"));
+        }
+    }
+
+    @Test
+    public void escape_continuation_in_loop() throws GleamException
+    {
+        eval("(define (loop n acc) (if (= n 0) acc (loop (- n 1) (+ acc (call/ec (lambda (k) (k 1) 0))))))");
+        assertEquals("10000", eval("(loop 10000 0)"));
+    }
+
+    @Test
+    public void escape_continuation_is_valid_only_on_its_stack() throws GleamException
+    {
+        eval("(define out #f)");
+        eval("(define esc #f)");
+        eval("(call/cc (lambda (k) (set! out k)))");
+        // leaves the extent of the call/ec with a full continuation
+        eval("(call/ec (lambda (e) (set! esc e) (out 0)))");
+        try {
+            eval("(+ 1 (esc 1))");
+            fail("expected an error");
+        }
+        catch (GleamException e) {
+            assertTrue(e.getMessage().contains("outside of its extent"));
+        }
+    }
+
+    // full continuations
+
+    @Test
+    public void continuation_captured_in_deep_recursion() throws GleamException
+    {
+        eval("(define k #f)");
+        eval("(define (deep d) (if (= d 0) (call/cc (lambda (c) (set! k c) 0)) (+ 1 (deep (- d 1)))))");
+        assertEquals("200", eval("(deep 200)"));
+        // each call goes through the same actions, which are not changed
+        assertEquals("205", eval("(k 5)"));
+        assertEquals("207", eval("(k 7)"));
+        assertEquals("(103 102 101 100)", eval("(let ((v (deep 100))) (note v)"
+                + " (if (< v 103) (k (+ (- v 100) 1)) trace))"));
+    }
+
+    @Test
+    public void escape_below_a_captured_continuation() throws GleamException
+    {
+        eval("(define (deep d e) (if (= d 0) (begin (call/cc (lambda (c) c)) (e 7)) (+ 1 (deep (- d 1) e))))");
+        assertEquals("8", eval("(+ 1 (call/ec (lambda (e) (deep 100 e))))"));
+        assertEquals("101", eval("(+ 1 (deep 100 (lambda (x) 0)))"));
+    }
+
+    // dynamic-wind
+
+    @Test
+    public void dynamic_wind() throws GleamException
+    {
+        assertEquals("during", eval("(dynamic-wind (lambda () (note 'before))"
+                + " (lambda () (note 'during) 'during) (lambda () (note 'after)))"));
+        assertEquals("(after during before)", eval("trace"));
+    }
+
+    @Test
+    public void escape_from_dynamic_wind_calls_after_thunks() throws GleamException
+    {
+        assertEquals("out", eval("(call/ec (lambda (k) (dynamic-wind (lambda () (note 'in1))"
+                + " (lambda () (dynamic-wind (lambda () (note 'in2)) (lambda () (k 'out)) (lambda () (note 'out2))))"
+                + " (lambda () (note 'out1)))))"));
+        assertEquals("(out1 out2 in2 in1)", eval("trace"));
+    }
+
+    @Test
+    public void reentry_into_dynamic_wind_calls_before_thunks() throws GleamException
+    {
+        eval("(define k #f)");
+        eval("(define n 0)");
+        eval("(dynamic-wind (lambda () (note 'in)) (lambda () (call/cc (lambda (c) (set! k c))) (set! n (+ n 1)))"
+                + " (lambda () (note 'out)))");
+        eval("(if (< n 2) (k #f))");
+        assertEquals("(out in out in)", eval("trace"));
+    }
+
+    // exceptions
+
+    @Test
+    public void raise_continuable() throws GleamException
+    {
+        assertEquals("41", eval("(with-exception-handler (lambda (e) (* e 2))"
+                + " (lambda () (+ 1 (raise-continuable 20))))"));
+    }
+
+    @Test
+    public void handler_escapes_with_escape_continuation() throws GleamException
+    {
+        assertEquals("(caught boom)", eval("(call/ec (lambda (k) (with-exception-handler"
+                + " (lambda (e) (k (list 'caught e))) (lambda () (raise 'boom)))))"));
+    }
+
+    @Test
+    public void handler_gets_error_objects() throws GleamException
+    {
+        assertEquals("(\"bad thing:\" (1 2))", eval("(call/ec (lambda (k) (with-exception-handler"
+                + " (lambda (e) (k (list (error-object-message e) (error-object-irritants e))))"
+                + " (lambda () (error \"bad thing:\" 1 2)))))"));
+        assertEquals("#t", eval("(call/ec (lambda (k) (with-exception-handler"
+                + " (lambda (e) (k (error-object? e))) (lambda () (car 5)))))"));
+    }
+
+    @Test
+    public void nested_handlers() throws GleamException
+    {
+        assertEquals("(outer inner x)", eval("(call/ec (lambda (k) (with-exception-handler"
+                + " (lambda (e) (k (cons 'outer e)))"
+                + " (lambda () (with-exception-handler (lambda (e) (raise (list 'inner e)))"
+                + " (lambda () (raise 'x)))))))"));
+    }
+
+    @Test
+    public void escape_from_handler_calls_after_thunks() throws GleamException
+    {
+        assertEquals("x", eval("(call/ec (lambda (k) (with-exception-handler (lambda (e) (k e))"
+                + " (lambda () (dynamic-wind (lambda () (note 'in))"
+                + " (lambda () (raise 'x)) (lambda () (note 'out)))))))"));
+        assertEquals("(out in)", eval("trace"));
+    }
+
+    @Test
+    public void handler_returning_from_raise_is_an_error() throws GleamException
+    {
+        assertEquals("#t", eval("(call/ec (lambda (k) (with-exception-handler (lambda (e) (k (error-object? e)))"
+                + " (lambda () (with-exception-handler (lambda (e) 'returned) (lambda () (raise 'x)))))))"));
+    }
+
+    @Test
+    public void uncaught_error() throws GleamException
+    {
+        try {
+            eval("(error \"something failed:\" 42)");
+            fail("expected an error");
+        }
+        catch (GleamException e) {
+            assertEquals("something failed: 42", e.getMessage());
+            assertThatHasNoStackTrace(e);
+        }
+        assertEquals("ok", eval("'ok"));
+    }
+
+    // multiple values
+
+    @Test
+    public void call_with_values() throws GleamException
+    {
+        assertEquals("3", eval("(call-with-values (lambda () (values 1 2)) +)"));
+        assertEquals("()", eval("(call-with-values (lambda () (values)) list)"));
+        assertEquals("25", eval("(call-with-values (lambda () 5) (lambda (x) (* x x)))"));
+    }
+
+    @Test
+    public void receive() throws GleamException
+    {
+        assertEquals("(7 2)", eval("(receive (q r) (values 7 2) (list q r))"));
+        assertEquals("(1 (2 3))", eval("(receive (a . rest) (values 1 2 3) (list a rest))"));
+        assertEquals("(1 2 3)", eval("(receive all (values 1 2 3) all)"));
+        assertEquals("42", eval("(receive (x) 42 x)"));
+        eval("(define (f n) (receive (a b) (if (> n 0) (values n (- n)) (values 0 0)) (+ a (* 10 b))))");
+        assertEquals("-27", eval("(f 3)"));
+        assertEquals("0", eval("(f 0)"));
+    }
+
+    @Test
+    public void receive_checks_the_number_of_values() throws GleamException
+    {
+        try {
+            eval("(receive (a b) (values 1) a)");
+            fail("expected an error");
+        }
+        catch (GleamException e) {
+            assertTrue(e.getMessage().contains("too few values"));
+        }
+        try {
+            eval("(receive (a) (values 1 2) a)");
+            fail("expected an error");
+        }
+        catch (GleamException e) {
+            assertTrue(e.getMessage().contains("too many values"));
+        }
+    }
+
+    @Test
+    public void continuations_accept_multiple_values() throws GleamException
+    {
+        assertEquals("(1 2 (3))", eval("(receive (a b . c) (call/cc (lambda (k) (k 1 2 3))) (list a b c))"));
+        assertEquals("-1", eval("(receive (a b) (call/ec (lambda (k) (k 8 9))) (- a b))"));
+    }
+
+    private static void assertThatHasNoStackTrace(GleamException e)
+    {
+        assertEquals(0, e.getStackTrace().length);
+    }
+
+    private String eval(String expr) throws GleamException
+    {
+        return intp.eval(new Reader(new StringReader(expr)).read(), env).toWriteFormat();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2001-2020 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for global environments, in one thread and in many.
+ */
+public class EnvironmentTest {
+
+    private static final int THREADS = 8;
+
+    private static final int COUNT = 2000;
+
+    @Test
+    public void define_and_lookup() throws GleamException
+    {
+        Environment parent = new Environment(null);
+        Environment env = new Environment(parent);
+        Symbol x = Symbol.makeSymbol("x");
+        parent.define(x, Fixnum.makeFixnum(1));
+        assertEquals(Fixnum.makeFixnum(1), env.lookup(x));
+        Location cell = env.cell(x);
+        assertFalse(cell.isBound());
+        assertSame(parent.getLocation(x), env.getLocation(x));
+        env.define(x, Fixnum.makeFixnum(2));
+        assertSame(cell, env.getLocation(x));
+        assertEquals(Fixnum.makeFixnum(2), env.lookup(x));
+        assertEquals(Fixnum.makeFixnum(1), parent.lookup(x));
+    }
+
+    @Test(timeout = 60000)
+    public void concurrent_definitions_of_a_variable_share_a_location() throws Exception
+    {
+        Environment env = new Environment(null);
+        Symbol x = Symbol.makeSymbol("a-contended-variable");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Location>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; ++t) {
+                final Entity value = Fixnum.makeFixnum(t);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    env.define(x, value);
+                    return env.getLocation(x);
+                }));
+            }
+            start.countDown();
+            Location location = results.get(0).get();
+            for (Future<Location> result : results) {
+                assertSame(location, result.get());
+            }
+            assertTrue(location.isBound());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void lookups_run_while_variables_are_defined() throws Exception
+    {
+        Environment env = new Environment(null);
+        Symbol[] symbols = new Symbol[COUNT];
+        for (int i = 0; i < COUNT; ++i) {
+            symbols[i] = Symbol.makeSymbol("a-global-" + i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; ++t) {
+                final boolean writer = t % 2 == 0;
+                final int offset = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int found = 0;
+                    for (int i = 0; i < COUNT; ++i) {
+                        Symbol s = symbols[(i + offset) % COUNT];
+                        if (writer) {
+                            env.define(s, Fixnum.makeFixnum(i));
+                        }
+                        else if (env.getLocationOrNull(s) != null) {
+                            ++found;
+                        }
+                    }
+                    return found;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                result.get();
+            }
+            for (Symbol s : symbols) {
+                assertNotNull(env.getLocationOrNull(s));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sessions_saved_with_a_hash_map_can_be_loaded() throws Exception
+    {
+        Environment env = new Environment(null);
+        Symbol x = Symbol.makeSymbol("x");
+        // as saved by older versions
+        HashMap<Symbol, Location> table = new HashMap<>();
+        table.put(x, new Location(Fixnum.makeFixnum(1)));
+        Field assoc = Environment.class.getDeclaredField("assoc");
+        assoc.setAccessible(true);
+        assoc.set(env, table);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(env);
+        }
+        Environment loaded;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            loaded = (Environment) in.readObject();
+        }
+        assertTrue(assoc.get(loaded) instanceof ConcurrentHashMap);
+        assertEquals(Fixnum.makeFixnum(1), loaded.lookup(x));
+        loaded.define(Symbol.makeSymbol("y"), Fixnum.makeFixnum(2));
+        assertEquals(Fixnum.makeFixnum(2), loaded.lookup(Symbol.makeSymbol("y")));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2001-2020 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for independent interpreters, in one thread and in many.
+ */
+public class InterpreterTest {
+
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void every_interpreter_is_bootstrapped() throws GleamException
+    {
+        Interpreter first = Interpreter.newInterpreter();
+        Interpreter second = Interpreter.newInterpreter();
+        assertEquals("(2 3 4)", eval(first, "(map (lambda (x) (+ x 1)) '(1 2 3))"));
+        assertEquals("(2 3 4)", eval(second, "(map (lambda (x) (+ x 1)) '(1 2 3))"));
+        assertEquals("caught", eval(second, "(guard (e (#t 'caught)) (raise 'oops))"));
+    }
+
+    @Test
+    public void interpreters_do_not_share_definitions() throws GleamException
+    {
+        Interpreter first = Interpreter.newInterpreter();
+        Interpreter second = Interpreter.newInterpreter();
+        eval(first, "(define x 1)");
+        eval(second, "(define x 2)");
+        eval(first, "(define (car p) 'redefined)");
+        assertEquals("1", eval(first, "x"));
+        assertEquals("2", eval(second, "x"));
+        assertEquals("redefined", eval(first, "(car '(1))"));
+        assertEquals("1", eval(second, "(car '(1))"));
+    }
+
+    @Test
+    public void interpreters_share_the_bootstrap_image() throws GleamException
+    {
+        Interpreter first = Interpreter.newInterpreter();
+        Interpreter second = Interpreter.newInterpreter();
+        assertSame(first.eval("map"), second.eval("map"));
+        assertSame(first.eval("car"), second.eval("car"));
+    }
+
+    @Test
+    public void assignments_to_the_image_are_private() throws GleamException
+    {
+        Interpreter first = Interpreter.newInterpreter();
+        Interpreter second = Interpreter.newInterpreter();
+        eval(first, "(set! cadr car)");
+        eval(first, "(set! map (lambda (f l) 'mine))");
+        assertEquals("1", eval(first, "(cadr '(1 2))"));
+        assertEquals("mine", eval(first, "(map car '((1)))"));
+        assertEquals("2", eval(second, "(cadr '(1 2))"));
+        assertEquals("(1)", eval(second, "(map car '((1)))"));
+        eval(first, "(define (f) (caddr '(1 2 3)))");
+        assertEquals("3", eval(first, "(f)"));
+        eval(first, "(set! caddr (lambda (l) 'mine))");
+        assertEquals("mine", eval(first, "(f)"));
+        assertEquals("3", eval(second, "(caddr '(1 2 3))"));
+    }
+
+    @Test
+    public void image_procedures_use_the_ports_of_the_caller() throws GleamException
+    {
+        Interpreter intp = Interpreter.newInterpreter();
+        java.io.StringWriter sw = new java.io.StringWriter();
+        intp.getSessionEnv().setOut(new OutputPort(new java.io.PrintWriter(sw), false));
+        eval(intp, "(map display '(1 2 3))");
+        intp.getSessionEnv().getOut().flush();
+        assertEquals("123", sw.toString());
+    }
+
+    @Test
+    public void trace_is_enabled_per_interpreter() throws GleamException
+    {
+        Interpreter first = Interpreter.newInterpreter();
+        Interpreter second = Interpreter.newInterpreter();
+        first.traceOn();
+        assertTrue(first.traceEnabled());
+        assertFalse(second.traceEnabled());
+        first.traceOff();
+        assertFalse(first.traceEnabled());
+    }
+
+    @Test(timeout = 120000)
+    public void interpreters_run_in_parallel() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; ++t) {
+                final int n = t;
+                Callable<String> worker = () -> {
+                    start.await();
+                    StringBuilder sb = new StringBuilder();
+                    for (int r = 0; r < ROUNDS; ++r) {
+                        sb.append(work(Interpreter.newInterpreter(), n)).append(';');
+                    }
+                    return sb.toString();
+                };
+                results.add(executor.submit(worker));
+            }
+            start.countDown();
+            for (int t = 0; t < THREADS; ++t) {
+                String expected = "";
+                for (int r = 0; r < ROUNDS; ++r) {
+                    expected += expectedWork(t) + ";";
+                }
+                assertEquals(expected, results.get(t).get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a program that defines globals, shadows a primitive, calls
+     * closures often enough to have them compiled, and uses continuations
+     * and exceptions, in an interpreter of its own.
+     */
+    private static String work(Interpreter intp, int n) throws GleamException
+    {
+        eval(intp, "(define n " + n + ")");
+        eval(intp, "(define (fib k) (if (< k 2) k (+ (fib (- k 1)) (fib (- k 2)))))");
+        eval(intp, "(define (length l) (if (null? l) n (+ 1 (length (cdr l)))))");
+        return eval(intp, "(list (fib (+ n 10))"
+                + " (length (map (lambda (x) (* x n)) '(1 2 3)))"
+                + " (call/cc (lambda (k) (+ 1 (k n))))"
+                + " (guard (e ((symbol? e) e)) (raise (if (< n 4) 'low 'high)))"
+                + " (receive (a b) (values n (* n n)) (+ a b)))");
+    }
+
+    private static String expectedWork(int n)
+    {
+        return "(" + fib(n + 10) + " " + (3 + n) + " " + n + " "
+                + (n < 4 ? "low" : "high") + " " + (n + n * n) + ")";
+    }
+
+    private static int fib(int k)
+    {
+        return k < 2 ? k : fib(k - 1) + fib(k - 2);
+    }
+
+    private static String eval(Interpreter intp, String expr) throws GleamException
+    {
+        return intp.eval(expr).toWriteFormat();
+    }
+}
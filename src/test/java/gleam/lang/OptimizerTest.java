@@ -0,0 +1,585 @@
+/*
+ * Copyright (c) 2001-2022 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the optimizer: each program is evaluated both as optimized code,
+ * as the interpreter does, and as analyzed code only, and the results must
+ * be the same.
+ */
+public class OptimizerTest {
+
+    private Interpreter intp;
+
+    @Before
+    public void setUp() throws GleamException
+    {
+        intp = Interpreter.newInterpreter();
+    }
+
+    // global references
+
+    @Test
+    public void global_is_compiled_to_global_reference() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        Entity code = Symbol.makeSymbol("car").optimize(env);
+        assertThat(code, instanceOf(GlobalRef.class));
+        assertSame(env.lookup(Symbol.makeSymbol("car")), code.eval(env, null));
+    }
+
+    @Test
+    public void global_reference_follows_shadowing_definition() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        Symbol car = Symbol.makeSymbol("car");
+        Entity code = car.optimize(env);
+        env.define(car, Symbol.makeSymbol("mine"));
+        assertEquals(Symbol.makeSymbol("mine"), code.eval(env, null));
+    }
+
+    @Test
+    public void forward_reference_is_compiled_to_unbound_location() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        Symbol later = Symbol.makeSymbol("later");
+        Entity code = later.optimize(env);
+        assertThat(code, instanceOf(GlobalRef.class));
+        assertNull(env.getLocationOrNull(later));
+        env.define(later, Symbol.makeSymbol("defined"));
+        assertEquals(Symbol.makeSymbol("defined"), code.eval(env, null));
+    }
+
+    @Test(expected = UnboundVariableException.class)
+    public void unbound_location_is_unbound_variable() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        Symbol.makeSymbol("never-defined").optimize(env).eval(env, null);
+    }
+
+    @Test(expected = UnboundVariableException.class)
+    public void assignment_to_unbound_location() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        intp.eval(read("(lambda () never-assigned)"), env);
+        intp.eval(read("(set! never-assigned 1)"), env);
+    }
+
+    @Test
+    public void local_is_compiled_to_local_reference() throws GleamException
+    {
+        Symbol x = Symbol.makeSymbol("x");
+        Frame frame = new Frame(newSessionEnv(),
+                FrameLayout.forProcedure(new Pair(x, EmptyList.value()), EmptyList.value()));
+        Entity code = x.optimize(new Frame(frame, FrameLayout.forLet(EmptyList.value(), EmptyList.value())));
+        assertThat(code, instanceOf(LocalRef.class));
+        assertEquals(1, ((LocalRef) code).depth);
+        assertEquals(0, ((LocalRef) code).index);
+    }
+
+    @Test
+    public void redefined_primitive() throws GleamException
+    {
+        assertSameResult("mine",
+                "(define (f x) (car x))",
+                "(define (car x) 'mine)",
+                "(f '(1))");
+    }
+
+    @Test
+    public void redefined_procedure() throws GleamException
+    {
+        assertSameResult("(one two)",
+                "(define (g) (h))",
+                "(define (h) 'one)",
+                "(define a (g))",
+                "(define (h) 'two)",
+                "(list a (g))");
+    }
+
+    @Test
+    public void assigned_global() throws GleamException
+    {
+        assertSameResult("after",
+                "(define z 'before)",
+                "(define (get-z) z)",
+                "(set! z 'after)",
+                "(get-z)");
+    }
+
+    @Test
+    public void global_shadowed_by_parameter() throws GleamException
+    {
+        assertSameResult("(local global)",
+                "(define x 'global)",
+                "(list ((lambda (x) x) 'local) x)");
+    }
+
+    @Test
+    public void keyword_shadowed_by_parameter() throws GleamException
+    {
+        assertSameResult("(a b c)",
+                "((lambda (if) (if 'a 'b 'c)) list)");
+    }
+
+    @Test
+    public void quoted_data_untouched() throws GleamException
+    {
+        assertSameResult("(car x)",
+                "(define (f x) '(car x))",
+                "(f 1)");
+    }
+
+    @Test
+    public void syntax_rewriter_defined_after_use() throws GleamException
+    {
+        assertSameResult("expanded",
+                "(define (f) (m))",
+                "(define m (make-rewriter (lambda (x) ''expanded)))",
+                "(f)");
+    }
+
+    @Test
+    public void expansion_evaluated_in_frames_of_different_layouts() throws GleamException
+    {
+        assertSameResult("(local third)",
+                "(define m (make-rewriter (lambda (f) 'x)))",
+                "(define form '(m))",
+                "(define (f x) (eval form (current-environment)))",
+                "(define (g a b x) (eval form (current-environment)))",
+                "(list (f 'local) (g 1 2 'third))");
+    }
+
+    // special forms
+
+    @Test
+    public void special_forms_are_compiled_to_nodes() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        assertThat(optimize("'a", env), instanceOf(Const.class));
+        assertThat(optimize("(if a 1 2)", env), instanceOf(If.class));
+        assertThat(optimize("(if a 1)", env), instanceOf(If.class));
+        assertThat(optimize("(lambda (x) x)", env), instanceOf(Lambda.class));
+        assertThat(optimize("(begin 1 2)", env), instanceOf(Seq.class));
+        assertThat(optimize("(set! a 1)", env), instanceOf(Set.class));
+        assertThat(optimize("(define a 1)", env), instanceOf(Define.class));
+        Entity define = optimize("(define (f x) x)", env);
+        assertThat(define, instanceOf(Define.class));
+        assertThat(((Define) define).value, instanceOf(Lambda.class));
+    }
+
+    @Test
+    public void nodes_are_written_as_source() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        String[] forms = {"(quote a)", "(if a 1 2)", "(lambda (x) (car x))", "(begin 1 2)",
+                          "(set! a 1)", "(define (f x) (g x))"};
+        for (String form : forms) {
+            Entity expr = read(form);
+            Entity node = expr.analyze(env).optimize(env);
+            assertThat(node, instanceOf(Node.class));
+            assertEquals(form.replace("(quote a)", "'a"), node.toWriteFormat());
+            assertEquals(form.replace("(quote a)", "'a"), expr.toWriteFormat());
+        }
+    }
+
+    // internal defines
+
+    @Test
+    public void forward_references() throws GleamException
+    {
+        assertSameResult("(#t #f)",
+                "(define (ev? n) (if (= n 0) #t (od? (- n 1))))",
+                "(define (od? n) (if (= n 0) #f (ev? (- n 1))))",
+                "(list (ev? 10) (od? 10))");
+    }
+
+    @Test
+    public void forward_reference_to_enclosing_definition() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        Entity f = intp.eval(read("(lambda () elsewhere)"), env);
+        intp.getInteractionEnv().define(Symbol.makeSymbol("elsewhere"), Symbol.makeSymbol("outer"));
+        assertEquals("outer", intp.eval(new Pair(f, EmptyList.value()), env).toWriteFormat());
+        env.define(Symbol.makeSymbol("elsewhere"), Symbol.makeSymbol("inner"));
+        assertEquals("inner", intp.eval(new Pair(f, EmptyList.value()), env).toWriteFormat());
+    }
+
+    @Test
+    public void internal_defines() throws GleamException
+    {
+        assertSameResult("one",
+                "(define (f) (define a 'one) (define (b) a) (b))",
+                "(f)");
+    }
+
+    @Test
+    public void internal_define_shadows_global() throws GleamException
+    {
+        assertSameResult("(inner outer)",
+                "(define (f l) (define (car x) 'inner) (car l))",
+                "(list (f '(1)) (car '(outer)))");
+    }
+
+    @Test
+    public void top_level_begin_defines() throws GleamException
+    {
+        assertSameResult("(q q)",
+                "(begin (define p 'q) (define (r) p))",
+                "(list (r) p)");
+    }
+
+    @Test
+    public void internal_defines_in_let_body() throws GleamException
+    {
+        assertSameResult("(a b)",
+                "(define (f) (let ((x 'a)) (define y 'b) (list x y)))",
+                "(f)");
+    }
+
+    // derived expressions
+
+    @Test
+    public void nested_let_forms() throws GleamException
+    {
+        assertSameResult("(a b a b)",
+                "(define (f a) (let ((b 'b)) (let* ((c a) (d b)) (list a b c d))))",
+                "(f 'a)");
+    }
+
+    @Test
+    public void let_star_shadowing() throws GleamException
+    {
+        assertSameResult("(outer inner)",
+                "(define y 'outer)",
+                "(define (f) (let* ((a y) (y 'inner)) (list a y)))",
+                "(f)");
+    }
+
+    @Test
+    public void letrec() throws GleamException
+    {
+        assertSameResult("(#t #t)",
+                "(define (f) (letrec ((ev? (lambda (l) (if (null? l) #t (od? (cdr l)))))"
+                        + " (od? (lambda (l) (if (null? l) #f (ev? (cdr l))))))"
+                        + " (list (ev? '(1 2)) (od? '(1 2 3)))))",
+                "(f)");
+    }
+
+    @Test
+    public void cond_and_case() throws GleamException
+    {
+        assertSameResult("(b vowel #t)",
+                "(define (f x) (list (cond ((eq? x 'a) => (lambda (t) (if t 'b 'c))) (else 'none))"
+                        + " (case x ((a e i o u) 'vowel) (else 'consonant))"
+                        + " (and x (or #f #t))))",
+                "(f 'a)");
+    }
+
+    @Test
+    public void loops() throws GleamException
+    {
+        assertSameResult("((c b a) (c b a))",
+                "(define (f l) (list (do ((l l (cdr l)) (acc '() (cons (car l) acc))) ((null? l) acc))"
+                        + " (let loop ((l l) (acc '())) (if (null? l) acc (loop (cdr l) (cons (car l) acc))))))",
+                "(f '(a b c))");
+    }
+
+    @Test
+    public void closures_in_loops() throws GleamException
+    {
+        assertSameResult("(c b a)",
+                "(define (f l) (do ((l l (cdr l)) (ps '() (cons (lambda () (car l)) ps))) ((null? l) ps)))",
+                "(define (call-all ps) (if (null? ps) '() (cons ((car ps)) (call-all (cdr ps)))))",
+                "(call-all (f '(a b c)))");
+    }
+
+    // call sites
+
+    @Test
+    public void call_site_follows_new_procedure() throws GleamException
+    {
+        assertSameResult("(a (b) (a . b) (a b))",
+                "(define f car)",
+                "(define (g) (f '(a b)))",
+                "(define r1 (g))",
+                "(set! f cdr)",
+                "(define r2 (g))",
+                "(set! f (lambda (l) (cons (car l) (car (cdr l)))))",
+                "(define r3 (g))",
+                "(set! f (lambda l (car l)))",
+                "(list r1 r2 r3 (g))");
+    }
+
+    @Test
+    public void call_site_checks_new_procedure_arity() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        intp.eval(read("(define (f x) x)"), env);
+        intp.eval(read("(define (g) (f 1))"), env);
+        intp.eval(read("(g)"), env);
+        intp.eval(read("(set! f (lambda (x y) x))"), env);
+        try {
+            intp.eval(read("(g)"), env);
+            fail("expected too few arguments");
+        }
+        catch (GleamException e) {
+            assertTrue(e.getMessage().contains("too few arguments"));
+        }
+    }
+
+    @Test
+    public void call_site_with_primitives_of_each_arity() throws GleamException
+    {
+        assertSameResult("((3 -1 4 (1) #t (1 2 3)) (-1 -1 4 (1) #t (1 2 3)))",
+                "(define (g f x y) (list (f x y) (- x y) (* x y 2) (list x) (< x y) (list x y (+ x y))))",
+                "(list (g + 1 2) (g - 1 2))");
+    }
+
+    @Test
+    public void specialized_call_site_sees_new_types() throws GleamException
+    {
+        assertSameResult("(3 4.0 3.5 9223372036854775808 7 #t #f)",
+                "(define (add x y) (+ x y))",
+                "(define (less x y) (< x y))",
+                "(list (add 1 2) (add 1.5 2.5) (add 1 2.5) (add 9223372036854775807 1) (add 3 4)"
+                        + " (less 1 2) (less 2.5 1))");
+    }
+
+    @Test
+    public void specialized_call_site_reports_errors() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        intp.eval(read("(define (first x) (car x))"), env);
+        assertEquals("a", intp.eval(read("(first '(a))"), env).toWriteFormat());
+        try {
+            intp.eval(read("(first 5)"), env);
+            fail("expected invalid argument");
+        }
+        catch (GleamException e) {
+            assertTrue(e.getMessage().contains("car"));
+        }
+    }
+
+    @Test
+    public void calls_evaluated_in_place() throws GleamException
+    {
+        assertSameResult("(6 (3 2 1) #t (a b))",
+                "(define (len l) (if (null? l) 0 (+ 1 (len (cdr l)))))",
+                "(define (rev l acc) (cond ((null? l) acc) (else (rev (cdr l) (cons (car l) acc)))))",
+                "(define (both l) (and (pair? l) (or (null? (cdr l)) (pair? (cdr l)))))",
+                "(define (pick f l) (if (f l) (car l) (cdr l)))",
+                "(define r1 (list (len '(a b c d e f)) (rev '(1 2 3) '()) (both '(1 2))))",
+                "(list (car r1) (car (cdr r1)) (car (cdr (cdr r1))) (pick (lambda (l) #f) '(x a b)))");
+    }
+
+    @Test
+    public void call_evaluated_in_place_follows_new_procedure() throws GleamException
+    {
+        assertSameResult("((a . 1) (x . 1) (k . 1))",
+                "(define f car)",
+                "(define (g l) (cons (f l) 1))",
+                "(define r1 (g '(a b)))",
+                "(set! f (lambda (l) 'x))",
+                "(define r2 (g '(a b)))",
+                "(define k #f)",
+                "(set! f (lambda (l) (call/cc (lambda (c) (set! k c) 'k))))",
+                "(list r1 r2 (g '(a b)))");
+    }
+
+    // compiled closures
+
+    @Test
+    public void compiled_bodies() throws GleamException
+    {
+        assertSameCompiled("(2 #f)", "(define (f x y) (if (< x y) (+ x 1) (and (pair? y) (car y))))",
+                           "(list (f 1 2) (f 3 2))");
+        assertSameCompiled("(#t #t #f)", "(define (f x) (or (null? x) (eqv? 'a (car x))))",
+                           "(list (f '()) (f '(a)) (f '(b)))");
+        assertSameCompiled("((0 1) 1)", "(define (f x) (cdr x) (cons x (cons 1 '())))",
+                           "(f '(0 1))");
+        assertSameCompiled("(1 #t 6 c)", "(define (f x) (if (> x 0) 1))",
+                           "(define (g) (and))",
+                           "(define (h a b c) (+ a b c))",
+                           "(define (i) 'c)",
+                           "(list (f 1) (eq? (f 0) (if #f #f)) (h 1 2 3) (i))");
+    }
+
+    @Test
+    public void compiled_body_makes_tail_calls() throws GleamException
+    {
+        assertSameCompiled("done", "(define (f n) (if (= n 0) 'done (f (- n 1))))", "(f 100000)");
+    }
+
+    @Test
+    public void compiled_body_follows_new_definition_of_primitive() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        intp.eval(read("(define (f x) (+ x 1))"), env);
+        assertTrue(((Closure) env.lookup(Symbol.makeSymbol("f"))).compile());
+        assertEquals("2", intp.eval(read("(f 1)"), env).toWriteFormat());
+        intp.eval(read("(define (+ a b) (- a b))"), env);
+        assertEquals("0", intp.eval(read("(f 1)"), env).toWriteFormat());
+    }
+
+    @Test
+    public void compiled_body_leaves_call_cc_to_interpreter() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        intp.eval(read("(define (f x) (+ 1 (call/cc (lambda (k) (k x)))))"), env);
+        assertFalse(((Closure) env.lookup(Symbol.makeSymbol("f"))).compile());
+        assertSameCompiled("(a 1)", "(define (f x) (if (pair? x) (call/cc (lambda (k) (k (car x)))) x))",
+                           "(list (f '(a)) (f 1))");
+    }
+
+    @Test
+    public void compiled_body_reports_errors() throws GleamException
+    {
+        Environment env = newSessionEnv();
+        intp.eval(read("(define (first x) (car x))"), env);
+        assertTrue(((Closure) env.lookup(Symbol.makeSymbol("first"))).compile());
+        try {
+            intp.eval(read("(first 5)"), env);
+            fail("expected invalid argument");
+        }
+        catch (GleamException e) {
+            assertTrue(e.getMessage().contains("car"));
+        }
+    }
+
+    @Test
+    public void closure_called_from_several_threads_is_compiled() throws Exception
+    {
+        final Environment env = newSessionEnv();
+        intp.eval(read("(define (f x) (+ x 1))"), env);
+        intp.eval(read("(define (loop n) (if (> n 0) (begin (f n) (loop (- n 1)))))"), env);
+        final Entity calls = read("(loop " + (ClosureCompiler.THRESHOLD + 1) + ")");
+        final GleamException[] errors = new GleamException[4];
+        Thread[] threads = new Thread[errors.length];
+        for (int i = 0; i < threads.length; ++i) {
+            final int n = i;
+            final Interpreter taskIntp = intp.newTaskInterpreter();
+            threads[i] = new Thread(() -> {
+                try {
+                    taskIntp.eval(calls, env);
+                }
+                catch (GleamException e) {
+                    errors[n] = e;
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+            assertNull(errors[i]);
+        }
+        Closure f = (Closure) env.lookup(Symbol.makeSymbol("f"));
+        assertEquals("2", intp.eval(read("(f 1)"), env).toWriteFormat());
+        assertNotNull(f.profile().compiled);
+    }
+
+    /**
+     * Evaluates a program, made of definitions of procedures followed by
+     * an expression, with the procedures compiled and interpreted, in two
+     * separate environments, and checks the results.
+     */
+    private void assertSameCompiled(String expected, String... program) throws GleamException
+    {
+        Environment compiledEnv = newSessionEnv();
+        Environment interpretedEnv = newSessionEnv();
+        for (int i = 0; i < program.length - 1; ++i) {
+            Entity definition = read(program[i]);
+            intp.eval(definition, compiledEnv);
+            intp.eval(definition, interpretedEnv);
+            Pair header = (Pair) ((Pair) ((Pair) definition).getCdr()).getCar();
+            Symbol name = (Symbol) header.getCar();
+            assertTrue(((Closure) compiledEnv.lookup(name)).compile());
+        }
+        Entity expr = read(program[program.length - 1]);
+        assertEquals(expected, intp.eval(expr, interpretedEnv).toWriteFormat());
+        assertEquals(expected, intp.eval(expr, compiledEnv).toWriteFormat());
+    }
+
+    /**
+     * Evaluates a program, made of the given expressions, with and without
+     * optimization, in two separate environments, and checks the results.
+     */
+    private void assertSameResult(String expected, String... program) throws GleamException
+    {
+        Environment optimizedEnv = newSessionEnv();
+        Environment analyzedEnv = newSessionEnv();
+        Entity optimized = null;
+        Entity analyzed = null;
+        for (String expr : program) {
+            optimized = intp.eval(read(expr), optimizedEnv);
+            analyzed = evalAnalyzed(read(expr), analyzedEnv);
+        }
+        assertEquals(expected, analyzed.toWriteFormat());
+        assertEquals(expected, optimized.toWriteFormat());
+    }
+
+    /**
+     * Evaluates an expression without optimization.
+     */
+    private static Entity evalAnalyzed(Entity expr, Environment env) throws GleamException
+    {
+        Continuation cont = new Continuation();
+        cont.begin(new ExpressionAction(expr.analyze(env), env));
+        Entity accum = Void.value();
+        Action action;
+        while ((action = cont.head()) != null) {
+            Entity value = action.invoke(accum, cont);
+            if (value != null) {
+                accum = value;
+            }
+        }
+        return accum;
+    }
+
+    private static Entity optimize(String expr, Environment env) throws GleamException
+    {
+        return read(expr).analyze(env).optimize(env);
+    }
+
+    private Environment newSessionEnv()
+    {
+        return new Environment(intp.getInteractionEnv());
+    }
+
+    private static Entity read(String expr) throws GleamException
+    {
+        return new Reader(new StringReader(expr)).read();
+    }
+}
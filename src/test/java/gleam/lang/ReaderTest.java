@@ -30,6 +30,7 @@ import org.hamcrest.core.IsInstanceOf;
 import org.junit.Test;
 
 import java.io.StringReader;
+import java.math.BigInteger;
 
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.Assert.*;
@@ -145,13 +146,35 @@ public class ReaderTest {
     @Test
     public void read_number() throws GleamException
     {
-        Entity expected = new Real(1);
+        Entity expected = Fixnum.makeFixnum(1);
         String expr = "1";
 
         Reader r = getReader(expr);
         assertEquals(expected, r.read());
     }
 
+    @Test
+    public void read_real() throws GleamException
+    {
+        Entity expected = new Real(-1.5);
+        String expr = "-1.5";
+
+        Reader r = getReader(expr);
+        assertEquals(expected, r.read());
+    }
+
+    @Test
+    public void read_big_integer() throws GleamException
+    {
+        Entity expected = Bignum.makeInteger(new BigInteger("-123456789012345678901234567890"));
+        String expr = "-123456789012345678901234567890";
+
+        Reader r = getReader(expr);
+        Entity actual = r.read();
+        assertThat(actual, instanceOf(Bignum.class));
+        assertEquals(expected, actual);
+    }
+
     // strings
 
     @Test
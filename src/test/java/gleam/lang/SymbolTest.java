@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2001-2020 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the interning of symbols.
+ */
+public class SymbolTest {
+
+    @Test
+    public void symbols_are_unique() throws GleamException
+    {
+        assertSame(Symbol.makeSymbol("lambda"), Symbol.LAMBDA);
+        assertSame(Symbol.makeSymbol("a-symbol"), Symbol.makeSymbol("a-symbol"));
+        assertSame(Symbol.makeSymbol("a-symbol"), new Reader(new java.io.StringReader("a-symbol")).read());
+        assertNotSame(Symbol.makeUninternedSymbol("a-symbol"), Symbol.makeSymbol("a-symbol"));
+    }
+
+    @Test
+    public void deserialized_symbols_are_unique() throws IOException, ClassNotFoundException
+    {
+        Symbol symbol = Symbol.makeSymbol("a-serialized-symbol");
+        assertSame(symbol, copy(symbol));
+        assertSame(Symbol.QUOTE, copy(Symbol.QUOTE));
+        Symbol uninterned = Symbol.makeUninternedSymbol("a-serialized-symbol");
+        assertNotSame(symbol, copy(uninterned));
+    }
+
+    @Test
+    public void unused_symbols_are_collected() throws InterruptedException
+    {
+        WeakReference<Symbol> ref = new WeakReference<>(Symbol.makeSymbol("an-unused-symbol"));
+        for (int i = 0; i < 50 && ref.get() != null; ++i) {
+            java.lang.System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+        // interned again as a new symbol
+        assertEquals("an-unused-symbol", Symbol.makeSymbol("an-unused-symbol").toString());
+    }
+
+    @Test(timeout = 60000)
+    public void symbols_are_unique_across_threads() throws Exception
+    {
+        final int threads = 8;
+        final int count = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Symbol[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                Callable<Symbol[]> worker = () -> {
+                    start.await();
+                    Symbol[] symbols = new Symbol[count];
+                    for (int i = 0; i < count; ++i) {
+                        symbols[i] = Symbol.makeSymbol("concurrent-symbol-" + i);
+                    }
+                    return symbols;
+                };
+                results.add(executor.submit(worker));
+            }
+            start.countDown();
+            Symbol[] first = results.get(0).get();
+            for (int t = 1; t < threads; ++t) {
+                Symbol[] other = results.get(t).get();
+                for (int i = 0; i < count; ++i) {
+                    assertSame(first[i], other[i]);
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Object copy(Object object) throws IOException, ClassNotFoundException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2001-2020 Guglielmo Nigri.  All Rights Reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of version 2 of the GNU General Public License as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it would be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * Further, this software is distributed without any warranty that it is
+ * free of the rightful claim of any third person regarding infringement
+ * or the like.  Any license provided herein, whether implied or
+ * otherwise, applies only to this software file.  Patent licenses, if
+ * any, provided herein do not apply to combinations of this program with
+ * other software, or any other product whatsoever.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write the Free Software Foundation, Inc., 59
+ * Temple Place - Suite 330, Boston MA 02111-1307, USA.
+ *
+ * Contact information: Guglielmo Nigri <guglielmonigri@yahoo.it>
+ *
+ */
+
+package gleam.lang;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for futures and threads.
+ */
+public class TaskTest {
+
+    private Interpreter intp;
+
+    @Before
+    public void setUp() throws GleamException
+    {
+        intp = Interpreter.newInterpreter();
+        intp.eval("(define (fib n) (if (< n 2) n (+ (fib (- n 1)) (fib (- n 2)))))");
+    }
+
+    @Test
+    public void touch_returns_the_value_of_a_future() throws GleamException
+    {
+        assertEquals("55", eval("(touch (future (lambda () (fib 10))))"));
+        assertEquals("(1 2)", eval("(let ((x 1)) (touch (future (lambda () (list x 2)))))"));
+    }
+
+    @Test
+    public void touch_returns_other_objects_as_is() throws GleamException
+    {
+        assertEquals("42", eval("(touch 42)"));
+    }
+
+    @Test
+    public void thread_join_returns_the_value_of_a_thread() throws GleamException
+    {
+        assertEquals("ok", eval("(thread-join (spawn (lambda () 'ok)))"));
+    }
+
+    @Test(expected = GleamException.class)
+    public void thread_join_wants_a_thread() throws GleamException
+    {
+        eval("(thread-join 42)");
+    }
+
+    @Test
+    public void many_futures_run_in_parallel() throws GleamException
+    {
+        eval("(define fs (map (lambda (n) (future (lambda () (fib n)))) '(10 11 12 13 14 15 16 17)))");
+        assertEquals("(55 89 144 233 377 610 987 1597)", eval("(map touch fs)"));
+    }
+
+    @Test
+    public void futures_can_be_started_by_image_procedures() throws GleamException
+    {
+        assertEquals("(1 2)", eval("(map touch (map future (list (lambda () 1) (lambda () 2))))"));
+    }
+
+    @Test
+    public void errors_are_raised_by_touch() throws GleamException
+    {
+        eval("(define f (future (lambda () (raise 'oops))))");
+        assertEquals("oops", eval("(guard (e (#t e)) (touch f))"));
+        assertEquals("caught", eval("(guard (e (#t 'caught)) (touch (future (lambda () (car 1)))))"));
+        assertEquals("handled",
+                eval("(call/ec (lambda (k) (with-exception-handler (lambda (e) (k 'handled))"
+                     + " (lambda () (thread-join (spawn (lambda () (error \"failed\"))))))))"));
+    }
+
+    @Test
+    public void errors_are_handled_in_the_task() throws GleamException
+    {
+        assertEquals("inner", eval("(touch (future (lambda () (guard (e (#t 'inner)) (raise 'oops)))))"));
+    }
+
+    @Test
+    public void waiting_threads_do_not_hold_up_futures() throws Exception
+    {
+        StringBuilder threads = new StringBuilder("(list");
+        for (int i = 0; i < 2 * Runtime.getRuntime().availableProcessors(); ++i) {
+            threads.append(" (spawn wait)");
+        }
+        eval("(define done #f)");
+        eval("(define (wait) (if (not done) (wait) 'woken))");
+        eval("(define ts " + threads + "))");
+        try {
+            eval("(define f (future (lambda () 'ran)))");
+            long deadline = java.lang.System.currentTimeMillis() + 10000;
+            while (!eval("f").equals("#<future done>") && java.lang.System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("#<future done>", eval("f"));
+        }
+        finally {
+            eval("(set! done #t)");
+            eval("(map thread-join ts)");
+        }
+    }
+
+    @Test
+    public void tasks_share_global_variables() throws GleamException
+    {
+        eval("(define shared 10)");
+        assertEquals("11", eval("(touch (future (lambda () (+ shared 1))))"));
+        eval("(thread-join (spawn (lambda () (set! shared 'set-by-thread))))");
+        assertEquals("set-by-thread", eval("shared"));
+    }
+
+    @Test
+    public void tasks_are_written_by_kind() throws GleamException
+    {
+        eval("(define t (spawn (lambda () 1)))");
+        eval("(thread-join t)");
+        assertEquals("#<thread done>", eval("t"));
+        assertTrue(eval("(future (lambda () 1))").startsWith("#<future"));
+    }
+
+    private String eval(String expr) throws GleamException
+    {
+        return intp.eval(expr).toWriteFormat();
+    }
+}
@@ -73,7 +73,7 @@
 
 
 (assert "a number"
-    1.0
+    1
     1
 )
 
@@ -83,12 +83,12 @@
 )
 
 (assert "(+)"
-    0.0
+    0
     (+)
 )
 
 (assert "(+ (+ 1))"
-    1.0
+    1
     (+ (+ 1))
 )
 
@@ -108,14 +108,14 @@
 )
 
 (assert "inc"
-    11.0
+    11
     (inc 10)
 )
 
 (define (inc2 x) (+ 2 x))
 
 (assert "inc2"
-    12.0
+    12
     (inc2 10)
 )
 
@@ -159,6 +159,206 @@
     (loop 2000000)
 )
 
+;;;
+;;; number tests:
+;;;
+
+(assert "exact integers"
+    '(3 -1 6 2)
+    (list (+ 1 2) (- 1 2) (* 2 3) (/ 6 3))
+)
+
+(assert "inexact contagion"
+    '(3.5 0.5 3.0)
+    (list (+ 1 2.5) (/ 1 2) (* 2 1.5))
+)
+
+(assert "overflow to big integers"
+    '(9223372036854775808 -9223372036854775809 85070591730234615847396907784232501249)
+    (list (+ 9223372036854775807 1)
+          (- -9223372036854775808 1)
+          (* 9223372036854775807 9223372036854775807))
+)
+
+(assert "big integers back to fixnums"
+    9223372036854775807
+    (- (+ 9223372036854775807 1) 1)
+)
+
+(assert "exact comparisons"
+    '(#t #f #t #t)
+    (list (< 9007199254740992 9007199254740993)
+          (= 9007199254740992 9007199254740993)
+          (= 2 2.0)
+          (> 9223372036854775808 9223372036854775807))
+)
+
+(assert "unary and binary operators"
+    '(-5 5 9223372036854775807 9223372036854775808 #t #f #t)
+    (list (- 5) (- -5) (- 9223372036854775807 -1 1)
+          (- -9223372036854775808)
+          (< 1 2) (> 1 2.5) (<= 2 2))
+)
+
+(assert "small integers are eqv?"
+    '(#t #f)
+    (list (eqv? (+ 100000 1) 100001) (eqv? 2 2.0))
+)
+
+;;;
+;;; derived expression tests:
+;;;
+
+(assert "let"
+    '(a b)
+    (let ((x 'a) (y 'b)) (list x y))
+)
+
+(define y 'outer)
+
+(assert "let* sees previous bindings"
+    '(outer inner)
+    (let* ((a y) (y 'inner)) (list a y))
+)
+
+(assert "let with internal define"
+    'defined
+    (let () (define z 'defined) z)
+)
+
+(assert "and"
+    '(#t c #f)
+    (list (and) (and 'a 'b 'c) (and 'a #f (car '())))
+)
+
+(assert "or"
+    '(#f a b)
+    (list (or) (or 'a (car '())) (or #f #f 'b))
+)
+
+(assert "cond"
+    '(less 2 else)
+    (list (cond ((eq? 'a 'b) 'greater) ((eq? 'a 'a) 'less) (else 'equal))
+          (cond ((assv 'b '((a 1) (b 2))) => cadr) (else #f))
+          (cond (#f 'no) (else 'else)))
+)
+
+(define (classify x)
+  (case x
+    ((a e i o u) 'vowel)
+    ((w y) 'semivowel)
+    ((1 2 3) 'number)
+    ((#t) 'true)
+    (else 'consonant)))
+
+(assert "case"
+    '(vowel semivowel consonant number true)
+    (list (classify 'e) (classify 'y) (classify 'z) (classify 2) (classify #t))
+)
+
+(assert "case with no else"
+    void
+    (case 'z ((a) 'a))
+)
+
+(assert "do"
+    '(4 3 2 1 0)
+    (do ((i 0 (+ i 1)) (acc '() (cons i acc))) ((= i 5) acc))
+)
+
+(assert "named let"
+    '(c b a)
+    (let loop ((l '(a b c)) (acc '())) (if (null? l) acc (loop (cdr l) (cons (car l) acc))))
+)
+
+(assert "fresh bindings for closures in loops"
+    '(2 1 0 2 1 0)
+    (map (lambda (p) (p))
+         (append (do ((i 0 (+ i 1)) (ps '() (cons (lambda () i) ps))) ((= i 3) ps))
+                 (let loop ((i 0) (ps '())) (if (= i 3) ps (loop (+ i 1) (cons (lambda () i) ps))))))
+)
+
+(define (count-down z)
+  (cond ((case z ((0) #t) (else #f)) 'done)
+        ((and (> z 0) (or #f #t)) (count-down (- z 1)))))
+
+(assert "tail calls in cond, case, and, or"
+    'done
+    (count-down 100000)
+)
+
+;;;
+;;; escape continuation and exception tests:
+;;;
+
+(define (find-first p l)
+  (call/ec (lambda (return)
+             (map (lambda (x) (if (p x) (return x))) l)
+             #f)))
+
+(assert "call/ec exits early"
+    '(3 #f)
+    (list (find-first (lambda (x) (> x 2)) '(1 2 3 4))
+          (find-first (lambda (x) (> x 9)) '(1 2 3 4)))
+)
+
+(define wind-trace '())
+
+(define (note x) (set! wind-trace (cons x wind-trace)))
+
+(assert "dynamic-wind left by call/ec"
+    '(escaped out in)
+    (let ((v (call/ec (lambda (k)
+               (dynamic-wind (lambda () (note 'in))
+                             (lambda () (k 'escaped))
+                             (lambda () (note 'out)))))))
+      (cons v wind-trace))
+)
+
+(assert "guard"
+    '((sym boom) else 41 "bad thing:" (1 2))
+    (list (guard (e ((string? e) (list 'str e)) ((symbol? e) (list 'sym e))) (raise 'boom))
+          (guard (e (else 'else)) (raise 1))
+          (with-exception-handler (lambda (e) (* e 2))
+            (lambda () (+ 1 (raise-continuable 20))))
+          (guard (e ((error-object? e) (error-object-message e))) (error "bad thing:" 1 2))
+          (guard (e ((error-object? e) (error-object-irritants e))) (error "bad thing:" 1 2)))
+)
+
+(assert "guard catches primitive errors"
+    #t
+    (guard (e ((error-object? e) #t)) (car 5))
+)
+
+(assert "guard does not capture variables"
+    '(outer (inner 1) 2 caught)
+    (let ((_guard-k 'outer) (_guard-value 1) (_guard-condition 2))
+      (list (guard (e (#t _guard-k)) (raise 'oops))
+            (guard (e ((symbol? e) 'outer))
+              (guard (e ((number? e) (list 'inner e))) (raise _guard-value)))
+            (guard (e (#f 'never)) _guard-condition)
+            (guard (e ((eq? e 'again) 'caught))
+              (guard (e ((number? e) e)) (raise 'again)))))
+)
+
+;;;
+;;; multiple values tests:
+;;;
+
+(define (min-max a b) (if (< a b) (values a b) (values b a)))
+
+(assert "call-with-values"
+    '(3 2)
+    (list (call-with-values (lambda () (values 1 2)) +)
+          (call-with-values (lambda () (min-max 7 2)) (lambda (lo hi) lo)))
+)
+
+(assert "receive"
+    '((2 7) (1 (2 3)))
+    (list (receive (lo hi) (min-max 7 2) (list lo hi))
+          (receive (a . rest) (values 1 2 3) (list a rest)))
+)
+
 ;;;
 ;;; continuation tests:
 ;;;